@@ -0,0 +1,121 @@
+package com.upgrade.campside;
+
+import com.upgrade.campside.domain.model.Campsite;
+import com.upgrade.campside.domain.model.Person;
+import com.upgrade.campside.domain.model.Reservation;
+import com.upgrade.campside.domain.model.ReservationStatus;
+import com.upgrade.campside.domain.repository.ReservationStore;
+import com.upgrade.campside.exception.ReservationConflictException;
+import com.upgrade.campside.service.OccupancyIndex;
+import com.upgrade.campside.service.PersonService;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Boots the application for the JMH benchmarks, without the web layer unless benchmarking the
+ * endpoints, on its own in-memory H2 database, and seeds it with a realistic history of
+ * reservations.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+public final class BenchmarkContext {
+
+  /**
+   * Number of seeded reservations, about one in three canceled.
+   */
+  public static final int SEEDED_RESERVATIONS = 10_000;
+
+  private static final int SEEDED_PERSONS = 500;
+  private static final int SEED_CHUNK = 500;
+
+  private BenchmarkContext() {
+  }
+
+  /**
+   * Starts the application context.
+   *
+   * @param properties additional <code>key=value</code> properties.
+   * @return the running context, to be closed by the caller.
+   */
+  public static ConfigurableApplicationContext start(String... properties) {
+    return start(WebApplicationType.NONE, properties);
+  }
+
+  /**
+   * Starts the application context with the web layer, on a random port read from the
+   * <code>local.server.port</code> property.
+   *
+   * @param properties additional <code>key=value</code> properties.
+   * @return the running context, to be closed by the caller.
+   */
+  public static ConfigurableApplicationContext startWeb(String... properties) {
+    return start(WebApplicationType.SERVLET, properties);
+  }
+
+  private static ConfigurableApplicationContext start(WebApplicationType type,
+      String... properties) {
+    return new SpringApplicationBuilder(CampsideApplication.class)
+        .web(type)
+        .bannerMode(Banner.Mode.OFF)
+        .logStartupInfo(false)
+        .properties(
+            "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+            "spring.jpa.show-sql=false",
+            "logging.level.root=WARN",
+            "campside.occupancy.refresh-interval=3600000",
+            "spring.devtools.restart.enabled=false",
+            "server.port=0")
+        .properties(properties)
+        .run();
+  }
+
+  /**
+   * Seeds the past calendar with back-to-back stays of one to three nights, ending yesterday, so
+   * the whole future stays bookable. One in three reservations is canceled.
+   *
+   * @param context the running context.
+   */
+  public static void seed(ConfigurableApplicationContext context) {
+    ReservationStore store = context.getBean(ReservationStore.class);
+    PersonService personService = context.getBean(PersonService.class);
+    TransactionTemplate template =
+        new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+    LocalDate departure = LocalDate.now().minusDays(1);
+    for (int seeded = 0; seeded < SEEDED_RESERVATIONS; seeded += SEED_CHUNK) {
+      List<Reservation> chunk = new ArrayList<>(SEED_CHUNK);
+      LocalDate chunkDeparture = departure;
+      int first = seeded;
+      departure = template.execute(status -> {
+        LocalDate current = chunkDeparture;
+        for (int i = first; i < first + SEED_CHUNK; i++) {
+          Person owner = personService
+              .findOrCreate("guest" + (i % SEEDED_PERSONS) + "@email.com", "Guest " + i);
+          boolean canceled = i % 3 == 0;
+          LocalDate arrival = current.minusDays(1 + i % 3);
+          chunk.add(new Reservation(Campsite.DEFAULT_ID, arrival, current, owner,
+              canceled ? ReservationStatus.CANCELED : ReservationStatus.CONFIRMED));
+          if (!canceled) {
+            current = arrival;
+          }
+        }
+        try {
+          store.saveAll(chunk);
+        } catch (ReservationConflictException ex) {
+          throw new IllegalStateException(ex);
+        }
+        return current;
+      });
+    }
+    context.getBean(OccupancyIndex.class).rebuild();
+  }
+}
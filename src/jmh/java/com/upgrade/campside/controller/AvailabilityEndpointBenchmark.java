@@ -0,0 +1,81 @@
+package com.upgrade.campside.controller;
+
+import com.upgrade.campside.BenchmarkContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Measures <code>GET /api/reservation/availability</code> over HTTP with many concurrent pollers
+ * and a small servlet pool, with the store queries run inline on the servlet threads (0 read
+ * threads) and asynchronously on the read executor, which releases the servlet threads. Pollers
+ * ask for a month starting on a random day of the past, so part of the queries start before the
+ * read model and go to the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(256)
+@Fork(1)
+public class AvailabilityEndpointBenchmark {
+
+  private static final int SERVLET_THREADS = 32;
+
+  @Param({"0", "8"})
+  private int readThreads;
+
+  private ConfigurableApplicationContext context;
+  private String availabilityUrl;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    System.setProperty("http.maxConnections", "256");
+    context = BenchmarkContext.startWeb("campside.read.threads=" + readThreads,
+        "server.tomcat.max-threads=" + SERVLET_THREADS);
+    BenchmarkContext.seed(context);
+    availabilityUrl = "http://localhost:" + context.getEnvironment()
+        .getProperty("local.server.port") + "/api/reservation/availability?start_date=";
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public int poll() throws IOException {
+    LocalDate start = LocalDate.now().minusDays(ThreadLocalRandom.current().nextInt(60));
+    HttpURLConnection connection = (HttpURLConnection) new URL(availabilityUrl + start)
+        .openConnection();
+    int status = connection.getResponseCode();
+    try (InputStream body = status < 400
+        ? connection.getInputStream() : connection.getErrorStream()) {
+      byte[] buffer = new byte[8192];
+      while (body != null && body.read(buffer) != -1) {
+        // drains the body so the connection is kept alive
+      }
+    }
+    return status;
+  }
+}
@@ -0,0 +1,88 @@
+package com.upgrade.campside.controller.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.upgrade.campside.domain.model.Campsite;
+import com.upgrade.campside.domain.model.Person;
+import com.upgrade.campside.domain.model.Reservation;
+import com.upgrade.campside.domain.model.ReservationStatus;
+import com.upgrade.campside.utils.BinaryFormatConfig;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Compares the JSON representation of the availability response, a list of
+ * <code>ReservationDTO</code>, with its CBOR and Smile representations: serialization time, and
+ * bytes on the wire printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryFormatBenchmark {
+
+  private static final Long CAMPSITE = Campsite.DEFAULT_ID;
+
+  @Param({"json", "cbor", "smile"})
+  private String format;
+
+  @Param({"1", "30"})
+  private int reservations;
+
+  private ObjectMapper objectMapper;
+  private List<ReservationDTO> dtos;
+
+  @Setup
+  public void setUp() throws Exception {
+    switch (format) {
+      case "cbor":
+        objectMapper = BinaryFormatConfig.binaryMapper(Jackson2ObjectMapperBuilder.json(),
+            new CBORFactory());
+        break;
+      case "smile":
+        objectMapper = BinaryFormatConfig.binaryMapper(Jackson2ObjectMapperBuilder.json(),
+            new SmileFactory());
+        break;
+      default:
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    dtos = new ArrayList<>(reservations);
+    LocalDate arrival = LocalDate.now().plusDays(1);
+    for (int i = 0; i < reservations; i++) {
+      Person owner = new Person("guest" + i + "@email.com", "Guest " + i);
+      owner.setId((long) i);
+      Reservation reservation = new Reservation(CAMPSITE, arrival, arrival.plusDays(1), owner,
+          ReservationStatus.CONFIRMED);
+      reservation.setBookingId(100_000L + i);
+      ReservationDTO dto = new ReservationDTO();
+      dto.buildFromEntity(reservation);
+      dtos.add(dto);
+      arrival = arrival.plusDays(1);
+    }
+    System.out.printf("%n%s body of %d reservations: %d bytes%n", format, reservations,
+        objectMapper.writeValueAsBytes(dtos).length);
+  }
+
+  @Benchmark
+  public byte[] serialize() throws Exception {
+    return objectMapper.writeValueAsBytes(dtos);
+  }
+}
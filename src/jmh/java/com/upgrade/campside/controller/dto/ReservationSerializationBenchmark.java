@@ -0,0 +1,71 @@
+package com.upgrade.campside.controller.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrade.campside.domain.model.Campsite;
+import com.upgrade.campside.domain.model.Person;
+import com.upgrade.campside.domain.model.Reservation;
+import com.upgrade.campside.domain.model.ReservationStatus;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Measures <code>ReservationDTO.buildFromEntity</code> followed by the Jackson serialization of
+ * the DTOs, for a single reservation and for a fully booked month.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationSerializationBenchmark {
+
+  private static final Long CAMPSITE = Campsite.DEFAULT_ID;
+
+  @Param({"1", "30"})
+  private int reservations;
+
+  private ObjectMapper objectMapper;
+  private List<Reservation> entities;
+
+  @Setup
+  public void setUp() {
+    objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    entities = new ArrayList<>(reservations);
+    LocalDate arrival = LocalDate.now().plusDays(1);
+    for (int i = 0; i < reservations; i++) {
+      Person owner = new Person("guest" + i + "@email.com", "Guest " + i);
+      owner.setId((long) i);
+      Reservation reservation = new Reservation(CAMPSITE, arrival, arrival.plusDays(1), owner,
+          ReservationStatus.CONFIRMED);
+      reservation.setBookingId((long) i);
+      entities.add(reservation);
+      arrival = arrival.plusDays(1);
+    }
+  }
+
+  @Benchmark
+  public byte[] buildAndSerialize() throws Exception {
+    List<ReservationDTO> dtos = new ArrayList<>(entities.size());
+    for (Reservation reservation : entities) {
+      ReservationDTO dto = new ReservationDTO();
+      dto.buildFromEntity(reservation);
+      dtos.add(dto);
+    }
+    return objectMapper.writeValueAsBytes(dtos);
+  }
+}
@@ -0,0 +1,69 @@
+package com.upgrade.campside.domain.repository;
+
+import com.upgrade.campside.BenchmarkContext;
+import com.upgrade.campside.domain.model.Campsite;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Measures both overlap queries of the <code>ReservationRepository</code> on the seeded H2
+ * dataset, for a stay inside the booked history and for a stay in the free future.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OverlapQueryBenchmark {
+
+  private static final Long CAMPSITE = Campsite.DEFAULT_ID;
+
+  @Param({"history", "future"})
+  private String window;
+
+  private ConfigurableApplicationContext context;
+  private ReservationRepository repository;
+  private LocalDate arrival;
+  private LocalDate departure;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkContext.start();
+    BenchmarkContext.seed(context);
+    repository = context.getBean(ReservationRepository.class);
+
+    arrival = "history".equals(window)
+        ? LocalDate.now().minusYears(1) : LocalDate.now().plusDays(5);
+    departure = arrival.plusDays(3);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public boolean checkReservationOverlaps() {
+    return repository.checkReservationOverlaps(CAMPSITE, arrival, departure);
+  }
+
+  @Benchmark
+  public boolean checkReservationOverlapsExceptOwn() {
+    return repository.checkReservationOverlapsExceptOwn(CAMPSITE, arrival, departure, 1L);
+  }
+}
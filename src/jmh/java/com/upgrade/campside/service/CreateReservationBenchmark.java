@@ -0,0 +1,130 @@
+package com.upgrade.campside.service;
+
+import com.upgrade.campside.BenchmarkContext;
+import com.upgrade.campside.domain.model.Campsite;
+import com.upgrade.campside.domain.model.Reservation;
+import com.upgrade.campside.exception.InvalidReservationDateException;
+import com.upgrade.campside.exception.ReservationNotFoundException;
+import com.upgrade.campside.exception.ServiceOverloadedException;
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Measures <code>createReservation</code> under contention at 1, 4, 16 and 64 threads, with both
+ * booking engines. Every thread books a random stay of the next month, through the Spring proxy
+ * so each booking is committed, and cancels it right away when it succeeds, so the calendar never
+ * fills up. Bookings are spread over 1 or 16 campsites, which share
+ * no lock. Booked and rejected attempts are reported as secondary counters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CreateReservationBenchmark {
+
+  @Param({"direct", "sequencer"})
+  private String engine;
+
+  @Param({"1", "16"})
+  private int campsites;
+
+  private ConfigurableApplicationContext context;
+  private BookingEngine bookingEngine;
+  private Long[] campsiteIds;
+
+  /**
+   * Outcome of the booking attempts of a thread.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Outcomes {
+
+    public long booked;
+    public long rejected;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      booked = 0;
+      rejected = 0;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkContext.start("campside.booking.engine=" + engine);
+    BenchmarkContext.seed(context);
+    bookingEngine = context.getBean(BookingEngine.class);
+
+    CampsiteService campsiteService = context.getBean(CampsiteService.class);
+    campsiteIds = new Long[campsites];
+    campsiteIds[0] = Campsite.DEFAULT_ID;
+    for (int i = 1; i < campsites; i++) {
+      campsiteIds[i] = campsiteService.createCampsite("Benchmark " + i).getId();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void createThreads1(Outcomes outcomes) {
+    book(outcomes);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void createThreads4(Outcomes outcomes) {
+    book(outcomes);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public void createThreads16(Outcomes outcomes) {
+    book(outcomes);
+  }
+
+  @Benchmark
+  @Threads(64)
+  public void createThreads64(Outcomes outcomes) {
+    book(outcomes);
+  }
+
+  private void book(Outcomes outcomes) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    LocalDate arrival = LocalDate.now().plusDays(1 + random.nextInt(28));
+    LocalDate departure = arrival.plusDays(1 + random.nextInt(3));
+    Long campsiteId = campsiteIds[random.nextInt(campsiteIds.length)];
+    try {
+      Reservation reservation = bookingEngine.createReservation(campsiteId,
+          "benchmark@email.com", "Benchmark Guest", arrival, departure);
+      outcomes.booked++;
+      bookingEngine.cancelReservation(reservation.getBookingId());
+    } catch (InvalidReservationDateException | ServiceOverloadedException ex) {
+      outcomes.rejected++;
+    } catch (ReservationNotFoundException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+}
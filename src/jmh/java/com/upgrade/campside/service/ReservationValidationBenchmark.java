@@ -0,0 +1,81 @@
+package com.upgrade.campside.service;
+
+import com.upgrade.campside.BenchmarkContext;
+import com.upgrade.campside.domain.model.Campsite;
+import com.upgrade.campside.domain.repository.ReservationStore;
+import com.upgrade.campside.exception.InvalidReservationDateException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Measures <code>ReservationService.validateReservationDates</code> for a free and an occupied
+ * stay, against the seeded dataset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationValidationBenchmark {
+
+  private static final Long CAMPSITE = Campsite.DEFAULT_ID;
+
+  private ConfigurableApplicationContext context;
+  private ReservationService service;
+  private LocalDate freeArrival;
+  private LocalDate occupiedArrival;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    context = BenchmarkContext.start();
+    BenchmarkContext.seed(context);
+    service = new ReservationService(context.getBean(ReservationStore.class),
+        context.getBean(PersonService.class), context.getBean(OccupancyIndex.class), context,
+        context.getBean(PlatformTransactionManager.class),
+        context.getBean(ReservationMetrics.class), 600000);
+
+    freeArrival = LocalDate.now().plusDays(5);
+    occupiedArrival = LocalDate.now().plusDays(10);
+    service.createReservation(CAMPSITE, "benchmark@email.com", "Benchmark Guest", occupiedArrival,
+        occupiedArrival.plusDays(3));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public boolean validateFreeStay() {
+    return validate(freeArrival);
+  }
+
+  @Benchmark
+  public boolean validateOccupiedStay() {
+    return validate(occupiedArrival.plusDays(1));
+  }
+
+  private boolean validate(LocalDate arrival) {
+    try {
+      service.validateReservationDates(CAMPSITE, arrival, arrival.plusDays(2), null);
+      return true;
+    } catch (InvalidReservationDateException ex) {
+      return false;
+    }
+  }
+}
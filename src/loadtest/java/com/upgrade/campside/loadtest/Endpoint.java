@@ -0,0 +1,15 @@
+package com.upgrade.campside.loadtest;
+
+/**
+ * Endpoints driven by the <code>LoadTest</code>.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+enum Endpoint {
+  POST,
+  PUT,
+  CANCEL,
+  AVAILABILITY
+}
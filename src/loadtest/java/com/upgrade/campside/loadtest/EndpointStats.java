@@ -0,0 +1,83 @@
+package com.upgrade.campside.loadtest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Latency histogram and outcome counters of an endpoint. Latencies are recorded in microseconds,
+ * from the intended start of each request, so a slow server delaying the next requests is not
+ * hidden by the load generator (coordinated omission).
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+final class EndpointStats {
+
+  private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+  private final Recorder recorder = new Recorder(HIGHEST_MICROS, 3);
+  private final LongAdder succeeded = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+
+  /**
+   * Records an answered request.
+   *
+   * @param intendedStartNanos the <code>System.nanoTime</code> the request was scheduled at.
+   * @param status the HTTP status, 4xx and 503 count as rejected, other 5xx as failed.
+   */
+  void record(long intendedStartNanos, int status) {
+    recordLatency(intendedStartNanos);
+    if (status < 400) {
+      succeeded.increment();
+    } else if (status < 500 || status == 503) {
+      rejected.increment();
+    } else {
+      failed.increment();
+    }
+  }
+
+  /**
+   * Records a request that got no HTTP answer.
+   *
+   * @param intendedStartNanos the <code>System.nanoTime</code> the request was scheduled at.
+   */
+  void recordFailure(long intendedStartNanos) {
+    recordLatency(intendedStartNanos);
+    failed.increment();
+  }
+
+  /**
+   * Drops everything recorded so far, e.g. at the end of the warmup.
+   */
+  void reset() {
+    recorder.reset();
+    succeeded.reset();
+    rejected.reset();
+    failed.reset();
+  }
+
+  Histogram histogram() {
+    return recorder.getIntervalHistogram();
+  }
+
+  long succeeded() {
+    return succeeded.sum();
+  }
+
+  long rejected() {
+    return rejected.sum();
+  }
+
+  long failed() {
+    return failed.sum();
+  }
+
+  private void recordLatency(long intendedStartNanos) {
+    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStartNanos);
+    recorder.recordValue(Math.min(Math.max(micros, 0), HIGHEST_MICROS));
+  }
+}
@@ -0,0 +1,293 @@
+package com.upgrade.campside.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrade.campside.CampsideApplication;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * HTTP load test of the reservation API. Requests arrive following an open model: a Poisson
+ * process at the configured rate, whatever the response times, as real customers do, with an
+ * optional burst when the booking window opens. Bookings can be concentrated on the first days of
+ * the bookable month (hotspot). For each endpoint it reports the p50, p99 and p99.9 latencies and
+ * the rejection rate, and writes the full percentile distribution to the report directory.
+ *
+ * Without a <code>--target</code> the application is booted locally on a random port. See
+ * <code>LoadTestOptions</code> for every option.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+public final class LoadTest {
+
+  private static final ObjectMapper JSON = new ObjectMapper();
+  private static final int TRACKED_BOOKINGS = 10_000;
+  private static final int GUESTS = 1_000;
+  private static final int TIMEOUT_MILLIS = 10_000;
+
+  private final LoadTestOptions options;
+  private final String baseUrl;
+  private final Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+  private final Deque<Long> bookings = new ConcurrentLinkedDeque<>();
+  private final List<Endpoint> weightedEndpoints = new ArrayList<>();
+
+  private LoadTest(LoadTestOptions options, String baseUrl) {
+    this.options = options;
+    this.baseUrl = baseUrl;
+    for (Endpoint endpoint : Endpoint.values()) {
+      stats.put(endpoint, new EndpointStats());
+    }
+    options.mix.forEach((endpoint, weight) -> {
+      for (int i = 0; i < weight; i++) {
+        weightedEndpoints.add(endpoint);
+      }
+    });
+  }
+
+  /**
+   * Runs the load test.
+   *
+   * @param args <code>--name=value</code> options, the others are passed to the application.
+   */
+  public static void main(String[] args) throws Exception {
+    LoadTestOptions options = LoadTestOptions.parse(args);
+
+    ConfigurableApplicationContext context = null;
+    String baseUrl = options.target;
+    if (baseUrl == null) {
+      context = boot(options.applicationArgs);
+      baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+    }
+    try {
+      new LoadTest(options, baseUrl).run();
+    } finally {
+      if (context != null) {
+        context.close();
+      }
+    }
+  }
+
+  /**
+   * Boots the application on a random port. SQL and the expected constraint violations of
+   * concurrent bookings are not logged, writing them would weigh on the measured latencies.
+   */
+  private static ConfigurableApplicationContext boot(List<String> applicationArgs) {
+    System.setProperty("spring.devtools.restart.enabled", "false");
+    List<String> args = new ArrayList<>(Arrays.asList("--server.port=0",
+        "--spring.jpa.show-sql=false", "--logging.level.root=WARN",
+        "--logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=OFF"));
+    args.addAll(applicationArgs);
+    return new SpringApplicationBuilder(CampsideApplication.class)
+        .bannerMode(Banner.Mode.OFF)
+        .logStartupInfo(false)
+        .run(args.toArray(new String[0]));
+  }
+
+  private void run() throws Exception {
+    ThreadPoolExecutor workers = new ThreadPoolExecutor(options.workers, options.workers,
+        1, TimeUnit.MINUTES, new LinkedBlockingQueue<>());
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+
+    long start = System.nanoTime();
+    long measureFrom = start + TimeUnit.SECONDS.toNanos(options.warmup);
+    long end = measureFrom + TimeUnit.SECONDS.toNanos(options.duration);
+    boolean measuring = options.warmup == 0;
+    System.out.printf("Load test of %s: %.0f req/s for %ds after %ds of warmup%n", baseUrl,
+        options.rate, options.duration, options.warmup);
+
+    for (long next = start; next < end; ) {
+      long now = System.nanoTime();
+      if (next > now) {
+        LockSupport.parkNanos(next - now);
+      }
+      if (!measuring && next >= measureFrom) {
+        stats.values().forEach(EndpointStats::reset);
+        measuring = true;
+      }
+
+      long intendedStart = next;
+      Endpoint endpoint = weightedEndpoints.get(random.nextInt(weightedEndpoints.size()));
+      workers.execute(() -> send(endpoint, intendedStart));
+
+      double rate = options.rateAt((next - measureFrom) / 1e9);
+      next += (long) (-Math.log(1 - random.nextDouble()) / rate * 1e9);
+    }
+
+    workers.shutdown();
+    workers.awaitTermination(2, TimeUnit.MINUTES);
+    report();
+  }
+
+  /**
+   * Sends one request. An update or a cancel without any known booking is sent as a booking.
+   */
+  private void send(Endpoint endpoint, long intendedStart) {
+    Long bookingId = endpoint == Endpoint.PUT || endpoint == Endpoint.CANCEL
+        ? bookings.pollFirst() : null;
+    Endpoint sent = bookingId == null && endpoint != Endpoint.AVAILABILITY
+        ? Endpoint.POST : endpoint;
+
+    try {
+      int status;
+      switch (sent) {
+        case POST:
+          status = book();
+          break;
+        case PUT:
+          status = reschedule(bookingId);
+          break;
+        case CANCEL:
+          status = call("PUT", "/api/reservation/cancel/" + bookingId, null).status;
+          break;
+        default:
+          LocalDate from = LocalDate.now().plusDays(ThreadLocalRandom.current().nextInt(8));
+          status = call("GET", "/api/reservation/availability?start_date=" + from
+              + "&end_date=" + from.plusMonths(1), null).status;
+      }
+      stats.get(sent).record(intendedStart, status);
+    } catch (IOException ex) {
+      stats.get(sent).recordFailure(intendedStart);
+    }
+  }
+
+  private int book() throws IOException {
+    int guest = ThreadLocalRandom.current().nextInt(GUESTS);
+    LocalDate arrival = randomArrival();
+    String body = String.format("{\"arrivalDate\":\"%s\",\"departureDate\":\"%s\","
+            + "\"owner\":{\"email\":\"guest%d@loadtest.com\",\"fullName\":\"Guest %d\"}}",
+        arrival, randomDeparture(arrival), guest, guest);
+
+    Response response = call("POST", "/api/reservation", body);
+    if (response.status == 200) {
+      JsonNode bookingId = JSON.readTree(response.body).get("bookingId");
+      bookings.offerLast(bookingId.asLong());
+      if (bookings.size() > TRACKED_BOOKINGS) {
+        bookings.pollFirst();
+      }
+    }
+    return response.status;
+  }
+
+  private int reschedule(Long bookingId) throws IOException {
+    LocalDate arrival = randomArrival();
+    String body = String.format(
+        "{\"bookingId\":%d,\"arrivalDate\":\"%s\",\"departureDate\":\"%s\"}",
+        bookingId, arrival, randomDeparture(arrival));
+
+    Response response = call("PUT", "/api/reservation", body);
+    if (response.status != 404) {
+      bookings.offerLast(bookingId);
+    }
+    return response.status;
+  }
+
+  /**
+   * Arrival in the bookable month, from tomorrow, concentrated on the hotspot days for the
+   * configured share of the bookings.
+   */
+  private LocalDate randomArrival() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int days = random.nextDouble() < options.hotspotShare ? options.hotspotDays : 28;
+    return LocalDate.now().plusDays(1 + random.nextInt(days));
+  }
+
+  private LocalDate randomDeparture(LocalDate arrival) {
+    return arrival.plusDays(1 + ThreadLocalRandom.current().nextInt(3));
+  }
+
+  private Response call(String method, String path, String body) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+    connection.setRequestMethod(method);
+    connection.setConnectTimeout(TIMEOUT_MILLIS);
+    connection.setReadTimeout(TIMEOUT_MILLIS);
+    if (body != null) {
+      connection.setDoOutput(true);
+      connection.setRequestProperty("Content-Type", "application/json");
+      try (OutputStream out = connection.getOutputStream()) {
+        out.write(body.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    int status = connection.getResponseCode();
+    InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    if (in != null) {
+      try (InputStream stream = in) {
+        byte[] buffer = new byte[4096];
+        for (int read = stream.read(buffer); read != -1; read = stream.read(buffer)) {
+          content.write(buffer, 0, read);
+        }
+      }
+    }
+    return new Response(status, new String(content.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  private void report() throws IOException {
+    File reportDir = new File(options.reportDir);
+    reportDir.mkdirs();
+
+    System.out.printf("%n%-13s %8s %8s %9s %7s %7s %9s %9s %9s %9s%n", "endpoint", "count", "ok",
+        "rejected", "failed", "rej%", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+    long total = 0;
+    for (Map.Entry<Endpoint, EndpointStats> entry : stats.entrySet()) {
+      EndpointStats endpointStats = entry.getValue();
+      Histogram histogram = endpointStats.histogram();
+      long count = histogram.getTotalCount();
+      total += count;
+      System.out.printf("%-13s %8d %8d %9d %7d %6.2f%% %9.2f %9.2f %9.2f %9.2f%n",
+          entry.getKey().name().toLowerCase(), count, endpointStats.succeeded(),
+          endpointStats.rejected(), endpointStats.failed(),
+          count == 0 ? 0 : 100.0 * endpointStats.rejected() / count,
+          millis(histogram, 50), millis(histogram, 99), millis(histogram, 99.9),
+          histogram.getMaxValue() / 1000.0);
+
+      File distribution = new File(reportDir, entry.getKey().name().toLowerCase() + ".hgrm");
+      try (PrintStream out = new PrintStream(distribution, StandardCharsets.UTF_8.name())) {
+        histogram.outputPercentileDistribution(out, 1000.0);
+      }
+    }
+    System.out.printf("%nThroughput: %.1f req/s, distributions in %s%n",
+        (double) total / options.duration, reportDir.getAbsolutePath());
+  }
+
+  private static double millis(Histogram histogram, double percentile) {
+    return histogram.getValueAtPercentile(percentile) / 1000.0;
+  }
+
+  private static final class Response {
+
+    private final int status;
+    private final String body;
+
+    Response(int status, String body) {
+      this.status = status;
+      this.body = body;
+    }
+  }
+}
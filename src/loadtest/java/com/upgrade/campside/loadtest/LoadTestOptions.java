@@ -0,0 +1,123 @@
+package com.upgrade.campside.loadtest;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Options of the <code>LoadTest</code>, given as <code>--name=value</code> arguments. Arguments
+ * that are not load test options are passed to the application when it is booted locally.
+ *
+ * <ul>
+ * <li>target: base url of a running instance, the application is booted locally when absent</li>
+ * <li>rate: mean arrival rate in requests per second, arrivals are a Poisson process</li>
+ * <li>duration, warmup: measured and unmeasured seconds</li>
+ * <li>mix: weight of each endpoint, e.g. post:40,put:15,cancel:5,availability:40</li>
+ * <li>hotspot-share, hotspot-days: share of bookings aimed at the first bookable days</li>
+ * <li>burst-at, burst-duration, burst-factor: booking window opening, the rate is multiplied
+ * by the factor during the burst, seconds are counted from the end of the warmup</li>
+ * <li>workers: maximum number of requests in flight</li>
+ * <li>report-dir: directory of the percentile distribution files</li>
+ * </ul>
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+final class LoadTestOptions {
+
+  String target;
+  double rate = 50;
+  int duration = 60;
+  int warmup = 5;
+  Map<Endpoint, Integer> mix = new EnumMap<>(Endpoint.class);
+  double hotspotShare = 0.5;
+  int hotspotDays = 7;
+  int burstAt = 20;
+  int burstDuration = 5;
+  double burstFactor = 10;
+  int workers = 200;
+  String reportDir = "target/loadtest";
+  List<String> applicationArgs = new ArrayList<>();
+
+  private LoadTestOptions() {
+    mix.put(Endpoint.POST, 40);
+    mix.put(Endpoint.PUT, 15);
+    mix.put(Endpoint.CANCEL, 5);
+    mix.put(Endpoint.AVAILABILITY, 40);
+  }
+
+  /**
+   * Parses the command line arguments.
+   *
+   * @param args the <code>String[]</code> arguments.
+   * @return the parsed options.
+   */
+  static LoadTestOptions parse(String[] args) {
+    LoadTestOptions options = new LoadTestOptions();
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      String name = arg.startsWith("--") && separator > 0 ? arg.substring(2, separator) : "";
+      String value = separator > 0 ? arg.substring(separator + 1) : "";
+      switch (name) {
+        case "target":
+          options.target = value;
+          break;
+        case "rate":
+          options.rate = Double.parseDouble(value);
+          break;
+        case "duration":
+          options.duration = Integer.parseInt(value);
+          break;
+        case "warmup":
+          options.warmup = Integer.parseInt(value);
+          break;
+        case "mix":
+          options.mix.clear();
+          for (String weight : value.split(",")) {
+            String[] parts = weight.split(":");
+            options.mix.put(Endpoint.valueOf(parts[0].trim().toUpperCase()),
+                Integer.parseInt(parts[1].trim()));
+          }
+          break;
+        case "hotspot-share":
+          options.hotspotShare = Double.parseDouble(value);
+          break;
+        case "hotspot-days":
+          options.hotspotDays = Integer.parseInt(value);
+          break;
+        case "burst-at":
+          options.burstAt = Integer.parseInt(value);
+          break;
+        case "burst-duration":
+          options.burstDuration = Integer.parseInt(value);
+          break;
+        case "burst-factor":
+          options.burstFactor = Double.parseDouble(value);
+          break;
+        case "workers":
+          options.workers = Integer.parseInt(value);
+          break;
+        case "report-dir":
+          options.reportDir = value;
+          break;
+        default:
+          options.applicationArgs.add(arg);
+      }
+    }
+    return options;
+  }
+
+  /**
+   * Arrival rate at a moment of the run, including the burst.
+   *
+   * @param secondsSinceMeasurement seconds since the end of the warmup, negative during it.
+   * @return the arrival rate in requests per second.
+   */
+  double rateAt(double secondsSinceMeasurement) {
+    boolean inBurst = burstFactor > 0 && secondsSinceMeasurement >= burstAt
+        && secondsSinceMeasurement < burstAt + burstDuration;
+    return inBurst ? rate * burstFactor : rate;
+  }
+}
@@ -0,0 +1,53 @@
+package com.upgrade.campside.controller;
+
+import com.upgrade.campside.controller.dto.ImportResultDTO;
+import com.upgrade.campside.service.ReservationImporter;
+import java.io.IOException;
+import java.io.InputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Rest endpoint for administrative operations, such as the bulk import of historical
+ * reservations.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+  private final ReservationImporter importer;
+
+  /**
+   * Class constructor with AutoWired dependencies injection.
+   */
+  @Autowired
+  public AdminController(ReservationImporter importer) {
+    this.importer = importer;
+  }
+
+  /**
+   * Imports historical reservations from a CSV body, with a header line and one reservation per
+   * line: <code>email,full_name,arrival_date,departure_date[,status[,campsite_id]]</code>. The
+   * booking rules of new reservations do not apply, but overlapping stays on a campsite are
+   * rejected. The body is streamed, so
+   * files of millions of lines are never held in memory.
+   *
+   * @param csv the <code>InputStream</code> of the request body.
+   * @return the number of imported and rejected lines, with the first rejected lines.
+   * @throws IOException the body could not be read
+   */
+  @RequestMapping(value = "/reservations/import", method = RequestMethod.POST,
+      consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+  public ImportResultDTO importReservations(InputStream csv) throws IOException {
+    ImportResultDTO dto = new ImportResultDTO();
+    dto.buildFromEntity(this.importer.importCsv(csv));
+    return dto;
+  }
+}
@@ -0,0 +1,86 @@
+package com.upgrade.campside.controller;
+
+import com.upgrade.campside.controller.dto.CampsiteDTO;
+import com.upgrade.campside.domain.model.Campsite;
+import com.upgrade.campside.exception.CampsiteNotFoundException;
+import com.upgrade.campside.service.CampsiteService;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Rest endpoint for campsite resource. Reservations and availability queries refer to a campsite
+ * by its id.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@RestController
+@RequestMapping("/api/campsite")
+public class CampsiteController {
+
+  private final CampsiteService service;
+
+  /**
+   * Class constructor with AutoWired dependencies injection.
+   */
+  @Autowired
+  public CampsiteController(CampsiteService service) {
+    this.service = service;
+  }
+
+  /**
+   * Creates a new <code>Campsite</code> based on its name, which must be unique. Requires the
+   * ADMIN role.
+   *
+   * @param campsite the <code>CampsiteDTO</code> holding the campsite name.
+   * @return a new campsite.
+   */
+  @RequestMapping(method = RequestMethod.POST)
+  public CampsiteDTO createCampsite(@Valid @RequestBody CampsiteDTO campsite) {
+    return this.parseCampsite(this.service.createCampsite(campsite.getName()));
+  }
+
+  /**
+   * Retrieves every <code>Campsite</code>.
+   *
+   * @return a list of campsites.
+   */
+  @RequestMapping(method = RequestMethod.GET)
+  public List<CampsiteDTO> getCampsites() {
+    return this.service.getCampsites().stream().map(this::parseCampsite)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Retrieves a specific <code>Campsite</code> based on its id.
+   *
+   * @param campsiteId the <code>Long</code> holding the campsite id.
+   * @return the campsite.
+   * @throws CampsiteNotFoundException campsite not found
+   */
+  @RequestMapping(path = "/{campsiteId}", method = RequestMethod.GET)
+  public CampsiteDTO getCampsite(@PathVariable("campsiteId") Long campsiteId)
+      throws CampsiteNotFoundException {
+    return this.parseCampsite(this.service.getCampsite(campsiteId));
+  }
+
+  /**
+   * Parses an entity model Campsite to a CampsiteDTO.
+   *
+   * @param campsite a <code>Campsite</code> instance.
+   * @return the campsite data transfer object.
+   */
+  private CampsiteDTO parseCampsite(Campsite campsite) {
+    CampsiteDTO dto = new CampsiteDTO();
+    dto.buildFromEntity(campsite);
+    return dto;
+  }
+}
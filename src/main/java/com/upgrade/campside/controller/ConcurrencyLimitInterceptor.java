@@ -0,0 +1,82 @@
+package com.upgrade.campside.controller;
+
+import com.upgrade.campside.exception.ServiceOverloadedException;
+import com.upgrade.campside.service.ConcurrencyLimiter;
+import com.upgrade.campside.service.ConcurrencyLimiter.Permit;
+import com.upgrade.campside.service.ReservationMetrics;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Sheds load on the reservation endpoints before it reaches them. Reads (GET) and writes take a
+ * permit from separate <code>ConcurrencyLimiter</code> instances, so a booking storm can not
+ * starve availability queries of permits, nor the other way around. A request without a permit
+ * is rejected with 503 Service Unavailable and a Retry-After header.
+ *
+ * The permit is held until the response is complete, including the asynchronous part of the
+ * reads, so the limiter samples the latency seen by the client. A 503 response, e.g. the
+ * sequencer queue was full, is sampled as a drop.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+public class ConcurrencyLimitInterceptor implements AsyncHandlerInterceptor {
+
+  private static final String PERMIT = ConcurrencyLimitInterceptor.class.getName() + ".PERMIT";
+
+  private final ConcurrencyLimiter readLimiter;
+  private final ConcurrencyLimiter writeLimiter;
+  private final ReservationMetrics metrics;
+
+  /**
+   * <code>ConcurrencyLimitInterceptor</code> constructor.
+   *
+   * @param readLimiter the <code>ConcurrencyLimiter</code> of GET requests.
+   * @param writeLimiter the <code>ConcurrencyLimiter</code> of the other requests.
+   * @param metrics the <code>ReservationMetrics</code> counting the rejections.
+   */
+  public ConcurrencyLimitInterceptor(ConcurrencyLimiter readLimiter,
+      ConcurrencyLimiter writeLimiter, ReservationMetrics metrics) {
+    this.readLimiter = readLimiter;
+    this.writeLimiter = writeLimiter;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+      Object handler) throws ServiceOverloadedException {
+    // The dispatch of an asynchronous result already holds the permit of the request
+    if (request.getAttribute(PERMIT) != null) {
+      return true;
+    }
+
+    ConcurrencyLimiter limiter = HttpMethod.GET.matches(request.getMethod())
+        ? this.readLimiter : this.writeLimiter;
+    try {
+      request.setAttribute(PERMIT, limiter.acquire());
+    } catch (ServiceOverloadedException ex) {
+      this.metrics.recordLimiterRejection(limiter.getName());
+      throw ex;
+    }
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+      Object handler, Exception ex) {
+    Permit permit = (Permit) request.getAttribute(PERMIT);
+    if (permit == null) {
+      return;
+    }
+    request.removeAttribute(PERMIT);
+    if (response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+      permit.onDropped();
+    } else {
+      permit.onSuccess();
+    }
+  }
+}
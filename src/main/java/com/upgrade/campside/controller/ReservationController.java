@@ -1,29 +1,84 @@
 package com.upgrade.campside.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrade.campside.controller.dto.AvailabilityDTO;
+import com.upgrade.campside.controller.dto.BookingResultDTO;
 import com.upgrade.campside.controller.dto.ReservationDTO;
+import com.upgrade.campside.controller.dto.StaySearchDTO;
 import com.upgrade.campside.controller.dto.custom.NewReservation;
+import com.upgrade.campside.controller.dto.custom.NewReservationBatch;
 import com.upgrade.campside.controller.dto.custom.UpdateReservation;
+import com.upgrade.campside.domain.model.Campsite;
+import com.upgrade.campside.domain.model.DateRange;
 import com.upgrade.campside.domain.model.Reservation;
+import com.upgrade.campside.domain.model.ReservationView;
+import com.upgrade.campside.exception.CampsiteNotFoundException;
 import com.upgrade.campside.exception.InvalidReservationDateException;
 import com.upgrade.campside.exception.ReservationNotFoundException;
+import com.upgrade.campside.exception.ServiceOverloadedException;
+import com.upgrade.campside.service.BookingEngine;
+import com.upgrade.campside.service.BookingRequest;
+import com.upgrade.campside.service.CampsiteService;
+import com.upgrade.campside.service.IdempotencyStore;
+import com.upgrade.campside.service.Occupancy;
+import com.upgrade.campside.service.ReservationQueryService;
 import com.upgrade.campside.service.ReservationService;
+import com.upgrade.campside.service.StaySearch;
+import com.upgrade.campside.utils.ReadExecutorConfig;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 import javax.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
- * Rest endpoint for reservation resource, including CRUD and query operations.
+ * Rest endpoint for reservation resource, including CRUD and query operations. Availability
+ * queries and booking lookups are answered by the read model of the
+ * <code>ReservationQueryService</code>, which trails the committed writes by its staleness. Those
+ * it can not answer query the store on the bounded read executor, answered asynchronously so the
+ * servlet thread is released while the query waits or runs.
+ * Responses are JSON by default, or CBOR and Smile, with epoch day dates, when accepted.
+ *
+ * Reservations belong to a campsite. New reservations without a campsite, and availability
+ * queries without the campsite_id parameter, are on the default campsite.
  *
  * @author Olavo Holanda
  * @version 0.1
@@ -33,40 +88,116 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/reservation")
 public class ReservationController {
 
+  static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+  static final MediaType APPLICATION_NDJSON = MediaType.valueOf("application/x-ndjson");
+  static final MediaType TEXT_CSV = MediaType.valueOf("text/csv;charset=UTF-8");
+  static final MediaType APPLICATION_SMILE = MediaType.valueOf("application/x-jackson-smile");
+  static final List<MediaType> REPRESENTATIONS = Arrays.asList(MediaType.APPLICATION_JSON,
+      MediaType.APPLICATION_CBOR, APPLICATION_SMILE);
+  static final String CSV_HEADER =
+      "booking_id,campsite_id,arrival_date,departure_date,status,held_until,owner_id,email,"
+          + "full_name\n";
+  private static final int FLUSH_EVERY = 100;
+  private static final int EXPORT_FLUSH_EVERY = 1000;
+  private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+  private static final long READ_RETRY_AFTER_SECONDS = 1;
+
   private final ReservationService service;
+  private final ReservationQueryService queryService;
+  private final BookingEngine engine;
+  private final ObjectMapper objectMapper;
+  private final Executor readExecutor;
+  private final long readTimeout;
+  private final IdempotencyStore idempotencyStore;
+  private final CampsiteService campsiteService;
+  private final String etagEpoch = Long.toHexString(new SecureRandom().nextLong());
 
   /**
    * Class constructor with AutoWired dependencies injection.
    */
   @Autowired
-  public ReservationController(ReservationService service) {
+  public ReservationController(ReservationService service, ReservationQueryService queryService,
+      BookingEngine engine,
+      ObjectMapper objectMapper,
+      @Qualifier(ReadExecutorConfig.READ_EXECUTOR) Executor readExecutor,
+      @Value("${campside.read.timeout:30000}") long readTimeout,
+      IdempotencyStore idempotencyStore, CampsiteService campsiteService) {
     this.service = service;
+    this.queryService = queryService;
+    this.engine = engine;
+    this.objectMapper = objectMapper;
+    this.readExecutor = readExecutor;
+    this.readTimeout = readTimeout;
+    this.idempotencyStore = idempotencyStore;
+    this.campsiteService = campsiteService;
   }
 
   /**
-   * Creates a new <code>Reservation</code> based on the person email, full name, arrival and
-   * departure dates. By default the reservation has a CONFIRMED status.
+   * Creates a new <code>Reservation</code> based on the campsite, person email, full name, arrival
+   * and departure dates. By default the reservation has a CONFIRMED status.
    *
    * Constraints: - Reservations can be for a 3 day max; - Arrival date must be at least one day
    * from now; - Arrival date must be up to one month from now; - Reservations can not overlap;
    *
+   * A request retried with the same Idempotency-Key header gets the original response back.
+   *
+   * @param idempotencyKey the optional <code>String</code> Idempotency-Key header.
    * @param reservation the <code>NewReservation</code> holding the reservation info.
    * @return a new reservation.
    * @throws InvalidReservationDateException the dates constraints fail
+   * @throws CampsiteNotFoundException campsite not found
+   * @throws ServiceOverloadedException too many pending writes
    */
   @RequestMapping(method = RequestMethod.POST)
-  public ReservationDTO createReservation(@Valid @RequestBody NewReservation reservation)
-      throws InvalidReservationDateException {
+  public ReservationDTO createReservation(
+      @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+      @Valid @RequestBody NewReservation reservation)
+      throws InvalidReservationDateException, CampsiteNotFoundException,
+      ServiceOverloadedException {
 
+    Long campsiteId = this.resolveCampsite(reservation.getCampsiteId());
     String email = reservation.getOwner().getEmail();
     String fullName = reservation.getOwner().getFullName();
     LocalDate arrival = reservation.getArrivalDate();
     LocalDate departure = reservation.getDepartureDate();
 
-    Reservation newReservation = this.service
-        .createReservation(email, fullName, arrival, departure);
+    try {
+      return this.idempotent("create", idempotencyKey, reservation,
+          () -> this.parseReservation(this.engine
+              .createReservation(campsiteId, email, fullName, arrival, departure)));
+    } catch (ReservationNotFoundException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
 
-    return this.parseReservation(newReservation);
+  /**
+   * Creates many new reservations at once. Each reservation is validated with the same constraints
+   * as a single one, and also against the reservations before it in the batch, which is first
+   * come first served. Accepted reservations are committed together.
+   *
+   * @param batch the <code>NewReservationBatch</code> holding the reservations info.
+   * @return the result of each reservation, in the same order: CREATED with the reservation, or
+   *     REJECTED with the reason.
+   * @throws CampsiteNotFoundException a campsite of the batch was not found
+   */
+  @RequestMapping(path = "/batch", method = RequestMethod.POST)
+  public List<BookingResultDTO> createReservations(
+      @Valid @RequestBody NewReservationBatch batch) throws CampsiteNotFoundException {
+
+    List<BookingRequest> requests = new ArrayList<>(batch.getReservations().size());
+    for (NewReservation reservation : batch.getReservations()) {
+      requests.add(new BookingRequest(this.resolveCampsite(reservation.getCampsiteId()),
+          reservation.getOwner().getEmail(), reservation.getOwner().getFullName(),
+          reservation.getArrivalDate(), reservation.getDepartureDate()));
+    }
+
+    return this.service.createReservations(requests).stream()
+        .map(result -> {
+          BookingResultDTO dto = new BookingResultDTO();
+          dto.buildFromEntity(result);
+          return dto;
+        })
+        .collect(Collectors.toList());
   }
 
   /**
@@ -76,23 +207,29 @@ public class ReservationController {
    * Constraints: - Reservations can be for a 3 day max; - Arrival date must be at least one day
    * from now; - Arrival date must be up to one month from now; - Reservations can not overlap;
    *
+   * A request retried with the same Idempotency-Key header gets the original response back.
+   *
+   * @param idempotencyKey the optional <code>String</code> Idempotency-Key header.
    * @param reservation the <code>UpdateReservation</code> holding the reservation info.
    * @return an updated reservation.
    * @throws InvalidReservationDateException the dates constraints fail
    * @throws ReservationNotFoundException reservation not found
+   * @throws ServiceOverloadedException too many pending writes
    */
   @RequestMapping(method = RequestMethod.PUT)
-  public ReservationDTO updateReservation(@Valid @RequestBody UpdateReservation reservation)
-      throws ReservationNotFoundException, InvalidReservationDateException {
+  public ReservationDTO updateReservation(
+      @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+      @Valid @RequestBody UpdateReservation reservation)
+      throws ReservationNotFoundException, InvalidReservationDateException,
+      ServiceOverloadedException {
 
     Long bookingId = reservation.getBookingId();
     LocalDate newArrival = reservation.getArrivalDate();
     LocalDate newDeparture = reservation.getDepartureDate();
 
-    Reservation updatedReservation = this.service
-        .updateReservationDates(bookingId, newArrival, newDeparture);
-
-    return this.parseReservation(updatedReservation);
+    return this.idempotent("update", idempotencyKey, reservation,
+        () -> this.parseReservation(this.engine
+            .updateReservationDates(bookingId, newArrival, newDeparture)));
   }
 
   /**
@@ -101,30 +238,467 @@ public class ReservationController {
    * @param bookingId the <code>String</code> holding the person's full name.
    * @return an updated reservation.
    * @throws ReservationNotFoundException reservation not found
+   * @throws ServiceOverloadedException too many pending writes
    */
   @RequestMapping(path = "/cancel/{bookingId}", method = RequestMethod.PUT)
   public ReservationDTO cancelReservation(@PathVariable("bookingId") Long bookingId)
-      throws ReservationNotFoundException {
+      throws ReservationNotFoundException, ServiceOverloadedException {
 
-    Reservation updatedReservation = this.service
+    Reservation updatedReservation = this.engine
         .cancelReservation(bookingId);
     return this.parseReservation(updatedReservation);
   }
 
   /**
-   * Queries the availability of the Campside. yyyy-MM-dd
+   * Holds a campsite for a while, e.g. during the payment, based on the campsite, person email,
+   * full name, arrival and departure dates. The reservation has a HELD status and blocks its nights
+   * until it is confirmed, released, or its hold expires.
+   *
+   * Constraints: - Reservations can be for a 3 day max; - Arrival date must be at least one day
+   * from now; - Arrival date must be up to one month from now; - Reservations can not overlap;
+   *
+   * A request retried with the same Idempotency-Key header gets the original response back.
+   *
+   * @param idempotencyKey the optional <code>String</code> Idempotency-Key header.
+   * @param reservation the <code>NewReservation</code> holding the reservation info.
+   * @return a new held reservation, with the instant its hold expires.
+   * @throws InvalidReservationDateException the dates constraints fail
+   * @throws CampsiteNotFoundException campsite not found
+   * @throws ServiceOverloadedException too many pending writes
+   */
+  @RequestMapping(path = "/hold", method = RequestMethod.POST)
+  public ReservationDTO holdReservation(
+      @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+      @Valid @RequestBody NewReservation reservation)
+      throws InvalidReservationDateException, CampsiteNotFoundException,
+      ServiceOverloadedException {
+
+    Long campsiteId = this.resolveCampsite(reservation.getCampsiteId());
+    String email = reservation.getOwner().getEmail();
+    String fullName = reservation.getOwner().getFullName();
+    LocalDate arrival = reservation.getArrivalDate();
+    LocalDate departure = reservation.getDepartureDate();
+
+    try {
+      return this.idempotent("hold", idempotencyKey, reservation,
+          () -> this.parseReservation(this.engine
+              .holdReservation(campsiteId, email, fullName, arrival, departure)));
+    } catch (ReservationNotFoundException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  /**
+   * Confirms a held <code>Reservation</code> based on its booking id, before its hold expires.
+   *
+   * @param bookingId the <code>Long</code> holding the booking id.
+   * @return the confirmed reservation.
+   * @throws InvalidReservationDateException the reservation is not held or its hold expired
+   * @throws ReservationNotFoundException reservation not found
+   * @throws ServiceOverloadedException too many pending writes
+   */
+  @RequestMapping(path = "/confirm/{bookingId}", method = RequestMethod.PUT)
+  public ReservationDTO confirmHold(@PathVariable("bookingId") Long bookingId)
+      throws InvalidReservationDateException, ReservationNotFoundException,
+      ServiceOverloadedException {
+    return this.parseReservation(this.engine.confirmHold(bookingId));
+  }
+
+  /**
+   * Releases a held <code>Reservation</code> based on its booking id, freeing its nights.
+   *
+   * @param bookingId the <code>Long</code> holding the booking id.
+   * @return the canceled reservation.
+   * @throws InvalidReservationDateException the reservation is confirmed
+   * @throws ReservationNotFoundException reservation not found
+   * @throws ServiceOverloadedException too many pending writes
+   */
+  @RequestMapping(path = "/release/{bookingId}", method = RequestMethod.PUT)
+  public ReservationDTO releaseHold(@PathVariable("bookingId") Long bookingId)
+      throws InvalidReservationDateException, ReservationNotFoundException,
+      ServiceOverloadedException {
+    return this.parseReservation(this.engine.releaseHold(bookingId));
+  }
+
+  /**
+   * Retrieves a specific <code>Reservation</code> based on its booking id. A projected reservation
+   * is answered from the read model, on the request thread, one not projected yet is looked up in
+   * the store on the read executor.
    *
+   * @param bookingId the <code>Long</code> holding the booking id.
+   * @return the <code>DeferredResult</code> of the reservation, already set when projected.
+   * @throws ServiceOverloadedException too many pending store queries
+   */
+  @RequestMapping(path = "/{bookingId}", method = RequestMethod.GET)
+  public DeferredResult<ResponseEntity<ReservationDTO>> getReservation(
+      @PathVariable("bookingId") Long bookingId) throws ServiceOverloadedException {
+
+    Optional<ReservationView> projected = this.queryService.findProjectedView(bookingId);
+    if (projected.isPresent()) {
+      return this.answer(this.parseView(projected.get()));
+    }
+    return this.read(() -> this.parseView(this.queryService.getReservationView(bookingId)));
+  }
+
+  /**
+   * Queries the availability of a campsite. yyyy-MM-dd
+   *
+   * A period covered by the read model is answered from it, a period starting before it, in the
+   * past, is read from the store on the read executor.
+   *
+   * @param campsiteId the <code>Long</code> campsite id, the default campsite if absent.
    * @param startDate an <code>Optional<LocalDate></></code> with the start date.
    * @param endDate an <code>Optional<LocalDate></></code> with the end date.
-   * @return a list of reservations during this time frame
+   * @return the <code>DeferredResult</code> of the reservations during this time frame, already
+   *     set when answered from the read model.
+   * @throws CampsiteNotFoundException campsite not found
+   * @throws ServiceOverloadedException too many pending store queries
    */
   @RequestMapping(path = "/availability", method = RequestMethod.GET)
-  public List<ReservationDTO> getAvailability(
+  public DeferredResult<ResponseEntity<List<ReservationDTO>>> getAvailability(
+      @RequestParam(value = "campsite_id", required = false) Long campsiteId,
       @RequestParam(value = "start_date", required = false)
       @DateTimeFormat(iso = ISO.DATE) LocalDate startDate,
       @RequestParam(value = "end_date", required = false)
-      @DateTimeFormat(iso = ISO.DATE) LocalDate endDate) {
+      @DateTimeFormat(iso = ISO.DATE) LocalDate endDate)
+      throws CampsiteNotFoundException, ServiceOverloadedException {
+
+    Long campsite = this.resolveCampsite(campsiteId);
+    DateRange period = this.resolvePeriod(startDate, endDate);
+    Supplier<List<ReservationDTO>> query = () -> this.queryService
+        .getAvailability(campsite, period.getStart(), period.getEnd())
+        .stream().map(this::parseView).collect(Collectors.toList());
+    if (this.queryService.isProjected(period.getStart())) {
+      return this.answer(query.get());
+    }
+    return this.read(query::get);
+  }
+
+  /**
+   * Queries the availability of a campsite, streaming the reservations as they are read from the
+   * database instead of building the whole list first. Meant for long time frames. yyyy-MM-dd
+   *
+   * @param campsiteId the <code>Long</code> campsite id, the default campsite if absent.
+   * @param startDate an <code>Optional<LocalDate></></code> with the start date.
+   * @param endDate an <code>Optional<LocalDate></></code> with the end date.
+   * @param format the <code>String</code> output format, json for a JSON array (default) or
+   *     ndjson for one reservation per line.
+   * @return the reservations during this time frame, written incrementally
+   * @throws CampsiteNotFoundException campsite not found
+   */
+  @RequestMapping(path = "/availability/stream", method = RequestMethod.GET)
+  public ResponseEntity<StreamingResponseBody> streamAvailability(
+      @RequestParam(value = "campsite_id", required = false) Long campsiteId,
+      @RequestParam(value = "start_date", required = false)
+      @DateTimeFormat(iso = ISO.DATE) LocalDate startDate,
+      @RequestParam(value = "end_date", required = false)
+      @DateTimeFormat(iso = ISO.DATE) LocalDate endDate,
+      @RequestParam(value = "format", defaultValue = "json") String format)
+      throws CampsiteNotFoundException {
+
+    Long campsite = this.resolveCampsite(campsiteId);
+    DateRange period = this.resolvePeriod(startDate, endDate);
+    boolean ndjson = "ndjson".equalsIgnoreCase(format);
+
+    StreamingResponseBody body = out -> {
+      try (JsonGenerator generator = this.objectMapper.getFactory().createGenerator(out)) {
+        if (ndjson) {
+          generator.setRootValueSeparator(null);
+        } else {
+          generator.writeStartArray();
+        }
+
+        int[] written = {0};
+        this.service.streamAvailability(campsite, period.getStart(), period.getEnd(),
+            reservation -> {
+              try {
+                generator.writeObject(this.parseView(reservation));
+                if (ndjson) {
+                  generator.writeRaw('\n');
+                }
+                if (++written[0] % FLUSH_EVERY == 0) {
+                  generator.flush();
+                }
+              } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+              }
+            });
 
+        if (!ndjson) {
+          generator.writeEndArray();
+        }
+      }
+    };
+
+    return ResponseEntity.ok()
+        .contentType(ndjson ? APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+        .body(body);
+  }
+
+  /**
+   * Exports every reservation in a time frame, whatever its status and campsite, with its owner,
+   * e.g. for reconciliation. yyyy-MM-dd
+   *
+   * The export holds the email and name of every owner, so it requires the ADMIN role, as the
+   * administrative endpoints do. Reservations are written as they are read from a forward-only
+   * database cursor and flushed to the client every thousand reservations, so memory stays
+   * constant whatever the size of the export. The body is gzip compressed on the fly when the
+   * request accepts it.
+   *
+   * @param startDate an <code>Optional<LocalDate></></code> with the start date.
+   * @param endDate an <code>Optional<LocalDate></></code> with the end date.
+   * @param format the <code>String</code> output format, csv for comma separated values with a
+   *     header line (default) or ndjson for one reservation per line.
+   * @param acceptEncoding the optional <code>String</code> Accept-Encoding header.
+   * @return the reservations during this time frame, written incrementally
+   */
+  @RequestMapping(path = "/export", method = RequestMethod.GET)
+  public ResponseEntity<StreamingResponseBody> exportReservations(
+      @RequestParam(value = "start_date", required = false)
+      @DateTimeFormat(iso = ISO.DATE) LocalDate startDate,
+      @RequestParam(value = "end_date", required = false)
+      @DateTimeFormat(iso = ISO.DATE) LocalDate endDate,
+      @RequestParam(value = "format", defaultValue = "csv") String format,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+          String acceptEncoding) {
+
+    DateRange period = this.resolvePeriod(startDate, endDate);
+    boolean ndjson = "ndjson".equalsIgnoreCase(format);
+    boolean gzip = acceptsGzip(acceptEncoding);
+
+    StreamingResponseBody body = out -> {
+      OutputStream target = gzip ? new GZIPOutputStream(out, EXPORT_BUFFER_SIZE, true) : out;
+      try (Writer writer = new BufferedWriter(
+          new OutputStreamWriter(target, StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE)) {
+        if (!ndjson) {
+          writer.write(CSV_HEADER);
+        }
+
+        int[] written = {0};
+        this.service.exportReservations(period.getStart(), period.getEnd(), reservation -> {
+          try {
+            if (ndjson) {
+              writer.write(this.objectMapper.writeValueAsString(this.parseView(reservation)));
+              writer.write('\n');
+            } else {
+              this.writeCsvLine(writer, reservation);
+            }
+            if (++written[0] % EXPORT_FLUSH_EVERY == 0) {
+              writer.flush();
+            }
+          } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+          }
+        });
+      }
+    };
+
+    String fileName = String.format("reservations-%s-%s.%s", period.getStart(), period.getEnd(),
+        ndjson ? "ndjson" : "csv");
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+        .contentType(ndjson ? APPLICATION_NDJSON : TEXT_CSV)
+        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (gzip) {
+      response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+    return response.body(body);
+  }
+
+  /**
+   * Queries the free nights of a campsite, as run-length encoded free ranges. yyyy-MM-dd
+   *
+   * The response carries the campsite calendar version as a strong ETag, a request with a matching
+   * If-None-Match header gets a 304 Not Modified without any lookup. Calendar versions restart on
+   * every boot and are counted by each instance, so the tag is prefixed with a random epoch drawn
+   * at startup: a tag issued by another instance, or before a restart, never matches. The tag also
+   * names the representation, JSON, CBOR or Smile, negotiated from the Accept header.
+   *
+   * @param campsiteId the <code>Long</code> campsite id, the default campsite if absent.
+   * @param startDate an <code>Optional<LocalDate></></code> with the first night.
+   * @param endDate an <code>Optional<LocalDate></></code> with the end date, exclusive.
+   * @param request the <code>WebRequest</code> with the conditional headers.
+   * @return the free ranges during this time frame, or 304 if unchanged
+   * @throws CampsiteNotFoundException campsite not found
+   */
+  @RequestMapping(path = "/availability/free", method = RequestMethod.GET)
+  public ResponseEntity<AvailabilityDTO> getFreeRanges(
+      @RequestParam(value = "campsite_id", required = false) Long campsiteId,
+      @RequestParam(value = "start_date", required = false)
+      @DateTimeFormat(iso = ISO.DATE) LocalDate startDate,
+      @RequestParam(value = "end_date", required = false)
+      @DateTimeFormat(iso = ISO.DATE) LocalDate endDate,
+      WebRequest request) throws CampsiteNotFoundException {
+
+    Long campsite = this.resolveCampsite(campsiteId);
+    DateRange period = this.resolvePeriod(startDate, endDate);
+    if (request.checkNotModified(
+        this.buildETag(request, campsite, this.queryService.getCalendarVersion(campsite),
+            period))) {
+      return null;
+    }
+
+    Occupancy occupancy = this.queryService.getOccupancy(campsite, period);
+    AvailabilityDTO dto = new AvailabilityDTO();
+    dto.buildFromEntity(occupancy);
+    return ResponseEntity.ok()
+        .eTag(this.buildETag(request, campsite, occupancy.getVersion(), period))
+        .cacheControl(CacheControl.noCache())
+        .varyBy(HttpHeaders.ACCEPT)
+        .body(dto);
+  }
+
+  /**
+   * Searches every arrival date where a stay of the given number of nights can be reserved right
+   * now on a campsite, inside a window. The same rules as a new reservation apply: the arrival is
+   * at least one day from now and up to one month from now, the stay is 1 to 3 nights long and
+   * free. Without dates, the window covers every bookable stay. yyyy-MM-dd
+   *
+   * The response carries the campsite calendar version as a strong ETag, a request with a matching
+   * If-None-Match header gets a 304 Not Modified without any search. As for the free ranges, the
+   * tag is prefixed with the random epoch of this instance and names the representation. It holds
+   * the window actually searched, narrowed to the arrivals bookable today, so a tag issued on an
+   * earlier day never matches once the bookable arrivals have moved.
+   *
+   * @param campsiteId the <code>Long</code> campsite id, the default campsite if absent.
+   * @param startDate an <code>Optional<LocalDate></></code> with the first night of the window.
+   * @param endDate an <code>Optional<LocalDate></></code> with the end of the window, exclusive.
+   * @param nights the number of nights of the stay.
+   * @param request the <code>WebRequest</code> with the conditional headers.
+   * @return the feasible arrival dates, or 304 if unchanged
+   * @throws InvalidReservationDateException the number of nights is not between 1 and 3
+   * @throws CampsiteNotFoundException campsite not found
+   */
+  @RequestMapping(path = "/availability/stays", method = RequestMethod.GET)
+  public ResponseEntity<StaySearchDTO> searchStays(
+      @RequestParam(value = "campsite_id", required = false) Long campsiteId,
+      @RequestParam(value = "start_date", required = false)
+      @DateTimeFormat(iso = ISO.DATE) LocalDate startDate,
+      @RequestParam(value = "end_date", required = false)
+      @DateTimeFormat(iso = ISO.DATE) LocalDate endDate,
+      @RequestParam(value = "nights") int nights,
+      WebRequest request) throws InvalidReservationDateException, CampsiteNotFoundException {
+
+    Long campsite = this.resolveCampsite(campsiteId);
+    DateRange requested = startDate == null && endDate == null
+        ? new DateRange(LocalDate.now(), LocalDate.now().plusMonths(1).plusDays(nights))
+        : this.resolvePeriod(startDate, endDate);
+    DateRange window =
+        this.service.resolveStayWindow(requested.getStart(), requested.getEnd(), nights);
+    if (request.checkNotModified(
+        this.buildETag(request, campsite, this.service.getCalendarVersion(campsite), window,
+            nights))) {
+      return null;
+    }
+
+    StaySearch search = this.service
+        .findFreeStays(campsite, window.getStart(), window.getEnd(), nights);
+    StaySearchDTO dto = new StaySearchDTO();
+    dto.buildFromEntity(search);
+    return ResponseEntity.ok()
+        .eTag(this.buildETag(request, campsite, search.getVersion(), search.getWindow(), nights))
+        .cacheControl(CacheControl.noCache())
+        .varyBy(HttpHeaders.ACCEPT)
+        .body(dto);
+  }
+
+  /**
+   * Runs a write at most once per Idempotency-Key header, or every time without the header. The
+   * key is bound to the operation and the request body it was first used with.
+   *
+   * @param operation the <code>String</code> write operation.
+   * @param idempotencyKey the <code>String</code> Idempotency-Key header, optional.
+   * @param request the request body.
+   * @param write the <code>Write</code> producing the response.
+   * @return the response of the first request with this key.
+   */
+  private ReservationDTO idempotent(String operation, String idempotencyKey, Object request,
+      IdempotencyStore.Write<ReservationDTO> write) throws InvalidReservationDateException,
+      ReservationNotFoundException, ServiceOverloadedException {
+    if (idempotencyKey == null) {
+      return write.run();
+    }
+    try {
+      return this.idempotencyStore.execute(operation + ":" + idempotencyKey,
+          this.objectMapper.writeValueAsString(request), write);
+    } catch (JsonProcessingException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  /**
+   * Wraps an answer computed on the request thread, e.g. from the read model, in a
+   * <code>DeferredResult</code> already set, so handlers declare a single response type whether
+   * they answer at once or from the store. Spring MVC dispatches a result already set right away,
+   * without any executor.
+   *
+   * @param body the answer.
+   * @return the <code>DeferredResult</code> set with the answer.
+   */
+  private <T> DeferredResult<ResponseEntity<T>> answer(T body) {
+    DeferredResult<ResponseEntity<T>> result = new DeferredResult<>();
+    result.setResult(ResponseEntity.ok(body));
+    return result;
+  }
+
+  /**
+   * Runs a store query on the read executor, without waiting for it. The executor bounds the
+   * store queries run at once, so a crowd of pollers of past periods can not take every pooled
+   * connection needed by bookings, and the servlet thread is released until the query completes.
+   * A query not completed within the read timeout is answered with 503, one failing with the
+   * error of the query.
+   *
+   * @param query the <code>Callable</code> running the query.
+   * @return the <code>DeferredResult</code> of the query.
+   * @throws ServiceOverloadedException too many pending store queries
+   */
+  private <T> DeferredResult<ResponseEntity<T>> read(Callable<T> query)
+      throws ServiceOverloadedException {
+    DeferredResult<ResponseEntity<T>> result = new DeferredResult<>(this.readTimeout);
+    result.onTimeout(() -> result.setErrorResult(new ServiceOverloadedException(
+        "Too many pending queries. Please try again later.", READ_RETRY_AFTER_SECONDS)));
+    try {
+      this.readExecutor.execute(() -> {
+        if (result.isSetOrExpired()) {
+          return;
+        }
+        try {
+          result.setResult(ResponseEntity.ok(query.call()));
+        } catch (Exception ex) {
+          result.setErrorResult(ex);
+        }
+      });
+    } catch (RejectedExecutionException ex) {
+      throw new ServiceOverloadedException("Too many pending queries. Please try again later.",
+          READ_RETRY_AFTER_SECONDS);
+    }
+    return result;
+  }
+
+  /**
+   * Resolves the campsite of a request, the default campsite when it is not given.
+   *
+   * @param campsiteId the <code>Long</code> campsite id, optional.
+   * @return the <code>Long</code> id of an existing campsite.
+   * @throws CampsiteNotFoundException campsite not found
+   */
+  private Long resolveCampsite(Long campsiteId) throws CampsiteNotFoundException {
+    if (campsiteId == null) {
+      return Campsite.DEFAULT_ID;
+    }
+    this.campsiteService.checkExists(campsiteId);
+    return campsiteId;
+  }
+
+  /**
+   * Resolves the queried period from the optional request dates. By default the period is one
+   * month long.
+   *
+   * @param startDate the <code>LocalDate</code> start date, optional.
+   * @param endDate the <code>LocalDate</code> end date, optional.
+   * @return the <code>DateRange</code> to query.
+   */
+  private DateRange resolvePeriod(LocalDate startDate, LocalDate endDate) {
     Optional<LocalDate> optStart = Optional.ofNullable(startDate);
     Optional<LocalDate> optEnd = Optional.ofNullable(endDate);
 
@@ -140,10 +714,68 @@ public class ReservationController {
       startDate = endDate.minusMonths(1);
     } // if both dates are present, do nothing just use them
 
-    List<Reservation> reservationList = this.service
-        .getAvailability(startDate, endDate);
+    return new DateRange(startDate, endDate);
+  }
+
+  /**
+   * Builds the strong ETag of a campsite period at a calendar version of this instance, in the
+   * representation accepted by the request.
+   *
+   * @param request the <code>WebRequest</code> with the Accept header.
+   * @param campsiteId the <code>Long</code> campsite id queried.
+   * @param version the campsite calendar version.
+   * @param period the <code>DateRange</code> queried.
+   * @return the quoted ETag.
+   */
+  private String buildETag(WebRequest request, Long campsiteId, long version, DateRange period) {
+    return String.format("\"%s-%s-%d-%d-%s-%s\"", this.etagEpoch, this.representation(request),
+        campsiteId, version, period.getStart(), period.getEnd());
+  }
+
+  /**
+   * Builds the strong ETag of a campsite stay search at a calendar version of this instance, in
+   * the representation accepted by the request.
+   *
+   * @param request the <code>WebRequest</code> with the Accept header.
+   * @param campsiteId the <code>Long</code> campsite id searched.
+   * @param version the campsite calendar version.
+   * @param window the <code>DateRange</code> searched, narrowed to the bookable arrivals.
+   * @param nights the number of nights searched.
+   * @return the quoted ETag.
+   */
+  private String buildETag(WebRequest request, Long campsiteId, long version, DateRange window,
+      int nights) {
+    return String.format("\"%s-%s-%d-%d-%s-%s-%d\"", this.etagEpoch,
+        this.representation(request), campsiteId, version, window.getStart(), window.getEnd(),
+        nights);
+  }
 
-    return reservationList.stream().map(this::parseReservation).collect(Collectors.toList());
+  /**
+   * Finds the representation a request gets, the first of JSON, CBOR and Smile matched by its
+   * most preferred Accept media type, as the message converters choose it. JSON without, or with
+   * an invalid, Accept header.
+   *
+   * @param request the <code>WebRequest</code> with the Accept header.
+   * @return the <code>String</code> subtype of the representation.
+   */
+  private String representation(WebRequest request) {
+    String accept = request.getHeader(HttpHeaders.ACCEPT);
+    if (accept != null) {
+      try {
+        List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType type : accepted) {
+          for (MediaType representation : REPRESENTATIONS) {
+            if (type.getQualityValue() > 0 && type.includes(representation)) {
+              return representation.getSubtype();
+            }
+          }
+        }
+      } catch (InvalidMediaTypeException ex) {
+        return MediaType.APPLICATION_JSON.getSubtype();
+      }
+    }
+    return MediaType.APPLICATION_JSON.getSubtype();
   }
 
   /**
@@ -157,4 +789,94 @@ public class ReservationController {
     dto.buildFromEntity(reservation);
     return dto;
   }
+
+  /**
+   * Writes a reservation as a CSV line, in the order of the <code>CSV_HEADER</code> columns.
+   *
+   * @param writer the <code>Writer</code> of the export.
+   * @param view the <code>ReservationView</code> to write.
+   */
+  private void writeCsvLine(Writer writer, ReservationView view) throws IOException {
+    writer.write(String.valueOf(view.getBookingId()));
+    writer.write(',');
+    writer.write(String.valueOf(view.getCampsiteId()));
+    writer.write(',');
+    writer.write(view.getArrivalDate().toString());
+    writer.write(',');
+    writer.write(view.getDepartureDate().toString());
+    writer.write(',');
+    writer.write(view.getStatus().name());
+    writer.write(',');
+    writer.write(view.getHeldUntil() == null ? "" : view.getHeldUntil().toString());
+    writer.write(',');
+    writer.write(String.valueOf(view.getOwnerId()));
+    writer.write(',');
+    writer.write(csvField(view.getOwnerEmail()));
+    writer.write(',');
+    writer.write(csvField(view.getOwnerFullName()));
+    writer.write('\n');
+  }
+
+  /**
+   * Tells if an Accept-Encoding header accepts gzip: gzip, or else the * wildcard, listed with a
+   * quality above zero. A coding with <code>q=0</code> is refused.
+   *
+   * @param acceptEncoding the optional <code>String</code> Accept-Encoding header.
+   * @return true if the response can be gzip compressed.
+   */
+  static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+
+    Double gzip = null;
+    Double any = null;
+    for (String element : acceptEncoding.split(",")) {
+      String[] parts = element.split(";");
+      String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+      double quality = 1;
+      for (int i = 1; i < parts.length; i++) {
+        String parameter = parts[i].trim().toLowerCase(Locale.ROOT);
+        if (parameter.startsWith("q=")) {
+          try {
+            quality = Double.parseDouble(parameter.substring(2).trim());
+          } catch (NumberFormatException ex) {
+            quality = 0;
+          }
+        }
+      }
+      if ("gzip".equals(coding) || "x-gzip".equals(coding)) {
+        gzip = quality;
+      } else if ("*".equals(coding)) {
+        any = quality;
+      }
+    }
+    return gzip != null ? gzip > 0 : any != null && any > 0;
+  }
+
+  /**
+   * Quotes a CSV field holding a comma, a quote or a line break, doubling its quotes.
+   *
+   * @param value the <code>String</code> field.
+   * @return the field, quoted if needed.
+   */
+  static String csvField(String value) {
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+        && value.indexOf('\r') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+
+  /**
+   * Parses a read-only ReservationView projection to a ReservationDTO.
+   *
+   * @param view a <code>ReservationView</code> instance.
+   * @return the reservation data transfer object.
+   */
+  private ReservationDTO parseView(ReservationView view) {
+    ReservationDTO dto = new ReservationDTO();
+    dto.buildFromView(view);
+    return dto;
+  }
 }
@@ -0,0 +1,44 @@
+package com.upgrade.campside.controller.dto;
+
+import com.upgrade.campside.domain.model.DateRange;
+import com.upgrade.campside.service.Occupancy;
+import java.time.LocalDate;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Data Transfer Object for the Campside availability in a period. Instead of listing every
+ * reservation it lists the free ranges of nights, run-length encoded: a free range from start to
+ * end means every stay arriving at or after start and leaving at or before end is free.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Getter
+public class AvailabilityDTO implements DTOMapper<Occupancy> {
+
+  private LocalDate startDate;
+  private LocalDate endDate;
+  private long version;
+  private List<DateRange> free;
+
+  @Override
+  public String toString() {
+    return String.format("AvailabilityDTO[start='%s', end='%s', version=%d, free=%s]",
+        startDate, endDate, version, free);
+  }
+
+  /**
+   * Fills the DTO with information from the <code>Occupancy</code> snapshot.
+   *
+   * @param occupancy the <code>Occupancy</code> snapshot
+   */
+  @Override
+  public void buildFromEntity(Occupancy occupancy) {
+    this.startDate = occupancy.getPeriod().getStart();
+    this.endDate = occupancy.getPeriod().getEnd();
+    this.version = occupancy.getVersion();
+    this.free = occupancy.getFreeRanges();
+  }
+}
@@ -0,0 +1,244 @@
+package com.upgrade.campside.controller.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.upgrade.campside.domain.model.DateRange;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Jackson module of the binary representations (CBOR and Smile) of the DTOs. They have the same
+ * fields as the JSON representation, but dates are written as epoch days and instants as epoch
+ * milliseconds, which binary formats encode in a few bytes instead of an ISO string.
+ *
+ * The DTOs of the hot read endpoints, <code>ReservationDTO</code>, <code>PersonDTO</code>,
+ * <code>AvailabilityDTO</code> and <code>StaySearchDTO</code>, are written by hand field by
+ * field, without going through the reflective bean serializer. Dates are read back from epoch days
+ * or ISO strings.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+public class BinaryDTOModule extends SimpleModule {
+
+  /**
+   * <code>BinaryDTOModule</code> constructor, registers the serializers of the binary formats.
+   */
+  public BinaryDTOModule() {
+    super(BinaryDTOModule.class.getSimpleName());
+    addSerializer(LocalDate.class, new EpochDaySerializer());
+    addDeserializer(LocalDate.class, new EpochDayDeserializer());
+    addSerializer(Instant.class, new EpochMilliSerializer());
+    addSerializer(ReservationDTO.class, new ReservationSerializer());
+    addSerializer(PersonDTO.class, new PersonSerializer());
+    addSerializer(AvailabilityDTO.class, new AvailabilitySerializer());
+    addSerializer(DateRange.class, new DateRangeSerializer());
+    addSerializer(StaySearchDTO.class, new StaySearchSerializer());
+  }
+
+  private static void writeEpochDayField(JsonGenerator gen, String name, LocalDate date)
+      throws IOException {
+    if (date == null) {
+      gen.writeNullField(name);
+    } else {
+      gen.writeNumberField(name, date.toEpochDay());
+    }
+  }
+
+  private static void writeLongField(JsonGenerator gen, String name, Long value)
+      throws IOException {
+    if (value == null) {
+      gen.writeNullField(name);
+    } else {
+      gen.writeNumberField(name, value);
+    }
+  }
+
+  private static void writePerson(JsonGenerator gen, PersonDTO person) throws IOException {
+    gen.writeStartObject();
+    writeLongField(gen, "id", person.getId());
+    gen.writeStringField("email", person.getEmail());
+    gen.writeStringField("fullName", person.getFullName());
+    gen.writeEndObject();
+  }
+
+  private static void writeDateRange(JsonGenerator gen, DateRange range) throws IOException {
+    gen.writeStartObject();
+    writeEpochDayField(gen, "start", range.getStart());
+    writeEpochDayField(gen, "end", range.getEnd());
+    gen.writeNumberField("nights", range.getNights());
+    gen.writeEndObject();
+  }
+
+  static final class EpochDaySerializer extends StdSerializer<LocalDate> {
+
+    EpochDaySerializer() {
+      super(LocalDate.class);
+    }
+
+    @Override
+    public void serialize(LocalDate date, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      gen.writeNumber(date.toEpochDay());
+    }
+  }
+
+  static final class EpochDayDeserializer extends StdDeserializer<LocalDate> {
+
+    EpochDayDeserializer() {
+      super(LocalDate.class);
+    }
+
+    @Override
+    public LocalDate deserialize(JsonParser parser, DeserializationContext context)
+        throws IOException {
+      if (parser.hasToken(JsonToken.VALUE_NUMBER_INT)) {
+        return LocalDate.ofEpochDay(parser.getLongValue());
+      }
+      if (parser.hasToken(JsonToken.VALUE_STRING)) {
+        String text = parser.getText().trim();
+        try {
+          return LocalDate.parse(text);
+        } catch (DateTimeParseException ex) {
+          return (LocalDate) context.handleWeirdStringValue(LocalDate.class, text,
+              "expected an epoch day or an ISO date");
+        }
+      }
+      return (LocalDate) context.handleUnexpectedToken(LocalDate.class, parser);
+    }
+  }
+
+  static final class EpochMilliSerializer extends StdSerializer<Instant> {
+
+    EpochMilliSerializer() {
+      super(Instant.class);
+    }
+
+    @Override
+    public void serialize(Instant instant, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      gen.writeNumber(instant.toEpochMilli());
+    }
+  }
+
+  static final class ReservationSerializer extends StdSerializer<ReservationDTO> {
+
+    ReservationSerializer() {
+      super(ReservationDTO.class);
+    }
+
+    @Override
+    public void serialize(ReservationDTO reservation, JsonGenerator gen,
+        SerializerProvider provider) throws IOException {
+      gen.writeStartObject();
+      writeLongField(gen, "bookingId", reservation.getBookingId());
+      writeLongField(gen, "campsiteId", reservation.getCampsiteId());
+      writeEpochDayField(gen, "arrivalDate", reservation.getArrivalDate());
+      writeEpochDayField(gen, "departureDate", reservation.getDepartureDate());
+      gen.writeStringField("status", reservation.getStatus());
+      if (reservation.getHeldUntil() == null) {
+        gen.writeNullField("heldUntil");
+      } else {
+        gen.writeNumberField("heldUntil", reservation.getHeldUntil().toEpochMilli());
+      }
+      if (reservation.getOwner() == null) {
+        gen.writeNullField("owner");
+      } else {
+        gen.writeFieldName("owner");
+        writePerson(gen, reservation.getOwner());
+      }
+      gen.writeEndObject();
+    }
+  }
+
+  static final class PersonSerializer extends StdSerializer<PersonDTO> {
+
+    PersonSerializer() {
+      super(PersonDTO.class);
+    }
+
+    @Override
+    public void serialize(PersonDTO person, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      writePerson(gen, person);
+    }
+  }
+
+  static final class AvailabilitySerializer extends StdSerializer<AvailabilityDTO> {
+
+    AvailabilitySerializer() {
+      super(AvailabilityDTO.class);
+    }
+
+    @Override
+    public void serialize(AvailabilityDTO availability, JsonGenerator gen,
+        SerializerProvider provider) throws IOException {
+      gen.writeStartObject();
+      writeEpochDayField(gen, "startDate", availability.getStartDate());
+      writeEpochDayField(gen, "endDate", availability.getEndDate());
+      gen.writeNumberField("version", availability.getVersion());
+      List<DateRange> free = availability.getFree();
+      if (free == null) {
+        gen.writeNullField("free");
+      } else {
+        gen.writeArrayFieldStart("free");
+        for (DateRange range : free) {
+          writeDateRange(gen, range);
+        }
+        gen.writeEndArray();
+      }
+      gen.writeEndObject();
+    }
+  }
+
+  static final class StaySearchSerializer extends StdSerializer<StaySearchDTO> {
+
+    StaySearchSerializer() {
+      super(StaySearchDTO.class);
+    }
+
+    @Override
+    public void serialize(StaySearchDTO search, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      gen.writeStartObject();
+      writeEpochDayField(gen, "startDate", search.getStartDate());
+      writeEpochDayField(gen, "endDate", search.getEndDate());
+      gen.writeNumberField("nights", search.getNights());
+      gen.writeNumberField("version", search.getVersion());
+      List<LocalDate> arrivals = search.getArrivals();
+      if (arrivals == null) {
+        gen.writeNullField("arrivals");
+      } else {
+        gen.writeArrayFieldStart("arrivals");
+        for (LocalDate arrival : arrivals) {
+          gen.writeNumber(arrival.toEpochDay());
+        }
+        gen.writeEndArray();
+      }
+      gen.writeEndObject();
+    }
+  }
+
+  static final class DateRangeSerializer extends StdSerializer<DateRange> {
+
+    DateRangeSerializer() {
+      super(DateRange.class);
+    }
+
+    @Override
+    public void serialize(DateRange range, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      writeDateRange(gen, range);
+    }
+  }
+}
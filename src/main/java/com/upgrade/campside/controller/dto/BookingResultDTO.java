@@ -0,0 +1,45 @@
+package com.upgrade.campside.controller.dto;
+
+import com.upgrade.campside.service.BookingResult;
+import lombok.Getter;
+
+/**
+ * Data Transfer Object for the result of one reservation of a batch: CREATED with the reservation,
+ * or REJECTED with the reason and the violated rule.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Getter
+public class BookingResultDTO implements DTOMapper<BookingResult> {
+
+  private String result;
+  private ReservationDTO reservation;
+  private String reason;
+  private String rule;
+
+  @Override
+  public String toString() {
+    return String.format("BookingResultDTO[result='%s', reservation='%s', reason='%s']",
+        result, reservation, reason);
+  }
+
+  /**
+   * Fills the DTO with information from the <code>BookingResult</code>.
+   *
+   * @param bookingResult the <code>BookingResult</code> of a batch item
+   */
+  @Override
+  public void buildFromEntity(BookingResult bookingResult) {
+    if (bookingResult.isCreated()) {
+      this.result = "CREATED";
+      this.reservation = new ReservationDTO();
+      this.reservation.buildFromEntity(bookingResult.getReservation());
+    } else {
+      this.result = "REJECTED";
+      this.reason = bookingResult.getReason();
+      this.rule = bookingResult.getRule().name();
+    }
+  }
+}
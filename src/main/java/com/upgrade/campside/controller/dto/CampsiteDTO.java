@@ -0,0 +1,36 @@
+package com.upgrade.campside.controller.dto;
+
+import com.upgrade.campside.domain.model.Campsite;
+import javax.validation.constraints.NotNull;
+import lombok.Getter;
+
+/**
+ * Data Transfer Object for the Campsite Entity
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Getter
+public class CampsiteDTO implements DTOMapper<Campsite> {
+
+  private Long id;
+  @NotNull
+  private String name;
+
+  @Override
+  public String toString() {
+    return String.format("CampsiteDTO[id=%d, name='%s']", id, name);
+  }
+
+  /**
+   * Fills the DTO with information from the <code>Campsite</code> entity.
+   *
+   * @param campsite the <code>Campsite</code> entity
+   */
+  @Override
+  public void buildFromEntity(Campsite campsite) {
+    this.id = campsite.getId();
+    this.name = campsite.getName();
+  }
+}
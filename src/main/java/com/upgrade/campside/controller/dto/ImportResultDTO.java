@@ -0,0 +1,56 @@
+package com.upgrade.campside.controller.dto;
+
+import com.upgrade.campside.service.ImportResult;
+import java.util.List;
+import java.util.stream.Collectors;
+import lombok.Getter;
+
+/**
+ * Data Transfer Object for the result of a bulk import: the number of lines imported and
+ * rejected, and the first rejected lines with their reason.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Getter
+public class ImportResultDTO implements DTOMapper<ImportResult> {
+
+  private long imported;
+  private long rejected;
+  private List<RejectedLineDTO> rejections;
+
+  @Override
+  public String toString() {
+    return String.format("ImportResultDTO[imported=%d, rejected=%d]", imported, rejected);
+  }
+
+  /**
+   * Fills the DTO with information from the <code>ImportResult</code>.
+   *
+   * @param importResult the <code>ImportResult</code> of an import
+   */
+  @Override
+  public void buildFromEntity(ImportResult importResult) {
+    this.imported = importResult.getImported();
+    this.rejected = importResult.getRejected();
+    this.rejections = importResult.getRejections().stream()
+        .map(rejection -> new RejectedLineDTO(rejection.getLine(), rejection.getReason()))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * A rejected line and the reason.
+   */
+  @Getter
+  public static class RejectedLineDTO {
+
+    private final long line;
+    private final String reason;
+
+    RejectedLineDTO(long line, String reason) {
+      this.line = line;
+      this.reason = reason;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.upgrade.campside.controller.dto;
 
 import com.upgrade.campside.domain.model.Person;
+import com.upgrade.campside.domain.model.ReservationView;
 import javax.validation.constraints.NotNull;
 import lombok.Getter;
 
@@ -36,4 +37,15 @@ public class PersonDTO implements DTOMapper<Person> {
     this.email = person.getEmail();
     this.fullName = person.getFullName();
   }
+
+  /**
+   * Fills the DTO with the owner information of a <code>ReservationView</code> projection.
+   *
+   * @param view the <code>ReservationView</code> projection
+   */
+  public void buildFromView(ReservationView view) {
+    this.id = view.getOwnerId();
+    this.email = view.getOwnerEmail();
+    this.fullName = view.getOwnerFullName();
+  }
 }
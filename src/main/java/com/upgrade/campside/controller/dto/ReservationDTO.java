@@ -1,6 +1,8 @@
 package com.upgrade.campside.controller.dto;
 
 import com.upgrade.campside.domain.model.Reservation;
+import com.upgrade.campside.domain.model.ReservationView;
+import java.time.Instant;
 import java.time.LocalDate;
 import lombok.Getter;
 
@@ -15,16 +17,19 @@ import lombok.Getter;
 public class ReservationDTO implements DTOMapper<Reservation> {
 
   private Long bookingId;
+  private Long campsiteId;
   private LocalDate arrivalDate;
   private LocalDate departureDate;
   private String status;
+  private Instant heldUntil;
   private PersonDTO owner;
 
   @Override
   public String toString() {
     return String.format(
-        "ReservationDTO[bookingId=%d, arrival='%s', departure='%s', status='%s', person='%s']",
-        bookingId, arrivalDate, departureDate, status, owner);
+        "ReservationDTO[bookingId=%d, campsiteId=%d, arrival='%s', departure='%s', status='%s',"
+            + " person='%s']",
+        bookingId, campsiteId, arrivalDate, departureDate, status, owner);
   }
 
   /**
@@ -35,11 +40,30 @@ public class ReservationDTO implements DTOMapper<Reservation> {
   @Override
   public void buildFromEntity(Reservation reservation) {
     this.bookingId = reservation.getBookingId();
+    this.campsiteId = reservation.getCampsiteId();
     this.arrivalDate = reservation.getArrivalDate();
     this.departureDate = reservation.getDepartureDate();
     this.status = reservation.getStatus().name();
+    this.heldUntil = reservation.getHeldUntil();
 
     this.owner = new PersonDTO();
     this.owner.buildFromEntity(reservation.getOwner());
   }
+
+  /**
+   * Fills the DTO with information from a read-only <code>ReservationView</code> projection.
+   *
+   * @param view the <code>ReservationView</code> projection
+   */
+  public void buildFromView(ReservationView view) {
+    this.bookingId = view.getBookingId();
+    this.campsiteId = view.getCampsiteId();
+    this.arrivalDate = view.getArrivalDate();
+    this.departureDate = view.getDepartureDate();
+    this.status = view.getStatus().name();
+    this.heldUntil = view.getHeldUntil();
+
+    this.owner = new PersonDTO();
+    this.owner.buildFromView(view);
+  }
 }
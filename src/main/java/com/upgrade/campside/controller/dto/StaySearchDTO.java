@@ -0,0 +1,44 @@
+package com.upgrade.campside.controller.dto;
+
+import com.upgrade.campside.service.StaySearch;
+import java.time.LocalDate;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Data Transfer Object for the feasible stays of a search: every arrival date where a stay of the
+ * searched number of nights can be reserved, inside the searched window.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Getter
+public class StaySearchDTO implements DTOMapper<StaySearch> {
+
+  private LocalDate startDate;
+  private LocalDate endDate;
+  private int nights;
+  private long version;
+  private List<LocalDate> arrivals;
+
+  @Override
+  public String toString() {
+    return String.format("StaySearchDTO[start='%s', end='%s', nights=%d, version=%d, arrivals=%s]",
+        startDate, endDate, nights, version, arrivals);
+  }
+
+  /**
+   * Fills the DTO with information from the <code>StaySearch</code> result.
+   *
+   * @param search the <code>StaySearch</code> result
+   */
+  @Override
+  public void buildFromEntity(StaySearch search) {
+    this.startDate = search.getWindow().getStart();
+    this.endDate = search.getWindow().getEnd();
+    this.nights = search.getNights();
+    this.version = search.getVersion();
+    this.arrivals = search.getArrivalDates();
+  }
+}
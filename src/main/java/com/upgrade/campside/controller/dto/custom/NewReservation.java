@@ -8,7 +8,8 @@ import javax.validation.constraints.NotNull;
 import lombok.Getter;
 
 /**
- * An Object Representing a new Reservation, using Bean Validation.
+ * An Object Representing a new Reservation, using Bean Validation. The campsite is optional, the
+ * default campsite is reserved without it.
  *
  * @author Olavo Holanda
  * @version 0.1
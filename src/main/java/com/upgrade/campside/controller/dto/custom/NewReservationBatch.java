@@ -0,0 +1,25 @@
+package com.upgrade.campside.controller.dto.custom;
+
+import java.util.List;
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import lombok.Getter;
+
+/**
+ * An Object Representing a batch of new Reservations, using Bean Validation.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Getter
+public class NewReservationBatch {
+
+  public static final int MAX_SIZE = 1000;
+
+  @Valid
+  @NotEmpty
+  @Size(max = MAX_SIZE)
+  private List<NewReservation> reservations;
+}
@@ -1,7 +1,10 @@
 package com.upgrade.campside.controller.error;
 
+import com.upgrade.campside.exception.CampsiteNotFoundException;
+import com.upgrade.campside.exception.IdempotencyKeyReusedException;
 import com.upgrade.campside.exception.InvalidReservationDateException;
 import com.upgrade.campside.exception.ReservationNotFoundException;
+import com.upgrade.campside.exception.ServiceOverloadedException;
 import java.util.Date;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
@@ -36,6 +39,24 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
     return buildResponseEntity(new HTTPError(ex.getCode(), ex));
   }
 
+  @ExceptionHandler(CampsiteNotFoundException.class)
+  public ResponseEntity<Object> handleCampsiteNotFound(CampsiteNotFoundException ex) {
+    return buildResponseEntity(new HTTPError(ex.getCode(), ex));
+  }
+
+  @ExceptionHandler(IdempotencyKeyReusedException.class)
+  public ResponseEntity<Object> handleIdempotencyKeyReused(IdempotencyKeyReusedException ex) {
+    return buildResponseEntity(new HTTPError(ex.getCode(), ex));
+  }
+
+  @ExceptionHandler(ServiceOverloadedException.class)
+  public ResponseEntity<Object> handleServiceOverloaded(ServiceOverloadedException ex) {
+    HTTPError error = new HTTPError(ex.getCode(), ex);
+    return ResponseEntity.status(error.getStatusCode())
+        .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+        .body(error);
+  }
+
   @Override
   protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex,
       HttpHeaders headers, HttpStatus status, WebRequest request) {
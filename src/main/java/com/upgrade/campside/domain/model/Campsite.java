@@ -0,0 +1,65 @@
+package com.upgrade.campside.domain.model;
+
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import lombok.Getter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+/**
+ * Campsite is the entity class representing one of the campsites that can be reserved. Each
+ * reservation belongs to exactly one campsite and only competes for nights with the reservations
+ * of the same campsite. The <code>DEFAULT_ID</code> campsite is created by the schema migrations
+ * and holds every reservation made before campsites existed. Campsites are kept in the
+ * <code>campsite</code> region of the Hibernate second-level cache.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Getter
+@Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "campsite")
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_campsite_name", columnNames = "name"))
+public class Campsite {
+
+  public static final Long DEFAULT_ID = 1L;
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "campsite_sequence")
+  @SequenceGenerator(name = "campsite_sequence", sequenceName = "campsite_sequence",
+      allocationSize = 1)
+  private Long id;
+
+  @Column(nullable = false)
+  private String name;
+
+  /**
+   * Protected constructor, please use the one with parameters, that are required for this object.
+   */
+  protected Campsite() {
+  }
+
+  /**
+   * <code>Campsite</code> constructor, creates a new campsite instance with the mandatory
+   * parameters.
+   *
+   * @param name the <code>String</code> name of the campsite
+   */
+  public Campsite(String name) {
+    this.name = name;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Campsite[id=%d, name='%s']", id, name);
+  }
+}
@@ -0,0 +1,58 @@
+package com.upgrade.campside.domain.model;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * DateRange is an immutable value class representing a period of nights in the Campside, from the
+ * start date (inclusive) to the end date (exclusive). A stay from arrival to departure is the
+ * range [arrival, departure).
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Getter
+@EqualsAndHashCode
+public final class DateRange {
+
+  private final LocalDate start;
+  private final LocalDate end;
+
+  /**
+   * <code>DateRange</code> constructor, creates a new range of nights.
+   *
+   * @param start the <code>LocalDate</code> of the first night
+   * @param end the <code>LocalDate</code> after the last night
+   */
+  public DateRange(LocalDate start, LocalDate end) {
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * Number of nights in this range.
+   *
+   * @return the number of nights, zero for an empty range.
+   */
+  public long getNights() {
+    return Math.max(0, ChronoUnit.DAYS.between(start, end));
+  }
+
+  /**
+   * Checks if this range shares at least one night with another range.
+   *
+   * @param other the other <code>DateRange</code>
+   * @return true if both ranges have a night in common, false otherwise
+   */
+  public boolean intersects(DateRange other) {
+    return start.isBefore(other.end) && other.start.isBefore(end);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("DateRange[start='%s', end='%s']", start, end);
+  }
+}
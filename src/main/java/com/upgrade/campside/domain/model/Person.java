@@ -2,12 +2,17 @@ package com.upgrade.campside.domain.model;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -15,7 +20,10 @@ import lombok.Setter;
  * Person is the entity class for representing simple information about a person that makes a
  * reservation on the Campside. As this service is not responsible for managing persons, therefore,
  * the info hold by this class is pretty basic. A Person holds information about its email and full
- * name.
+ * name. The email is stored normalized and is unique, so a returning customer is always the same
+ * person. Persons are kept in the <code>person</code> region of the Hibernate second-level cache,
+ * their reservations collection is not: reservations are written through their owning side only,
+ * so a cached collection would miss them.
  *
  * @author Olavo Holanda
  * @version 0.1
@@ -24,10 +32,13 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "person")
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_person_email", columnNames = "email"))
 public class Person {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.AUTO)
+  @GeneratedValue(generator = "pooled_lo_sequence")
   private Long id;
 
   @Column(nullable = false)
@@ -53,10 +64,20 @@ public class Person {
    * @param fullName the <code>String</code> with the user's full name.
    */
   public Person(String email, String fullName) {
-    this.email = email;
+    this.email = normalizeEmail(email);
     this.fullName = fullName;
   }
 
+  /**
+   * Normalizes an email for storage and lookup, trimming it and converting it to lower case.
+   *
+   * @param email the <code>String</code> email as typed.
+   * @return the normalized email.
+   */
+  public static String normalizeEmail(String email) {
+    return email.trim().toLowerCase(Locale.ROOT);
+  }
+
   @Override
   public String toString() {
     return String.format(
@@ -1,22 +1,38 @@
 package com.upgrade.campside.domain.model;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.Table;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Getter;
 import lombok.Setter;
 
 /**
  * Reservation is the entity class representing a reservation in the Campside. A reservation will
- * hold information about its arrival date, departure date, time of creation, time of update,
- * reservation owner, its booking id and its status (CONFIRMED, CANCELED).
+ * hold information about its campsite, arrival date, departure date, time of creation, time of
+ * update, reservation owner, its booking id and its status (CONFIRMED, CANCELED, HELD). A held
+ * reservation also holds the instant its hold expires. An active reservation, confirmed or held,
+ * also claims one <code>ReservationNight</code> for each night of its stay on its campsite, from
+ * arrival (inclusive) to departure (exclusive). The campsite is kept as a plain id, the partition
+ * key of every query, and never changes. Overlap queries are served by the
+ * <code>idx_reservation_campsite_status_dates</code> index, created by the schema migrations.
+ * Reservations are kept in the <code>reservation</code> region of the Hibernate second-level
+ * cache, which is local to each instance and only serves reads: the <code>ReservationStore</code>
+ * loads a reservation to change it from the database.
  *
  * @author Olavo Holanda
  * @version 0.1
@@ -25,12 +41,19 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "reservation")
+@Table(indexes = @Index(name = "idx_reservation_campsite_status_dates",
+    columnList = "campsiteId, status, arrivalDate, departureDate"))
 public class Reservation {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.AUTO)
+  @GeneratedValue(generator = "pooled_lo_sequence")
   private Long bookingId;
 
+  @Column(nullable = false, updatable = false)
+  private Long campsiteId;
+
   @Column(nullable = false)
   private LocalDate arrivalDate;
 
@@ -41,9 +64,14 @@ public class Reservation {
   @Enumerated(EnumType.STRING)
   private ReservationStatus status;
 
-  @ManyToOne(cascade = CascadeType.ALL)
+  private Instant heldUntil;
+
+  @ManyToOne
   private Person owner;
 
+  @OneToMany(mappedBy = "reservation", cascade = CascadeType.ALL, orphanRemoval = true)
+  private List<ReservationNight> nights = new ArrayList<>();
+
   /**
    * Protected constructor, please use the one with parameters, that are required for this object.
    */
@@ -54,22 +82,93 @@ public class Reservation {
    * <code>Reservation</code> constructor, creates a new reservation instance with the
    * mandatory parameters.
    *
+   * @param campsiteId the <code>Long</code> id of the reserved campsite
    * @param arrivalDate the <code>LocalDate</code> when the person will arrive
    * @param departureDate the <code>LocalDate</code> when the person will leave
    * @param owner the <code>Person</code> that owns the reservation
    * @param status the <code>ReservationStatus</code> current status of the reservation
    */
-  public Reservation(LocalDate arrivalDate, LocalDate departureDate, Person owner, ReservationStatus status) {
+  public Reservation(Long campsiteId, LocalDate arrivalDate, LocalDate departureDate, Person owner,
+      ReservationStatus status) {
+    this.campsiteId = campsiteId;
     this.arrivalDate = arrivalDate;
     this.departureDate = departureDate;
     this.status = status;
     this.owner = owner;
+    this.claimNights();
+  }
+
+  /**
+   * <code>Reservation</code> constructor, creates a new HELD reservation blocking its nights until
+   * the hold expires.
+   *
+   * @param campsiteId the <code>Long</code> id of the reserved campsite
+   * @param arrivalDate the <code>LocalDate</code> when the person will arrive
+   * @param departureDate the <code>LocalDate</code> when the person will leave
+   * @param owner the <code>Person</code> that owns the reservation
+   * @param heldUntil the <code>Instant</code> when the hold expires
+   */
+  public Reservation(Long campsiteId, LocalDate arrivalDate, LocalDate departureDate,
+      Person owner, Instant heldUntil) {
+    this(campsiteId, arrivalDate, departureDate, owner, ReservationStatus.HELD);
+    this.heldUntil = heldUntil;
+  }
+
+  /**
+   * Changes the stay dates, claiming only the nights that were not already claimed and releasing
+   * the ones that are no longer part of the stay.
+   *
+   * @param arrivalDate the <code>LocalDate</code> when the person will arrive
+   * @param departureDate the <code>LocalDate</code> when the person will leave
+   */
+  public void reschedule(LocalDate arrivalDate, LocalDate departureDate) {
+    this.arrivalDate = arrivalDate;
+    this.departureDate = departureDate;
+    this.claimNights();
+  }
+
+  /**
+   * Confirms a held reservation, keeping its nights.
+   */
+  public void confirm() {
+    this.status = ReservationStatus.CONFIRMED;
+    this.heldUntil = null;
+  }
+
+  /**
+   * Cancels the reservation, releasing all of its nights.
+   */
+  public void cancel() {
+    this.status = ReservationStatus.CANCELED;
+    this.heldUntil = null;
+    this.nights.clear();
+  }
+
+  /**
+   * Synchronizes the claimed nights with the stay dates. Canceled reservations claim no nights.
+   */
+  private void claimNights() {
+    if (this.status == ReservationStatus.CANCELED) {
+      this.nights.clear();
+      return;
+    }
+
+    this.nights.removeIf(night -> night.getNight().isBefore(this.arrivalDate)
+        || !night.getNight().isBefore(this.departureDate));
+    for (LocalDate night = this.arrivalDate; night.isBefore(this.departureDate);
+        night = night.plusDays(1)) {
+      LocalDate current = night;
+      if (this.nights.stream().noneMatch(claimed -> claimed.getNight().equals(current))) {
+        this.nights.add(new ReservationNight(this, current));
+      }
+    }
   }
 
   @Override
   public String toString() {
     return String.format(
-        "Reservation[bookingId=%d, arrival='%s', departure='%s', status='%s', person='%s']",
-        bookingId, arrivalDate, departureDate, status, owner);
+        "Reservation[bookingId=%d, campsite=%d, arrival='%s', departure='%s', status='%s',"
+            + " person='%s']",
+        bookingId, campsiteId, arrivalDate, departureDate, status, owner);
   }
 }
@@ -0,0 +1,65 @@
+package com.upgrade.campside.domain.model;
+
+import java.time.LocalDate;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import lombok.Getter;
+
+/**
+ * ReservationNight is the entity class representing a night claimed by a reservation in the
+ * Campside. There is one row per occupied night and the night is unique per campsite, so the
+ * database itself rejects two reservations claiming the same night of a campsite, whatever the
+ * number of application instances, while claims on different campsites never share a key.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Getter
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_reservation_night_campsite_night",
+    columnNames = {"campsiteId", "night"}))
+public class ReservationNight {
+
+  @Id
+  @GeneratedValue(generator = "pooled_lo_sequence")
+  private Long id;
+
+  @Column(nullable = false, updatable = false)
+  private Long campsiteId;
+
+  @Column(nullable = false)
+  private LocalDate night;
+
+  @ManyToOne(optional = false)
+  private Reservation reservation;
+
+  /**
+   * Protected constructor, please use the one with parameters, that are required for this object.
+   */
+  protected ReservationNight() {
+  }
+
+  /**
+   * <code>ReservationNight</code> constructor, creates a new night claim for a reservation.
+   *
+   * @param reservation the <code>Reservation</code> claiming the night
+   * @param night the <code>LocalDate</code> of the claimed night
+   */
+  public ReservationNight(Reservation reservation, LocalDate night) {
+    this.reservation = reservation;
+    this.campsiteId = reservation.getCampsiteId();
+    this.night = night;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ReservationNight[id=%d, campsite=%d, night='%s']", id, campsiteId,
+        night);
+  }
+}
@@ -1,7 +1,8 @@
 package com.upgrade.campside.domain.model;
 
 /**
- * Enum with possible reservations status.
+ * Enum with possible reservations status. A HELD reservation blocks its nights, as a CONFIRMED
+ * one, until it is confirmed, released or its hold expires.
  *
  * @author Olavo Holanda
  * @version 0.1
@@ -9,5 +10,15 @@ package com.upgrade.campside.domain.model;
  */
 public enum ReservationStatus {
   CONFIRMED,
-  CANCELED
+  CANCELED,
+  HELD;
+
+  /**
+   * Whether a reservation in this status occupies its nights.
+   *
+   * @return true for CONFIRMED and HELD reservations.
+   */
+  public boolean isActive() {
+    return this != CANCELED;
+  }
 }
@@ -0,0 +1,64 @@
+package com.upgrade.campside.domain.model;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import lombok.Getter;
+
+/**
+ * ReservationView is an immutable, read-only projection of a reservation and its owner. It is
+ * built by the repository through a JPQL constructor expression, selecting only the columns needed
+ * to show a reservation in a single join, so no entity is hydrated nor kept in the persistence
+ * context.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Getter
+public final class ReservationView {
+
+  private final Long bookingId;
+  private final Long campsiteId;
+  private final LocalDate arrivalDate;
+  private final LocalDate departureDate;
+  private final ReservationStatus status;
+  private final Instant heldUntil;
+  private final Long ownerId;
+  private final String ownerEmail;
+  private final String ownerFullName;
+
+  /**
+   * <code>ReservationView</code> constructor, used by the repository constructor expressions.
+   *
+   * @param bookingId the <code>Long</code> reservation booking id
+   * @param campsiteId the <code>Long</code> id of the reserved campsite
+   * @param arrivalDate the <code>LocalDate</code> when the person will arrive
+   * @param departureDate the <code>LocalDate</code> when the person will leave
+   * @param status the <code>ReservationStatus</code> current status of the reservation
+   * @param heldUntil the <code>Instant</code> when the hold expires, null if not held
+   * @param ownerId the <code>Long</code> id of the person that owns the reservation
+   * @param ownerEmail the <code>String</code> email of the owner
+   * @param ownerFullName the <code>String</code> full name of the owner
+   */
+  public ReservationView(Long bookingId, Long campsiteId, LocalDate arrivalDate,
+      LocalDate departureDate, ReservationStatus status, Instant heldUntil, Long ownerId,
+      String ownerEmail, String ownerFullName) {
+    this.bookingId = bookingId;
+    this.campsiteId = campsiteId;
+    this.arrivalDate = arrivalDate;
+    this.departureDate = departureDate;
+    this.status = status;
+    this.heldUntil = heldUntil;
+    this.ownerId = ownerId;
+    this.ownerEmail = ownerEmail;
+    this.ownerFullName = ownerFullName;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "ReservationView[bookingId=%d, campsite=%d, arrival='%s', departure='%s', status='%s',"
+            + " owner=%d]",
+        bookingId, campsiteId, arrivalDate, departureDate, status, ownerId);
+  }
+}
@@ -0,0 +1,22 @@
+/**
+ * The Campside entities and read views. Every entity id is allocated from the
+ * <code>hibernate_sequence</code> by the <code>pooled_lo_sequence</code> generator: the sequence
+ * increments by <code>50</code> and each value read is the low end of a block of 50 ids handed out
+ * in memory, so inserts cost one sequence round trip per 50 rows instead of one per row, and can
+ * be sent in JDBC batches. The increment size must match the one of the sequence, set by the
+ * schema migrations.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@GenericGenerator(name = "pooled_lo_sequence",
+    strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+    parameters = {
+        @Parameter(name = "sequence_name", value = "hibernate_sequence"),
+        @Parameter(name = "increment_size", value = "50"),
+        @Parameter(name = "optimizer", value = "pooled-lo")})
+package com.upgrade.campside.domain.model;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
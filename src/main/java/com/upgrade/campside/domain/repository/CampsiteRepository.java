@@ -0,0 +1,21 @@
+package com.upgrade.campside.domain.repository;
+
+import com.upgrade.campside.domain.model.Campsite;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+/**
+ * The <code>CampsiteRepository</code> interface extends Spring <code>JpaRepository</code providing
+ * useful additional campsite related queries on the database. This is interface should be used in
+ * the service layer for create, retrieve, update and delete operations on campsites.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+public interface CampsiteRepository extends JpaRepository<Campsite, Long> {
+
+  @Query("select c.id from Campsite c")
+  List<Long> findAllIds();
+}
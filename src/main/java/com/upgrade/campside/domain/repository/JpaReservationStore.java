@@ -0,0 +1,172 @@
+package com.upgrade.campside.domain.repository;
+
+import com.upgrade.campside.domain.model.Reservation;
+import com.upgrade.campside.domain.model.ReservationView;
+import com.upgrade.campside.exception.ReservationConflictException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The <code>JpaReservationStore</code> class is the <code>ReservationStore</code> in use, keeping
+ * reservations in the database through the <code>ReservationRepository</code>. Night claims are
+ * flushed on every save, so a night of the campsite already claimed by another reservation, in
+ * this or any other instance, is reported by the unique constraint as a
+ * <code>ReservationConflictException</code>.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Repository
+public class JpaReservationStore implements ReservationStore {
+
+  private final ReservationRepository repository;
+
+  /**
+   * Class constructor with AutoWired dependencies injection.
+   */
+  @Autowired
+  public JpaReservationStore(ReservationRepository repository) {
+    this.repository = repository;
+  }
+
+  /**
+   * Reads the reservation from the database, bypassing the second-level cache. Reservations are
+   * only loaded to be changed, and the cache of this instance may still hold a version already
+   * changed by another instance, which would be written back over the newer row.
+   */
+  @Override
+  public Optional<Reservation> findById(Long bookingId) {
+    return repository.findCurrentById(bookingId);
+  }
+
+  @Override
+  public Reservation save(Reservation reservation) throws ReservationConflictException {
+    try {
+      return repository.saveAndFlush(reservation);
+    } catch (DataIntegrityViolationException ex) {
+      throw new ReservationConflictException();
+    }
+  }
+
+  /**
+   * Saves the reservations and flushes them once, so their rows and night claims are sent to the
+   * database in JDBC batches.
+   */
+  @Override
+  public List<Reservation> saveAll(List<Reservation> reservations)
+      throws ReservationConflictException {
+    try {
+      List<Reservation> saved = new ArrayList<>(reservations.size());
+      for (Reservation reservation : reservations) {
+        saved.add(repository.save(reservation));
+      }
+      repository.flush();
+      return saved;
+    } catch (DataIntegrityViolationException ex) {
+      throw new ReservationConflictException();
+    }
+  }
+
+  @Override
+  public boolean overlaps(Long campsiteId, LocalDate startDate, LocalDate endDate,
+      Long exceptBookingId) {
+    if (exceptBookingId == null) {
+      return repository.checkReservationOverlaps(campsiteId, startDate, endDate);
+    }
+    return repository.checkReservationOverlapsExceptOwn(campsiteId, startDate, endDate,
+        exceptBookingId);
+  }
+
+  @Override
+  public List<Reservation> getReservationsInPeriod(Long campsiteId, LocalDate startDate,
+      LocalDate endDate) {
+    return repository.getReservationsInPeriod(campsiteId, startDate, endDate);
+  }
+
+  @Override
+  public List<Reservation> getActiveReservationsFrom(LocalDate date) {
+    return repository.getActiveReservationsFrom(date);
+  }
+
+  @Override
+  public List<ReservationView> getActiveViewsFrom(LocalDate date) {
+    return repository.getActiveViewsFrom(date);
+  }
+
+  @Override
+  public Optional<ReservationView> findViewById(Long bookingId) {
+    return repository.findViewById(bookingId);
+  }
+
+  @Override
+  public List<ReservationView> findViewsByIds(Collection<Long> bookingIds) {
+    return repository.findViewsByIds(bookingIds);
+  }
+
+  @Override
+  public List<ReservationView> getViewsInPeriod(Long campsiteId, LocalDate startDate,
+      LocalDate endDate) {
+    return repository.getViewsInPeriod(campsiteId, startDate, endDate);
+  }
+
+  @Override
+  public Stream<ReservationView> streamViewsInPeriod(Long campsiteId, LocalDate startDate,
+      LocalDate endDate) {
+    return repository.streamViewsInPeriod(campsiteId, startDate, endDate);
+  }
+
+  @Override
+  public Stream<ReservationView> streamAllViewsInPeriod(LocalDate startDate, LocalDate endDate) {
+    return repository.streamAllViewsInPeriod(startDate, endDate);
+  }
+
+  @Override
+  public List<ReservationView> getHolds() {
+    return repository.getHeldViews();
+  }
+
+  /**
+   * Cancels the expired holds with one bulk update, then deletes their night claims with one bulk
+   * delete. Both statements are guarded by the status, so a hold confirmed in between is kept. When
+   * the update cancels fewer holds than were selected, the canceled ones are read again, so a hold
+   * confirmed in between is not reported as expired.
+   */
+  @Override
+  public List<ReservationView> expireHolds(Collection<Long> bookingIds, Instant now) {
+    List<ReservationView> expired = repository.findExpiredHolds(bookingIds, now);
+    if (expired.isEmpty()) {
+      return expired;
+    }
+    List<Long> expiredIds = expired.stream()
+        .map(ReservationView::getBookingId)
+        .collect(Collectors.toList());
+    if (repository.expireHolds(expiredIds, now) < expiredIds.size()) {
+      Set<Long> canceledIds = new HashSet<>(repository.findCanceledIds(expiredIds));
+      expired = expired.stream()
+          .filter(view -> canceledIds.contains(view.getBookingId()))
+          .collect(Collectors.toList());
+      expiredIds.retainAll(canceledIds);
+    }
+    if (!expiredIds.isEmpty()) {
+      repository.releaseCanceledNights(expiredIds);
+    }
+    return expired;
+  }
+
+  @Override
+  public boolean confirmHold(Long bookingId, Instant now) {
+    return repository.confirmHold(bookingId, now) > 0;
+  }
+}
@@ -1,7 +1,12 @@
 package com.upgrade.campside.domain.repository;
 
 import com.upgrade.campside.domain.model.Person;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 /**
  * The <code>PersonRepository</code> interface extends Spring <code>JpaRepository</code providing
@@ -14,4 +19,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
  */
 public interface PersonRepository extends JpaRepository<Person, Long> {
 
+  @Query("select p.id from Person p where p.email = :email")
+  Optional<Long> findIdByEmail(@Param("email") String email);
+
+  @Query("select p from Person p where p.email in :emails")
+  List<Person> findByEmailIn(@Param("emails") Collection<String> emails);
 }
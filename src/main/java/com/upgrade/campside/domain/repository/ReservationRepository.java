@@ -1,10 +1,18 @@
 package com.upgrade.campside.domain.repository;
 
 import com.upgrade.campside.domain.model.Reservation;
+import com.upgrade.campside.domain.model.ReservationView;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 /**
@@ -12,31 +20,107 @@ import org.springframework.data.repository.query.Param;
  * providing useful additional reservation related queries on the database. This is interface should be
  * used in the service layer for create, retrieve, update, delete and query operations on reservations.
  *
+ * Period queries select the active reservations of a campsite, confirmed or held, overlapping a
+ * half-open period, start inclusive and end exclusive: <code>arrivalDate &lt; :endDate and
+ * departureDate &gt; :startDate</code>. A stay departing on the start date does not overlap it, a
+ * stay enclosing the whole period does. The predicate is a single range scan of the
+ * <code>idx_reservation_campsite_status_dates</code> index, restricted to the campsite. The overlap
+ * checks and the period query decide whether a booking is accepted, so they are never cached and
+ * always see the writes committed by every instance.
+ *
  * @author Olavo Holanda
  * @version 0.1
  * @since 0.1
  */
 public interface ReservationRepository extends JpaRepository<Reservation, Long> {
 
+  String VIEW_SELECT = "select new com.upgrade.campside.domain.model.ReservationView("
+      + "r.bookingId, r.campsiteId, r.arrivalDate, r.departureDate, r.status, r.heldUntil,"
+      + " o.id, o.email, o.fullName)"
+      + " from Reservation r join r.owner o";
+
   @Query("select case when (count(r) > 0) then true else false end "
-      + "from Reservation r where r.bookingId <> :bookingId"
-      + " and r.status <> 'CANCELED'"
-      + " and (r.arrivalDate between :startDate and :endDate"
-      + " or r.departureDate between :startDate and :endDate)")
-  boolean checkReservationOverlapsExceptOwn(@Param("startDate") LocalDate startDate,
-      @Param("endDate") LocalDate endDate, @Param("bookingId") Long bookingId);
+      + "from Reservation r where r.campsiteId = :campsiteId and r.bookingId <> :bookingId"
+      + " and r.status in ('CONFIRMED', 'HELD')"
+      + " and r.arrivalDate < :endDate and r.departureDate > :startDate")
+  boolean checkReservationOverlapsExceptOwn(@Param("campsiteId") Long campsiteId,
+      @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate,
+      @Param("bookingId") Long bookingId);
 
   @Query("select case when (count(r) > 0) then true else false end "
-      + "from Reservation r where r.status <> 'CANCELED'"
-      + " and (r.arrivalDate between :startDate and :endDate"
-      + " or r.departureDate between :startDate and :endDate)")
-  boolean checkReservationOverlaps(@Param("startDate") LocalDate startDate,
-      @Param("endDate") LocalDate endDate);
+      + "from Reservation r where r.campsiteId = :campsiteId"
+      + " and r.status in ('CONFIRMED', 'HELD')"
+      + " and r.arrivalDate < :endDate and r.departureDate > :startDate")
+  boolean checkReservationOverlaps(@Param("campsiteId") Long campsiteId,
+      @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+  @Query("select r from Reservation r where r.campsiteId = :campsiteId"
+      + " and r.status in ('CONFIRMED', 'HELD')"
+      + " and r.arrivalDate < :endDate and r.departureDate > :startDate")
+  List<Reservation> getReservationsInPeriod(@Param("campsiteId") Long campsiteId,
+      @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
 
   @Query("select r from Reservation r where "
-      + " r.status <> 'CANCELED'"
-      + " and (r.arrivalDate between :startDate and :endDate"
-      + " or r.departureDate between :startDate and :endDate)")
-  List<Reservation> getReservationsInPeriod(@Param("startDate") LocalDate startDate,
+      + " r.status in ('CONFIRMED', 'HELD')"
+      + " and r.departureDate > :date")
+  List<Reservation> getActiveReservationsFrom(@Param("date") LocalDate date);
+
+  @Query(VIEW_SELECT + " where r.status in ('CONFIRMED', 'HELD') and r.departureDate > :date")
+  List<ReservationView> getActiveViewsFrom(@Param("date") LocalDate date);
+
+  @QueryHints(@QueryHint(name = "javax.persistence.cache.retrieveMode", value = "BYPASS"))
+  @Query("select r from Reservation r where r.bookingId = :bookingId")
+  Optional<Reservation> findCurrentById(@Param("bookingId") Long bookingId);
+
+  @Query(VIEW_SELECT + " where r.bookingId = :bookingId")
+  Optional<ReservationView> findViewById(@Param("bookingId") Long bookingId);
+
+  @Query(VIEW_SELECT + " where r.bookingId in :bookingIds order by r.arrivalDate")
+  List<ReservationView> findViewsByIds(@Param("bookingIds") Collection<Long> bookingIds);
+
+  @Query(VIEW_SELECT + " where r.campsiteId = :campsiteId and r.status in ('CONFIRMED', 'HELD')"
+      + " and r.arrivalDate < :endDate and r.departureDate > :startDate"
+      + " order by r.arrivalDate")
+  List<ReservationView> getViewsInPeriod(@Param("campsiteId") Long campsiteId,
+      @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+  @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "100"))
+  @Query(VIEW_SELECT + " where r.campsiteId = :campsiteId and r.status in ('CONFIRMED', 'HELD')"
+      + " and r.arrivalDate < :endDate and r.departureDate > :startDate"
+      + " order by r.arrivalDate")
+  Stream<ReservationView> streamViewsInPeriod(@Param("campsiteId") Long campsiteId,
+      @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+  @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+  @Query(VIEW_SELECT + " where r.arrivalDate < :endDate and r.departureDate > :startDate"
+      + " order by r.arrivalDate, r.bookingId")
+  Stream<ReservationView> streamAllViewsInPeriod(@Param("startDate") LocalDate startDate,
       @Param("endDate") LocalDate endDate);
+
+  @Query(VIEW_SELECT + " where r.status = 'HELD'")
+  List<ReservationView> getHeldViews();
+
+  @Query(VIEW_SELECT + " where r.bookingId in :bookingIds"
+      + " and r.status = 'HELD' and r.heldUntil <= :now")
+  List<ReservationView> findExpiredHolds(@Param("bookingIds") Collection<Long> bookingIds,
+      @Param("now") Instant now);
+
+  @Modifying(clearAutomatically = true)
+  @Query("update Reservation r set r.status = 'CANCELED', r.heldUntil = null"
+      + " where r.bookingId in :bookingIds and r.status = 'HELD' and r.heldUntil <= :now")
+  int expireHolds(@Param("bookingIds") Collection<Long> bookingIds, @Param("now") Instant now);
+
+  @Query("select r.bookingId from Reservation r where r.bookingId in :bookingIds"
+      + " and r.status = 'CANCELED'")
+  List<Long> findCanceledIds(@Param("bookingIds") Collection<Long> bookingIds);
+
+  @Modifying
+  @Query("delete from ReservationNight n where n.reservation in (select r from Reservation r"
+      + " where r.bookingId in :bookingIds and r.status = 'CANCELED')")
+  int releaseCanceledNights(@Param("bookingIds") Collection<Long> bookingIds);
+
+  @Modifying(clearAutomatically = true)
+  @Query("update Reservation r set r.status = 'CONFIRMED', r.heldUntil = null"
+      + " where r.bookingId = :bookingId and r.status = 'HELD' and r.heldUntil > :now")
+  int confirmHold(@Param("bookingId") Long bookingId, @Param("now") Instant now);
 }
@@ -0,0 +1,171 @@
+package com.upgrade.campside.domain.repository;
+
+import com.upgrade.campside.domain.model.Reservation;
+import com.upgrade.campside.domain.model.ReservationView;
+import com.upgrade.campside.exception.ReservationConflictException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * The <code>ReservationStore</code> interface is the storage of reservations used by the service
+ * layer, implemented by <code>JpaReservationStore</code>, which keeps reservations in the database
+ * through the <code>ReservationRepository</code>.
+ *
+ * Writes join the current transaction, if any, and are undone if it rolls back. Period queries
+ * select the active reservations of a campsite, confirmed or held, overlapping a half-open period,
+ * start inclusive and end exclusive. A reservation only conflicts with reservations of its own
+ * campsite.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+public interface ReservationStore {
+
+  /**
+   * Finds a reservation by its booking id.
+   *
+   * @param bookingId the <code>Long</code> booking id.
+   * @return the <code>Reservation</code>, if any.
+   */
+  Optional<Reservation> findById(Long bookingId);
+
+  /**
+   * Saves a new or changed reservation, claiming its nights right away.
+   *
+   * @param reservation the <code>Reservation</code> to save.
+   * @return the saved reservation, with its booking id.
+   * @throws ReservationConflictException a night of its campsite is already claimed by another
+   *     reservation
+   */
+  Reservation save(Reservation reservation) throws ReservationConflictException;
+
+  /**
+   * Saves new reservations together, claiming their nights at once.
+   *
+   * @param reservations the <code>List<Reservation></code> to save.
+   * @return the saved reservations, in order.
+   * @throws ReservationConflictException a night of their campsite is already claimed by another
+   *     reservation
+   */
+  List<Reservation> saveAll(List<Reservation> reservations) throws ReservationConflictException;
+
+  /**
+   * Checks if a active reservation of a campsite overlaps a period.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @param startDate the <code>LocalDate</code> start, inclusive.
+   * @param endDate the <code>LocalDate</code> end, exclusive.
+   * @param exceptBookingId the <code>Long</code> booking id to ignore, optional.
+   * @return true if a reservation overlaps the period.
+   */
+  boolean overlaps(Long campsiteId, LocalDate startDate, LocalDate endDate,
+      Long exceptBookingId);
+
+  /**
+   * Finds the active reservations of a campsite overlapping a period.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @param startDate the <code>LocalDate</code> start, inclusive.
+   * @param endDate the <code>LocalDate</code> end, exclusive.
+   * @return the <code>List<Reservation></code> in the period.
+   */
+  List<Reservation> getReservationsInPeriod(Long campsiteId, LocalDate startDate,
+      LocalDate endDate);
+
+  /**
+   * Finds the active reservations of every campsite departing after a date.
+   *
+   * @param date the <code>LocalDate</code> from.
+   * @return the <code>List<Reservation></code> still active at that date.
+   */
+  List<Reservation> getActiveReservationsFrom(LocalDate date);
+
+  /**
+   * Finds the views of the active reservations of every campsite departing after a date.
+   *
+   * @param date the <code>LocalDate</code> from.
+   * @return the <code>List<ReservationView></code> still active at that date.
+   */
+  List<ReservationView> getActiveViewsFrom(LocalDate date);
+
+  /**
+   * Finds the view of a reservation by its booking id.
+   *
+   * @param bookingId the <code>Long</code> booking id.
+   * @return the <code>ReservationView</code>, if any.
+   */
+  Optional<ReservationView> findViewById(Long bookingId);
+
+  /**
+   * Finds the views of reservations by their booking ids, by arrival date.
+   *
+   * @param bookingIds the <code>Collection<Long></code> booking ids.
+   * @return the <code>List<ReservationView></code> found.
+   */
+  List<ReservationView> findViewsByIds(Collection<Long> bookingIds);
+
+  /**
+   * Finds the views of the active reservations of a campsite overlapping a period, by arrival
+   * date.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @param startDate the <code>LocalDate</code> start, inclusive.
+   * @param endDate the <code>LocalDate</code> end, exclusive.
+   * @return the <code>List<ReservationView></code> in the period.
+   */
+  List<ReservationView> getViewsInPeriod(Long campsiteId, LocalDate startDate,
+      LocalDate endDate);
+
+  /**
+   * Streams the views of the active reservations of a campsite overlapping a period, by arrival
+   * date. The stream must be closed, and consumed inside a transaction.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @param startDate the <code>LocalDate</code> start, inclusive.
+   * @param endDate the <code>LocalDate</code> end, exclusive.
+   * @return the <code>Stream<ReservationView></code> in the period.
+   */
+  Stream<ReservationView> streamViewsInPeriod(Long campsiteId, LocalDate startDate,
+      LocalDate endDate);
+
+  /**
+   * Streams the views of every reservation overlapping a period, whatever its status and campsite,
+   * by arrival date and booking id. The stream must be closed, and consumed inside a transaction.
+   *
+   * @param startDate the <code>LocalDate</code> start, inclusive.
+   * @param endDate the <code>LocalDate</code> end, exclusive.
+   * @return the <code>Stream<ReservationView></code> in the period.
+   */
+  Stream<ReservationView> streamAllViewsInPeriod(LocalDate startDate, LocalDate endDate);
+
+  /**
+   * Finds the views of all the held reservations.
+   *
+   * @return the <code>List<ReservationView></code> held.
+   */
+  List<ReservationView> getHolds();
+
+  /**
+   * Cancels, all at once, the held reservations among the given ones whose hold expired,
+   * releasing their nights. Reservations no longer held are left untouched.
+   *
+   * @param bookingIds the <code>Collection<Long></code> booking ids.
+   * @param now the <code>Instant</code> holds expired at.
+   * @return the <code>List<ReservationView></code> of the expired holds, as they were held.
+   */
+  List<ReservationView> expireHolds(Collection<Long> bookingIds, Instant now);
+
+  /**
+   * Confirms a held reservation, if its hold did not expire.
+   *
+   * @param bookingId the <code>Long</code> booking id.
+   * @param now the <code>Instant</code> of the confirmation.
+   * @return true if the reservation was held and is now confirmed.
+   */
+  boolean confirmHold(Long bookingId, Instant now);
+}
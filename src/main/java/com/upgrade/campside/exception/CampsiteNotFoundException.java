@@ -0,0 +1,23 @@
+package com.upgrade.campside.exception;
+
+/**
+ * Custom exception for campsite not found.
+ * Status code is 404 Not Found.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+public class CampsiteNotFoundException extends Exception {
+
+  private final int CODE = 404;
+  private static final String MESSAGE = "Campsite with id %d not found.";
+
+  public CampsiteNotFoundException(Long campsiteId) {
+    super(String.format(MESSAGE, campsiteId));
+  }
+
+  public int getCode() {
+    return CODE;
+  }
+}
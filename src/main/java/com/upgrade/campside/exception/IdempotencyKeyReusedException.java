@@ -0,0 +1,24 @@
+package com.upgrade.campside.exception;
+
+/**
+ * Custom exception for an idempotency key already used by a different request.
+ * Status code is 422 Unprocessable Entity.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+  private final int CODE = 422;
+  private static final String MESSAGE =
+      "Idempotency key %s was already used for a different request.";
+
+  public IdempotencyKeyReusedException(String key) {
+    super(String.format(MESSAGE, key));
+  }
+
+  public int getCode() {
+    return CODE;
+  }
+}
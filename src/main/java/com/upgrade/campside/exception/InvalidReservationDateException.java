@@ -2,7 +2,8 @@ package com.upgrade.campside.exception;
 
 /**
  * Custom exception for constraint date violation when try to book a reservation.
- * Status code is 400 Bad Request.
+ * Status code is 400 Bad Request. The violated <code>Rule</code> is kept to count rejections
+ * per rule.
  *
  * @author Olavo Holanda
  * @version 0.1
@@ -11,12 +12,25 @@ package com.upgrade.campside.exception;
 public class InvalidReservationDateException extends Exception {
 
   private final int CODE = 400;
+  private final Rule rule;
 
-  public InvalidReservationDateException(String message) {
+  public InvalidReservationDateException(String message, Rule rule) {
     super(message);
+    this.rule = rule;
   }
 
   public int getCode() {
     return CODE;
   }
+
+  public Rule getRule() {
+    return rule;
+  }
+
+  /**
+   * Date constraints of a reservation.
+   */
+  public enum Rule {
+    DEPARTURE_BEFORE_ARRIVAL, TOO_LATE, TOO_SOON, MAX_DAYS, ALREADY_RESERVED, CONFLICT, NOT_HELD
+  }
 }
@@ -0,0 +1,24 @@
+package com.upgrade.campside.exception;
+
+/**
+ * Custom exception for a reservation whose nights were claimed by another reservation in the
+ * database, after the overlap checks passed. As any other date constraint violation the status
+ * code is 400 Bad Request, but nothing written in the same transaction can be committed.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+public class ReservationConflictException extends InvalidReservationDateException {
+
+  public static final String ALREADY_RESERVED =
+      "Already reserved. The campside is not available during this requested time.";
+
+  public ReservationConflictException() {
+    this(ALREADY_RESERVED);
+  }
+
+  public ReservationConflictException(String message) {
+    super(message, Rule.CONFLICT);
+  }
+}
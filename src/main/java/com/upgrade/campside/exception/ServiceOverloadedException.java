@@ -0,0 +1,28 @@
+package com.upgrade.campside.exception;
+
+/**
+ * Custom exception for requests rejected because the service has too much pending work.
+ * Status code is 503 Service Unavailable, and the caller should retry after the given delay.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+public class ServiceOverloadedException extends Exception {
+
+  private final int CODE = 503;
+  private final long retryAfterSeconds;
+
+  public ServiceOverloadedException(String message, long retryAfterSeconds) {
+    super(message);
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  public int getCode() {
+    return CODE;
+  }
+
+  public long getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+}
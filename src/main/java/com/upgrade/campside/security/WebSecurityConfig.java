@@ -1,15 +1,24 @@
 package com.upgrade.campside.security;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
-import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 
 /**
  * Spring security configuration class. In this class is every configuration for credentials and
- * authorization for http requests. For now, is authorizing all requests.
+ * authorization for http requests. The administrative endpoints, under <code>/api/admin</code>,
+ * the creation of campsites and the reservation export, holding the personal data of every owner,
+ * require HTTP Basic credentials of a user with the ADMIN role, every other request is
+ * authorized.
+ *
+ * The only admin user is configured by <code>campside.admin.username</code> and
+ * <code>campside.admin.password</code>, an encoded password such as <code>{bcrypt}...</code>.
+ * Without a password there is no admin user, and the administrative endpoints are closed.
  *
  * @author Olavo Holanda
  * @version 0.1
@@ -19,14 +28,42 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 @EnableWebSecurity
 public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
+  static final String ADMIN_ROLE = "ADMIN";
+
+  @Value("${campside.admin.username:admin}")
+  private String adminUsername;
+
+  @Value("${campside.admin.password:}")
+  private String adminPassword;
+
   /**
-   * Configures <code>HttpSecurity</code> to permit any request for anonymous users.
+   * Configures <code>HttpSecurity</code> to require the ADMIN role on the administrative endpoints,
+   * the campsite creation and the reservation export, and to permit any other request for
+   * anonymous users.
    *
    * @param http a <code>HttpSecurity</code> object.
    */
   @Override
   protected void configure(HttpSecurity http) throws Exception {
-    http.csrf().disable().authorizeRequests()
+    http.csrf().disable().httpBasic().and().authorizeRequests()
+        .antMatchers("/api/admin/**").hasRole(ADMIN_ROLE)
+        .mvcMatchers("/api/reservation/export").hasRole(ADMIN_ROLE)
+        .mvcMatchers(HttpMethod.POST, "/api/campsite").hasRole(ADMIN_ROLE)
         .anyRequest().permitAll();
   }
+
+  /**
+   * Configures the admin user, when its password is set.
+   *
+   * @param auth a <code>AuthenticationManagerBuilder</code> object.
+   */
+  @Override
+  protected void configure(AuthenticationManagerBuilder auth) throws Exception {
+    if (this.adminPassword.isEmpty()) {
+      return;
+    }
+    auth.inMemoryAuthentication()
+        .passwordEncoder(PasswordEncoderFactories.createDelegatingPasswordEncoder())
+        .withUser(this.adminUsername).password(this.adminPassword).roles(ADMIN_ROLE);
+  }
 }
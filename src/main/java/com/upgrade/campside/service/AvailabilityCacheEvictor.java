@@ -0,0 +1,83 @@
+package com.upgrade.campside.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.upgrade.campside.domain.model.DateRange;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.function.Predicate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * The <code>AvailabilityCacheEvictor</code> class keeps the availability cache consistent with
+ * the read model. The <code>ReservationQueryService</code> calls it once a change is applied to
+ * the model, so a period evicted is never refilled from a model missing the change. Only the
+ * cached periods of the same campsite that share a night with the change are evicted, every
+ * other cached period stays valid.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Component
+public class AvailabilityCacheEvictor {
+
+  public static final String AVAILABILITY_CACHE = "availability";
+
+  private final CacheManager cacheManager;
+
+  /**
+   * Class constructor with AutoWired dependencies injection.
+   */
+  @Autowired
+  public AvailabilityCacheEvictor(CacheManager cacheManager) {
+    this.cacheManager = cacheManager;
+  }
+
+  /**
+   * Evicts the cached periods of a campsite sharing a night with a stay.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @param nights the <code>DateRange</code> with the changed nights.
+   */
+  public void evict(Long campsiteId, DateRange nights) {
+    evictIf(key -> key.getCampsiteId().equals(campsiteId) && key.getPeriod().intersects(nights));
+  }
+
+  /**
+   * Evicts every cached period of a campsite.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   */
+  public void evictCampsite(Long campsiteId) {
+    evictIf(key -> key.getCampsiteId().equals(campsiteId));
+  }
+
+  /**
+   * Evicts every cached period starting before a day, the ones read from the store instead of the
+   * read model.
+   *
+   * @param day the <code>LocalDate</code> the read model starts from.
+   */
+  public void evictStartingBefore(LocalDate day) {
+    evictIf(key -> key.getPeriod().getStart().isBefore(day));
+  }
+
+  private void evictIf(Predicate<CampsitePeriod> affected) {
+    org.springframework.cache.Cache cache = cacheManager.getCache(AVAILABILITY_CACHE);
+    if (cache == null) {
+      return;
+    }
+
+    Object nativeCache = cache.getNativeCache();
+    Map<?, ?> entries = nativeCache instanceof Cache ? ((Cache<?, ?>) nativeCache).asMap()
+        : nativeCache instanceof Map ? (Map<?, ?>) nativeCache : null;
+    if (entries == null) {
+      cache.clear();
+      return;
+    }
+    entries.keySet().removeIf(key -> !(key instanceof CampsitePeriod)
+        || affected.test((CampsitePeriod) key));
+  }
+}
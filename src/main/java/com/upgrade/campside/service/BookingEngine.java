@@ -0,0 +1,103 @@
+package com.upgrade.campside.service;
+
+import com.upgrade.campside.domain.model.Reservation;
+import com.upgrade.campside.exception.InvalidReservationDateException;
+import com.upgrade.campside.exception.ReservationNotFoundException;
+import com.upgrade.campside.exception.ServiceOverloadedException;
+import java.time.LocalDate;
+
+/**
+ * Contract for the write operations on reservations. The <code>ReservationService</code> runs each
+ * write directly on the caller thread, the <code>SequencedBookingEngine</code> hands them to the
+ * writer thread of their campsite. The engine is chosen by the <code>campside.booking.engine</code>
+ * property.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+public interface BookingEngine {
+
+  /**
+   * Creates a new CONFIRMED <code>Reservation</code>.
+   *
+   * @param campsiteId the <code>Long</code> id of the campsite to reserve.
+   * @param email the <code>String</code> holding the person's email.
+   * @param fullName the <code>String</code> holding the person's full name.
+   * @param arrival the <code>LocalDate</code> arrival.
+   * @param departure the <code>LocalDate</code> departure.
+   * @return a new, persisted, reservation.
+   * @throws InvalidReservationDateException the dates constraints fail
+   * @throws ServiceOverloadedException too many pending writes
+   */
+  Reservation createReservation(Long campsiteId, String email, String fullName,
+      LocalDate arrival, LocalDate departure)
+      throws InvalidReservationDateException, ServiceOverloadedException;
+
+  /**
+   * Updates a specific <code>Reservation</code> dates based on its booking id.
+   *
+   * @param bookingId the <code>Long</code> holding the booking id.
+   * @param newArrival the <code>LocalDate</code> arrival.
+   * @param newDeparture the <code>LocalDate</code> departure.
+   * @return an updated reservation.
+   * @throws InvalidReservationDateException the dates constraints fail
+   * @throws ReservationNotFoundException reservation not found
+   * @throws ServiceOverloadedException too many pending writes
+   */
+  Reservation updateReservationDates(Long bookingId, LocalDate newArrival, LocalDate newDeparture)
+      throws InvalidReservationDateException, ReservationNotFoundException,
+      ServiceOverloadedException;
+
+  /**
+   * Cancels a specific <code>Reservation</code> based on its booking id.
+   *
+   * @param bookingId the <code>Long</code> holding the booking id.
+   * @return an updated reservation.
+   * @throws ReservationNotFoundException reservation not found
+   * @throws ServiceOverloadedException too many pending writes
+   */
+  Reservation cancelReservation(Long bookingId)
+      throws ReservationNotFoundException, ServiceOverloadedException;
+
+  /**
+   * Creates a new HELD <code>Reservation</code>, blocking its nights until the hold is confirmed,
+   * released or expires.
+   *
+   * @param campsiteId the <code>Long</code> id of the campsite to reserve.
+   * @param email the <code>String</code> holding the person's email.
+   * @param fullName the <code>String</code> holding the person's full name.
+   * @param arrival the <code>LocalDate</code> arrival.
+   * @param departure the <code>LocalDate</code> departure.
+   * @return a new, persisted, held reservation.
+   * @throws InvalidReservationDateException the dates constraints fail
+   * @throws ServiceOverloadedException too many pending writes
+   */
+  Reservation holdReservation(Long campsiteId, String email, String fullName,
+      LocalDate arrival, LocalDate departure)
+      throws InvalidReservationDateException, ServiceOverloadedException;
+
+  /**
+   * Confirms a held <code>Reservation</code> before its hold expires.
+   *
+   * @param bookingId the <code>Long</code> holding the booking id.
+   * @return the confirmed reservation.
+   * @throws InvalidReservationDateException the reservation is not held or its hold expired
+   * @throws ReservationNotFoundException reservation not found
+   * @throws ServiceOverloadedException too many pending writes
+   */
+  Reservation confirmHold(Long bookingId) throws InvalidReservationDateException,
+      ReservationNotFoundException, ServiceOverloadedException;
+
+  /**
+   * Releases a held <code>Reservation</code>, canceling it.
+   *
+   * @param bookingId the <code>Long</code> holding the booking id.
+   * @return the canceled reservation.
+   * @throws InvalidReservationDateException the reservation is confirmed
+   * @throws ReservationNotFoundException reservation not found
+   * @throws ServiceOverloadedException too many pending writes
+   */
+  Reservation releaseHold(Long bookingId) throws InvalidReservationDateException,
+      ReservationNotFoundException, ServiceOverloadedException;
+}
@@ -0,0 +1,40 @@
+package com.upgrade.campside.service;
+
+import java.time.LocalDate;
+import lombok.Getter;
+
+/**
+ * The <code>BookingRequest</code> class holds one reservation to create in a batch, with the same
+ * information given to <code>createReservation</code>.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Getter
+public class BookingRequest {
+
+  private final Long campsiteId;
+  private final String email;
+  private final String fullName;
+  private final LocalDate arrivalDate;
+  private final LocalDate departureDate;
+
+  /**
+   * <code>BookingRequest</code> constructor.
+   *
+   * @param campsiteId the <code>Long</code> id of the campsite to reserve.
+   * @param email the <code>String</code> holding the person's email.
+   * @param fullName the <code>String</code> holding the person's full name.
+   * @param arrivalDate the <code>LocalDate</code> arrival.
+   * @param departureDate the <code>LocalDate</code> departure.
+   */
+  public BookingRequest(Long campsiteId, String email, String fullName, LocalDate arrivalDate,
+      LocalDate departureDate) {
+    this.campsiteId = campsiteId;
+    this.email = email;
+    this.fullName = fullName;
+    this.arrivalDate = arrivalDate;
+    this.departureDate = departureDate;
+  }
+}
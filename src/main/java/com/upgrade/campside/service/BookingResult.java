@@ -0,0 +1,52 @@
+package com.upgrade.campside.service;
+
+import com.upgrade.campside.domain.model.Reservation;
+import com.upgrade.campside.exception.InvalidReservationDateException;
+import lombok.Getter;
+
+/**
+ * The <code>BookingResult</code> class is the outcome of one <code>BookingRequest</code> of a
+ * batch: either the created reservation, or the reason and violated rule of its rejection.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Getter
+public class BookingResult {
+
+  private final Reservation reservation;
+  private final String reason;
+  private final InvalidReservationDateException.Rule rule;
+
+  private BookingResult(Reservation reservation, String reason,
+      InvalidReservationDateException.Rule rule) {
+    this.reservation = reservation;
+    this.reason = reason;
+    this.rule = rule;
+  }
+
+  /**
+   * Result of a created reservation.
+   *
+   * @param reservation the created <code>Reservation</code>.
+   * @return the result.
+   */
+  public static BookingResult created(Reservation reservation) {
+    return new BookingResult(reservation, null, null);
+  }
+
+  /**
+   * Result of a rejected reservation.
+   *
+   * @param ex the <code>InvalidReservationDateException</code> rejecting it.
+   * @return the result.
+   */
+  public static BookingResult rejected(InvalidReservationDateException ex) {
+    return new BookingResult(null, ex.getMessage(), ex.getRule());
+  }
+
+  public boolean isCreated() {
+    return reservation != null;
+  }
+}
@@ -0,0 +1,39 @@
+package com.upgrade.campside.service;
+
+import com.upgrade.campside.domain.model.DateRange;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * The <code>CampsitePeriod</code> class is an immutable value holding a period of nights of one
+ * campsite, e.g. a stay accepted in a batch, which only conflicts with the periods of the same
+ * campsite. It is also the key of the availability cache, so a change on one campsite never
+ * evicts the cached periods of another.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Getter
+@EqualsAndHashCode
+public final class CampsitePeriod {
+
+  private final Long campsiteId;
+  private final DateRange period;
+
+  /**
+   * <code>CampsitePeriod</code> constructor.
+   *
+   * @param campsiteId the <code>Long</code> campsite id
+   * @param period the <code>DateRange</code> with the nights
+   */
+  public CampsitePeriod(Long campsiteId, DateRange period) {
+    this.campsiteId = campsiteId;
+    this.period = period;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("CampsitePeriod[campsite=%d, period=%s]", campsiteId, period);
+  }
+}
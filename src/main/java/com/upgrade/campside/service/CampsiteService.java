@@ -0,0 +1,93 @@
+package com.upgrade.campside.service;
+
+import com.upgrade.campside.domain.model.Campsite;
+import com.upgrade.campside.domain.repository.CampsiteRepository;
+import com.upgrade.campside.exception.CampsiteNotFoundException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * The <code>CampsiteService</code> class is responsible for operations regarding campsites.
+ * Campsites are never deleted, so the ids of the known campsites are kept in memory and every
+ * reservation request is checked against them without a query. An unknown id is looked up in the
+ * database once, picking up the campsites created by other instances.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Service
+public class CampsiteService {
+
+  private final CampsiteRepository repository;
+  private final Set<Long> knownIds = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Class constructor with AutoWired dependencies injection.
+   */
+  @Autowired
+  public CampsiteService(CampsiteRepository repository) {
+    this.repository = repository;
+  }
+
+  /**
+   * Loads the ids of the existing campsites.
+   */
+  @PostConstruct
+  public void loadIds() {
+    knownIds.addAll(repository.findAllIds());
+  }
+
+  /**
+   * Creates a new <code>Campsite</code>.
+   *
+   * @param name the <code>String</code> name of the campsite.
+   * @return the new, persisted, campsite.
+   */
+  public Campsite createCampsite(String name) {
+    Campsite saved = repository.save(new Campsite(name));
+    knownIds.add(saved.getId());
+    return saved;
+  }
+
+  /**
+   * Retrieves a <code>Campsite</code> by its id.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @return the campsite.
+   * @throws CampsiteNotFoundException campsite not found
+   */
+  public Campsite getCampsite(Long campsiteId) throws CampsiteNotFoundException {
+    return repository.findById(campsiteId)
+        .orElseThrow(() -> new CampsiteNotFoundException(campsiteId));
+  }
+
+  /**
+   * Retrieves every <code>Campsite</code>.
+   *
+   * @return a <code>List<Campsite></code> with all campsites.
+   */
+  public List<Campsite> getCampsites() {
+    return repository.findAll();
+  }
+
+  /**
+   * Checks that a campsite exists.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @throws CampsiteNotFoundException campsite not found
+   */
+  public void checkExists(Long campsiteId) throws CampsiteNotFoundException {
+    if (knownIds.contains(campsiteId)) {
+      return;
+    }
+    if (!repository.existsById(campsiteId)) {
+      throw new CampsiteNotFoundException(campsiteId);
+    }
+    knownIds.add(campsiteId);
+  }
+}
@@ -0,0 +1,279 @@
+package com.upgrade.campside.service;
+
+import com.upgrade.campside.exception.ServiceOverloadedException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The <code>ConcurrencyLimiter</code> class bounds the number of requests in flight, with a limit
+ * adapted to the observed latency by a gradient algorithm. Latency samples are aggregated by
+ * window; at the end of each window the short-term latency, the window average, is compared with
+ * the long-term latency, an exponential average of the windows:
+ *
+ * <pre>
+ *   gradient = clamp(tolerance * longRtt / shortRtt, 0.5, 1)
+ *   limit    = (1 - smoothing) * limit + smoothing * (gradient * limit + sqrt(limit))
+ * </pre>
+ *
+ * While latency holds the limit grows by its square root each window; once requests queue up
+ * behind a bottleneck, latency rises and the limit shrinks until it drains. A window where
+ * requests were dropped downstream, e.g. the sequencer queue was full, backs the limit off. The
+ * limit does not grow in windows using less than half of it, so an idle period does not inflate
+ * it.
+ *
+ * Requests beyond the limit wait in a bounded queue for a short time, and are rejected right away
+ * with a <code>ServiceOverloadedException</code> once the queue is full or the wait is over.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+public class ConcurrencyLimiter {
+
+  private static final double TOLERANCE = 1.5;
+  private static final double SMOOTHING = 0.2;
+  private static final double BACKOFF = 0.9;
+  private static final double LONG_RTT_DECAY = 0.95;
+  private static final int LONG_RTT_WINDOWS = 100;
+  private static final int MIN_WINDOW_SAMPLES = 10;
+
+  private final String name;
+  private final int minLimit;
+  private final int maxLimit;
+  private final int maxQueue;
+  private final long maxWaitNanos;
+  private final long windowNanos;
+  private final long retryAfterSeconds;
+
+  private final ReentrantLock lock = new ReentrantLock(true);
+  private final Condition permitReleased = lock.newCondition();
+
+  private double limit;
+  private int inFlight;
+  private int waiting;
+  private double longRtt;
+
+  private long windowStart;
+  private long windowRttSum;
+  private int windowSamples;
+  private int windowMaxInFlight;
+  private boolean windowDropped;
+
+  /**
+   * <code>ConcurrencyLimiter</code> constructor.
+   *
+   * @param name the name of the limiter, e.g. read or write.
+   * @param initialLimit the limit before any latency was observed.
+   * @param minLimit the lowest limit.
+   * @param maxLimit the highest limit.
+   * @param maxQueue the maximum number of requests waiting for a permit.
+   * @param maxWaitMillis the maximum time a request waits for a permit, in milliseconds.
+   * @param windowMillis the minimum duration of a sampling window, in milliseconds.
+   * @param retryAfterSeconds the delay rejected requests should be retried after, in seconds.
+   */
+  public ConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+      int maxQueue, long maxWaitMillis, long windowMillis, long retryAfterSeconds) {
+    this.name = name;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.maxQueue = maxQueue;
+    this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    this.retryAfterSeconds = retryAfterSeconds;
+    this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    this.windowStart = System.nanoTime();
+  }
+
+  /**
+   * Acquires a permit, waiting for one in the queue if the limit is reached.
+   *
+   * @return the <code>Permit</code>, to be released once the request is done.
+   * @throws ServiceOverloadedException the queue is full or no permit was released in time
+   */
+  public Permit acquire() throws ServiceOverloadedException {
+    lock.lock();
+    try {
+      if (inFlight >= (int) limit) {
+        if (waiting >= maxQueue) {
+          throw overloaded();
+        }
+        waiting++;
+        try {
+          long remaining = maxWaitNanos;
+          while (inFlight >= (int) limit) {
+            if (remaining <= 0) {
+              throw overloaded();
+            }
+            remaining = permitReleased.awaitNanos(remaining);
+          }
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          throw overloaded();
+        } finally {
+          waiting--;
+        }
+      }
+      inFlight++;
+      return new Permit(System.nanoTime(), inFlight);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * The current limit of requests in flight.
+   *
+   * @return the limit.
+   */
+  public int getLimit() {
+    lock.lock();
+    try {
+      return (int) limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * The number of requests holding a permit.
+   *
+   * @return the requests in flight.
+   */
+  public int getInFlight() {
+    lock.lock();
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * The number of requests waiting for a permit.
+   *
+   * @return the requests waiting.
+   */
+  public int getWaiting() {
+    lock.lock();
+    try {
+      return waiting;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Releases a permit and samples its latency, closing the window when due.
+   */
+  private void release(long rttNanos, int inFlightAtStart, boolean dropped) {
+    lock.lock();
+    try {
+      inFlight--;
+      sample(System.nanoTime(), rttNanos, inFlightAtStart, dropped);
+      permitReleased.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Adds a latency sample to the current window, and updates the limit when the window is over.
+   */
+  void sample(long now, long rttNanos, int inFlightAtStart, boolean dropped) {
+    lock.lock();
+    try {
+      windowRttSum += rttNanos;
+      windowSamples++;
+      windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtStart);
+      windowDropped |= dropped;
+      if (windowSamples < MIN_WINDOW_SAMPLES || now - windowStart < windowNanos) {
+        return;
+      }
+
+      int previous = (int) limit;
+      updateLimit((double) windowRttSum / windowSamples);
+      if ((int) limit > previous) {
+        permitReleased.signalAll();
+      }
+      windowStart = now;
+      windowRttSum = 0;
+      windowSamples = 0;
+      windowMaxInFlight = 0;
+      windowDropped = false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void updateLimit(double shortRtt) {
+    if (windowDropped) {
+      limit = Math.max(minLimit, limit * BACKOFF);
+      return;
+    }
+    if (longRtt == 0) {
+      longRtt = shortRtt;
+    } else {
+      longRtt += (shortRtt - longRtt) / LONG_RTT_WINDOWS;
+      // Let the baseline follow a lasting drop of the latency, e.g. after a slow warmup
+      if (longRtt / shortRtt > 2) {
+        longRtt *= LONG_RTT_DECAY;
+      }
+    }
+    if (windowMaxInFlight < limit / 2) {
+      return;
+    }
+
+    double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+    double target = gradient * limit + Math.sqrt(limit);
+    limit = Math.max(minLimit, Math.min(maxLimit,
+        (1 - SMOOTHING) * limit + SMOOTHING * target));
+  }
+
+  private ServiceOverloadedException overloaded() {
+    return new ServiceOverloadedException(
+        String.format("Too many pending %s requests. Please try again later.", name),
+        retryAfterSeconds);
+  }
+
+  /**
+   * A permit to run one request, released once with its outcome.
+   */
+  public final class Permit {
+
+    private final long start;
+    private final int inFlightAtStart;
+    private boolean released;
+
+    private Permit(long start, int inFlightAtStart) {
+      this.start = start;
+      this.inFlightAtStart = inFlightAtStart;
+    }
+
+    /**
+     * Releases the permit of a request that completed, sampling its latency.
+     */
+    public void onSuccess() {
+      release(false);
+    }
+
+    /**
+     * Releases the permit of a request dropped downstream for overload, backing the limit off.
+     */
+    public void onDropped() {
+      release(true);
+    }
+
+    private void release(boolean dropped) {
+      if (released) {
+        return;
+      }
+      released = true;
+      ConcurrencyLimiter.this.release(System.nanoTime() - start, inFlightAtStart, dropped);
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package com.upgrade.campside.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The <code>HoldTimingWheel</code> class expires reservation holds in process, without polling
+ * the database. It is a hashed timing wheel: a ring of buckets, one per tick, where each hold is
+ * put in the bucket of its deadline tick, modulo the ring size. Scheduling a hold is a queue
+ * offer; a single worker thread moves new holds into their buckets and, on every tick, collects
+ * the holds whose deadline passed from the current bucket. Holds further than one turn of the
+ * wheel stay in their bucket until their turn comes. Every hold expired by a tick, or by the
+ * ticks missed during a pause, is handed over in one batch.
+ *
+ * A hold never expires before its deadline and at most one tick after it. Confirmed or released
+ * holds are not removed from the wheel, expiring them again is expected to be a no-op.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+public class HoldTimingWheel {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(HoldTimingWheel.class);
+
+  private final long tickMillis;
+  private final long startMillis;
+  private final List<Timeout>[] buckets;
+  private final int mask;
+  private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+  private final Consumer<List<Long>> expire;
+  private long currentTick;
+  private volatile boolean running;
+  private Thread worker;
+
+  /**
+   * <code>HoldTimingWheel</code> constructor.
+   *
+   * @param tickMillis the tick duration, in milliseconds.
+   * @param wheelSize the number of buckets, a power of two.
+   * @param startMillis the wall clock time of the first tick, in milliseconds.
+   * @param expire the <code>Consumer<List<Long>></code> called with the booking ids of each batch
+   *     of expired holds.
+   */
+  @SuppressWarnings("unchecked")
+  public HoldTimingWheel(long tickMillis, int wheelSize, long startMillis,
+      Consumer<List<Long>> expire) {
+    if (Integer.bitCount(wheelSize) != 1) {
+      throw new IllegalArgumentException("The wheel size must be a power of two: " + wheelSize);
+    }
+    this.tickMillis = tickMillis;
+    this.startMillis = startMillis;
+    this.buckets = new List[wheelSize];
+    for (int i = 0; i < wheelSize; i++) {
+      this.buckets[i] = new LinkedList<>();
+    }
+    this.mask = wheelSize - 1;
+    this.expire = expire;
+  }
+
+  /**
+   * Starts the worker thread, ticking on the wall clock.
+   */
+  public void start() {
+    this.running = true;
+    this.worker = new Thread(this::run, "hold-timing-wheel");
+    this.worker.setDaemon(true);
+    this.worker.start();
+  }
+
+  /**
+   * Stops the worker thread. Scheduled holds are kept.
+   */
+  public void stop() throws InterruptedException {
+    this.running = false;
+    if (this.worker != null) {
+      this.worker.interrupt();
+      this.worker.join(this.tickMillis * 2);
+    }
+  }
+
+  /**
+   * Schedules the expiry of a hold. Thread safe.
+   *
+   * @param bookingId the <code>Long</code> booking id of the hold.
+   * @param deadline the <code>Instant</code> the hold expires.
+   */
+  public void schedule(Long bookingId, Instant deadline) {
+    this.pending.offer(new Timeout(bookingId, deadline.toEpochMilli()));
+  }
+
+  /**
+   * Processes every tick up to a time, expiring the holds whose deadline passed in one batch.
+   * Called by the worker thread, or directly when the wheel is not started.
+   *
+   * @param nowMillis the wall clock time, in milliseconds.
+   */
+  synchronized void advanceTo(long nowMillis) {
+    for (Timeout timeout = this.pending.poll(); timeout != null; timeout = this.pending.poll()) {
+      long elapsed = Math.max(0, timeout.deadlineMillis - this.startMillis);
+      timeout.tick = Math.max((elapsed + this.tickMillis - 1) / this.tickMillis, this.currentTick);
+      this.buckets[(int) (timeout.tick & this.mask)].add(timeout);
+    }
+
+    List<Long> expired = new ArrayList<>();
+    long targetTick = (nowMillis - this.startMillis) / this.tickMillis;
+    for (; this.currentTick <= targetTick; this.currentTick++) {
+      Iterator<Timeout> bucket = this.buckets[(int) (this.currentTick & this.mask)].iterator();
+      while (bucket.hasNext()) {
+        Timeout timeout = bucket.next();
+        if (timeout.tick <= this.currentTick) {
+          expired.add(timeout.bookingId);
+          bucket.remove();
+        }
+      }
+    }
+
+    if (expired.isEmpty()) {
+      return;
+    }
+    try {
+      this.expire.accept(expired);
+    } catch (RuntimeException ex) {
+      LOGGER.warn("Failed to expire {} holds, retrying on the next tick", expired.size(), ex);
+      expired.forEach(bookingId -> this.pending.offer(new Timeout(bookingId, nowMillis)));
+    }
+  }
+
+  private void run() {
+    while (this.running) {
+      try {
+        Thread.sleep(this.tickMillis);
+        advanceTo(System.currentTimeMillis());
+      } catch (InterruptedException ex) {
+        return;
+      } catch (RuntimeException ex) {
+        LOGGER.error("Unexpected error in the hold timing wheel", ex);
+      }
+    }
+  }
+
+  /**
+   * A scheduled hold expiry and its deadline tick, set once it is put in a bucket.
+   */
+  private static class Timeout {
+
+    private final Long bookingId;
+    private final long deadlineMillis;
+    private long tick;
+
+    Timeout(Long bookingId, long deadlineMillis) {
+      this.bookingId = bookingId;
+      this.deadlineMillis = deadlineMillis;
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package com.upgrade.campside.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.upgrade.campside.exception.IdempotencyKeyReusedException;
+import com.upgrade.campside.exception.InvalidReservationDateException;
+import com.upgrade.campside.exception.ReservationNotFoundException;
+import com.upgrade.campside.exception.ServiceOverloadedException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The <code>IdempotencyStore</code> class remembers the outcome of the writes sent with an
+ * idempotency key, so a client retrying a write, e.g. after a timeout, gets the original outcome
+ * back without running it again: no validation, no transaction. A retry arriving while the
+ * original write is still running waits for it, up to the replay timeout, and is then told to
+ * retry later with a <code>ServiceOverloadedException</code>.
+ *
+ * Created reservations and rejections are remembered, an overloaded or failed write is not, so
+ * its retry runs again. Keys expire after a TTL, and the least recently used keys are evicted
+ * beyond the maximum size. A key is bound to the request it was first used with, reusing it for
+ * another request is refused with an <code>IdempotencyKeyReusedException</code>.
+ *
+ * Outcomes are kept in the memory of this instance only, they are neither shared nor persisted.
+ * Replay is therefore only guaranteed when every retry of a key reaches the instance that served
+ * it first, i.e. with sticky routing on the key, and while that instance is not restarted: a retry
+ * reaching another instance, or arriving after a restart or an eviction, runs the write again,
+ * and may book a second stay.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Component
+public class IdempotencyStore {
+
+  private static final long REPLAY_RETRY_AFTER_SECONDS = 1;
+
+  private final Cache<String, Entry> entries;
+  private final long replayTimeout;
+
+  /**
+   * Class constructor with AutoWired dependencies injection.
+   */
+  @Autowired
+  public IdempotencyStore(@Value("${campside.idempotency.ttl:86400000}") long ttl,
+      @Value("${campside.idempotency.max-keys:100000}") long maxKeys,
+      @Value("${campside.idempotency.replay-timeout:30000}") long replayTimeout) {
+    this.replayTimeout = replayTimeout;
+    this.entries = Caffeine.newBuilder()
+        .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+        .maximumSize(maxKeys)
+        .build();
+  }
+
+  /**
+   * Runs a write once per idempotency key, returning the remembered outcome on later calls.
+   *
+   * @param key the <code>String</code> idempotency key, scoped by the caller.
+   * @param fingerprint the <code>String</code> identifying the request, e.g. its body.
+   * @param write the <code>Write</code> to run.
+   * @return the outcome of the first call with this key.
+   * @throws IdempotencyKeyReusedException the key was used with another fingerprint
+   */
+  public <T> T execute(String key, String fingerprint, Write<T> write)
+      throws InvalidReservationDateException, ReservationNotFoundException,
+      ServiceOverloadedException {
+    Entry created = new Entry(fingerprint);
+    Entry entry = entries.asMap().putIfAbsent(key, created);
+    if (entry == null) {
+      return run(key, created, write);
+    }
+    if (!entry.fingerprint.equals(fingerprint)) {
+      throw new IdempotencyKeyReusedException(key);
+    }
+    return replay(entry);
+  }
+
+  /**
+   * Runs the first write of a key and completes its entry, whatever the write throws, so no
+   * retry waits for an entry that is never completed.
+   */
+  private <T> T run(String key, Entry entry, Write<T> write)
+      throws InvalidReservationDateException, ReservationNotFoundException,
+      ServiceOverloadedException {
+    try {
+      T outcome = write.run();
+      entry.outcome.complete(outcome);
+      return outcome;
+    } catch (InvalidReservationDateException | ReservationNotFoundException ex) {
+      entry.outcome.completeExceptionally(ex);
+      throw ex;
+    } catch (Throwable ex) {
+      entries.asMap().remove(key, entry);
+      entry.outcome.completeExceptionally(ex);
+      throw ex;
+    }
+  }
+
+  /**
+   * Returns the outcome of an entry, waiting for it up to the replay timeout if the first write is
+   * still running.
+   */
+  @SuppressWarnings("unchecked")
+  private <T> T replay(Entry entry) throws InvalidReservationDateException,
+      ReservationNotFoundException, ServiceOverloadedException {
+    try {
+      return (T) entry.outcome.get(replayTimeout, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(ex);
+    } catch (TimeoutException ex) {
+      throw new ServiceOverloadedException(
+          "The first request with this idempotency key is still running.",
+          REPLAY_RETRY_AFTER_SECONDS);
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof InvalidReservationDateException) {
+        throw (InvalidReservationDateException) cause;
+      }
+      if (cause instanceof ReservationNotFoundException) {
+        throw (ReservationNotFoundException) cause;
+      }
+      if (cause instanceof ServiceOverloadedException) {
+        throw (ServiceOverloadedException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  /**
+   * A write run at most once per idempotency key.
+   */
+  @FunctionalInterface
+  public interface Write<T> {
+
+    T run() throws InvalidReservationDateException, ReservationNotFoundException,
+        ServiceOverloadedException;
+  }
+
+  /**
+   * The request a key was first used with, and the outcome of its write.
+   */
+  private static class Entry {
+
+    private final String fingerprint;
+    private final CompletableFuture<Object> outcome = new CompletableFuture<>();
+
+    Entry(String fingerprint) {
+      this.fingerprint = fingerprint;
+    }
+  }
+}
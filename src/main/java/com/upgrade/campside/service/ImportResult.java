@@ -0,0 +1,54 @@
+package com.upgrade.campside.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * The <code>ImportResult</code> class is the outcome of a bulk import of reservations: how many
+ * lines were imported and rejected, and the line number and reason of the first rejections.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Getter
+public class ImportResult {
+
+  static final int MAX_REJECTIONS = 100;
+
+  private long imported;
+  private long rejected;
+  private final List<RejectedLine> rejections = new ArrayList<>();
+
+  void addImported(int count) {
+    this.imported += count;
+  }
+
+  void addRejected(long line, String reason) {
+    this.rejected++;
+    if (this.rejections.size() < MAX_REJECTIONS) {
+      this.rejections.add(new RejectedLine(line, reason));
+    }
+  }
+
+  public List<RejectedLine> getRejections() {
+    return Collections.unmodifiableList(this.rejections);
+  }
+
+  /**
+   * A line of the import that was rejected, and why.
+   */
+  @Getter
+  public static class RejectedLine {
+
+    private final long line;
+    private final String reason;
+
+    RejectedLine(long line, String reason) {
+      this.line = line;
+      this.reason = reason;
+    }
+  }
+}
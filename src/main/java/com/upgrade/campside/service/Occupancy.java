@@ -0,0 +1,57 @@
+package com.upgrade.campside.service;
+
+import com.upgrade.campside.domain.model.DateRange;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * The <code>Occupancy</code> class is a snapshot of the Campside occupied nights in a period,
+ * one bit per night, tagged with the calendar version it was taken at. The calendar version
+ * increases on every change, so two snapshots of the same period with the same version are equal.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Getter
+public class Occupancy {
+
+  private final DateRange period;
+  private final BitSet occupiedNights;
+  private final long version;
+
+  /**
+   * <code>Occupancy</code> constructor.
+   *
+   * @param period the <code>DateRange</code> of the snapshot
+   * @param occupiedNights the <code>BitSet</code> with one bit per night, from the period start
+   * @param version the calendar version of the snapshot
+   */
+  public Occupancy(DateRange period, BitSet occupiedNights, long version) {
+    this.period = period;
+    this.occupiedNights = occupiedNights;
+    this.version = version;
+  }
+
+  /**
+   * Run-length encodes the free nights of the period.
+   *
+   * @return a <code>List<DateRange></code> with the free ranges, in order.
+   */
+  public List<DateRange> getFreeRanges() {
+    List<DateRange> freeRanges = new ArrayList<>();
+    int nights = (int) period.getNights();
+    LocalDate start = period.getStart();
+    for (int from = occupiedNights.nextClearBit(0); from < nights;
+        from = occupiedNights.nextClearBit(from)) {
+      int next = occupiedNights.nextSetBit(from);
+      int to = next < 0 ? nights : Math.min(next, nights);
+      freeRanges.add(new DateRange(start.plusDays(from), start.plusDays(to)));
+      from = to;
+    }
+    return freeRanges;
+  }
+}
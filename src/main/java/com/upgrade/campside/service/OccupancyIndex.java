@@ -0,0 +1,470 @@
+package com.upgrade.campside.service;
+
+import com.upgrade.campside.domain.model.DateRange;
+import com.upgrade.campside.domain.model.Reservation;
+import com.upgrade.campside.domain.repository.ReservationStore;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * The <code>OccupancyIndex</code> class is an in-memory index of the occupied nights of every
+ * campsite. Each campsite has its own calendar, holding one bit per night, keyed by epoch day, and
+ * the booking id that owns each occupied night. A calendar covers a fixed window starting today,
+ * big enough for every bookable stay, and rolls forward daily. The store is still the source of
+ * truth: the index is built from the <code>ReservationStore</code> at startup, updated by the
+ * <code>ReservationService</code> after every committed write and periodically refreshed to pick
+ * up writes from other instances. It only ever holds committed nights, so a write rolled back
+ * never leaves a mark.
+ *
+ * A rebuild reads the store without holding any calendar lock, so writes keep being applied
+ * meanwhile. Every applied write takes the next change sequence and is recorded by its calendar:
+ * when the rebuild overwrites a calendar with what it read, it applies again the writes numbered
+ * after its read started, which the read may have missed, so a rebuild never drops a committed
+ * write nor brings back a canceled stay. Writes numbered before were committed before the read
+ * started, they are in it and their records are dropped.
+ *
+ * Calendars are independent: each one is guarded by its own lock and has its own version, so
+ * bookings on different campsites never wait for each other, and a change on one campsite does not
+ * invalidate what was read from another. A calendar is only created for the campsite of a
+ * stored reservation, at a rebuild or on its first occupied night; a campsite without calendar is
+ * read as empty, so an unknown campsite id never adds one.
+ *
+ * A night is identified by its date, so a stay from arrival to departure occupies the nights in
+ * [arrival, departure). Every change of the occupied nights of a campsite increases its calendar
+ * version.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Component
+public class OccupancyIndex {
+
+  static final int CAPACITY_DAYS = 128;
+  private static final long FREE = 0L;
+
+  private final ReservationStore store;
+  private final Map<Long, Calendar> calendars = new ConcurrentHashMap<>();
+  private final AtomicLong changeSequence = new AtomicLong();
+
+  /**
+   * Class constructor with AutoWired dependencies injection.
+   */
+  @Autowired
+  public OccupancyIndex(ReservationStore store) {
+    this.store = store;
+  }
+
+  /**
+   * Builds the calendars from the store, starting today, with one query for every campsite. The
+   * writes applied while the query runs are applied again on top of its result. Rebuilds run one
+   * at a time.
+   */
+  @PostConstruct
+  public synchronized void rebuild() {
+    LocalDate today = LocalDate.now();
+    long readFrom = this.changeSequence.get();
+    Map<Long, List<Reservation>> byCampsite = store.getActiveReservationsFrom(today).stream()
+        .collect(Collectors.groupingBy(Reservation::getCampsiteId));
+
+    Set<Long> campsiteIds = new HashSet<>(this.calendars.keySet());
+    campsiteIds.addAll(byCampsite.keySet());
+    for (Long campsiteId : campsiteIds) {
+      calendar(campsiteId).rebuild(today.toEpochDay(),
+          byCampsite.getOrDefault(campsiteId, Collections.emptyList()), readFrom);
+    }
+  }
+
+  /**
+   * Rebuilds the index from the store on a fixed delay, so bookings and cancellations made by
+   * other instances are eventually seen here. Overlaps missed in between are still rejected by the
+   * store night claims.
+   */
+  @Scheduled(fixedDelayString = "${campside.occupancy.refresh-interval:60000}",
+      initialDelayString = "${campside.occupancy.refresh-interval:60000}")
+  public void refresh() {
+    rebuild();
+  }
+
+  /**
+   * Moves the window of every calendar to start today, dropping past nights and keeping every
+   * claim in the future. Runs every day at midnight.
+   */
+  @Scheduled(cron = "0 0 0 * * *")
+  public void rollForward() {
+    long today = LocalDate.now().toEpochDay();
+    this.calendars.values().forEach(calendar -> calendar.rollForward(today));
+  }
+
+  /**
+   * Current calendar version of a campsite, increased on every change of its occupied nights.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @return the calendar version.
+   */
+  public long getVersion(Long campsiteId) {
+    return readCalendar(campsiteId).getVersion();
+  }
+
+  /**
+   * Takes a snapshot of the occupied nights of a campsite in a period. The period must be covered
+   * by the index.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @param period the <code>DateRange</code> with the nights.
+   * @return the <code>Occupancy</code> of the period at the current calendar version.
+   */
+  public Occupancy snapshot(Long campsiteId, DateRange period) {
+    return readCalendar(campsiteId).snapshot(period);
+  }
+
+  /**
+   * Finds every stay of the given number of nights that is free on a campsite and fits in a
+   * window. The calendar is scanned a word of 64 nights at a time: the free nights are ANDed with
+   * themselves shifted by one night, then two, and so on, so a bit stays set only if the stay
+   * arriving that night is free for its whole length. Nights outside the index window count as
+   * occupied.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @param window the <code>DateRange</code> every stay must fit in.
+   * @param nights the number of nights of the stays, at least one.
+   * @return the <code>StaySearch</code> with the feasible arrivals at the current version.
+   */
+  public StaySearch findFreeStays(Long campsiteId, DateRange window, int nights) {
+    return readCalendar(campsiteId).findFreeStays(window, nights);
+  }
+
+  /**
+   * Checks if every night in [start, end) is inside the window of a campsite calendar.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @param start the <code>LocalDate</code> first night.
+   * @param end the <code>LocalDate</code> exclusive end.
+   * @return true if the index can answer for this period, false otherwise
+   */
+  public boolean covers(Long campsiteId, LocalDate start, LocalDate end) {
+    return readCalendar(campsiteId).covers(start, end);
+  }
+
+  /**
+   * Checks if any night of a stay on a campsite is occupied. If bookingId is present then nights
+   * owned by that reservation are ignored.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @param arrival the <code>LocalDate</code> arrival.
+   * @param departure the <code>LocalDate</code> departure.
+   * @param bookingId the <code>Long</code> with reservation booking id, optional.
+   * @return true if at least one night is occupied, false otherwise
+   */
+  public boolean isOccupied(Long campsiteId, LocalDate arrival, LocalDate departure,
+      Long bookingId) {
+    return readCalendar(campsiteId).isOccupied(arrival, departure, bookingId);
+  }
+
+  /**
+   * Marks the nights of a stay on a campsite as occupied by a reservation, replacing any nights it
+   * previously held.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @param bookingId the <code>Long</code> with reservation booking id.
+   * @param arrival the <code>LocalDate</code> arrival.
+   * @param departure the <code>LocalDate</code> departure.
+   */
+  public void occupy(Long campsiteId, Long bookingId, LocalDate arrival, LocalDate departure) {
+    calendar(campsiteId).occupy(this.changeSequence.incrementAndGet(), bookingId, arrival,
+        departure);
+  }
+
+  /**
+   * Frees every night held by a reservation on a campsite.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @param bookingId the <code>Long</code> with reservation booking id.
+   */
+  public void release(Long campsiteId, Long bookingId) {
+    Calendar calendar = this.calendars.get(campsiteId);
+    if (calendar != null) {
+      calendar.release(this.changeSequence.incrementAndGet(), bookingId);
+    }
+  }
+
+  /**
+   * Lists the booking ids of the reservations occupying any night of a campsite in [start, end),
+   * in night order.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @param start the <code>LocalDate</code> first night.
+   * @param end the <code>LocalDate</code> exclusive end.
+   * @return a <code>Set<Long></code> with booking ids.
+   */
+  public Set<Long> getBookingIds(Long campsiteId, LocalDate start, LocalDate end) {
+    return readCalendar(campsiteId).getBookingIds(start, end);
+  }
+
+  /**
+   * The calendar of a campsite, created if missing. Only called with the campsite of a stored
+   * reservation, whose campsite exists.
+   */
+  private Calendar calendar(Long campsiteId) {
+    return this.calendars.computeIfAbsent(campsiteId,
+        id -> new Calendar(LocalDate.now().toEpochDay()));
+  }
+
+  /**
+   * The calendar of a campsite, or an empty one, not kept, when it has none: reads never add a
+   * calendar, so queries of unknown campsite ids can not grow the index.
+   */
+  private Calendar readCalendar(Long campsiteId) {
+    Calendar calendar = this.calendars.get(campsiteId);
+    return calendar != null ? calendar : new Calendar(LocalDate.now().toEpochDay());
+  }
+
+  /**
+   * A write applied to a calendar: the nights a reservation occupies from then on, none when it
+   * is released, numbered by the change sequence.
+   */
+  private static final class Change {
+
+    private final long sequence;
+    private final LocalDate arrival;
+    private final LocalDate departure;
+
+    Change(long sequence, LocalDate arrival, LocalDate departure) {
+      this.sequence = sequence;
+      this.arrival = arrival;
+      this.departure = departure;
+    }
+  }
+
+  /**
+   * The calendar of one campsite, every method holds its lock.
+   */
+  private static final class Calendar {
+
+    private long[] words = new long[CAPACITY_DAYS / Long.SIZE];
+    private long[] owners = new long[CAPACITY_DAYS];
+    private long baseDay;
+    private long version;
+    /**
+     * The last write applied to each reservation since the previous rebuild, in sequence order.
+     */
+    private final Map<Long, Change> changes = new LinkedHashMap<>();
+
+    Calendar(long baseDay) {
+      this.baseDay = baseDay;
+    }
+
+    synchronized void rebuild(long today, List<Reservation> reservations, long readFrom) {
+      long[] previousWords = this.words.clone();
+      long[] previousOwners = this.owners.clone();
+      long previousBaseDay = this.baseDay;
+
+      this.baseDay = today;
+      Arrays.fill(this.words, 0L);
+      Arrays.fill(this.owners, FREE);
+      for (Reservation reservation : reservations) {
+        mark(reservation.getBookingId(), reservation.getArrivalDate(),
+            reservation.getDepartureDate());
+      }
+
+      Iterator<Map.Entry<Long, Change>> iterator = this.changes.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<Long, Change> entry = iterator.next();
+        Change change = entry.getValue();
+        if (change.sequence <= readFrom) {
+          iterator.remove();
+          continue;
+        }
+        clear(entry.getKey());
+        if (change.arrival != null) {
+          mark(entry.getKey(), change.arrival, change.departure);
+        }
+      }
+
+      if (previousBaseDay != this.baseDay || !Arrays.equals(previousWords, this.words)
+          || !Arrays.equals(previousOwners, this.owners)) {
+        this.version++;
+      }
+    }
+
+    synchronized void rollForward(long today) {
+      int shift = (int) Math.min(today - this.baseDay, CAPACITY_DAYS);
+      if (shift <= 0) {
+        return;
+      }
+
+      long[] newWords = new long[this.words.length];
+      long[] newOwners = new long[CAPACITY_DAYS];
+      for (int night = shift; night < CAPACITY_DAYS; night++) {
+        if (isSet(night)) {
+          int target = night - shift;
+          newWords[target / Long.SIZE] |= 1L << (target % Long.SIZE);
+          newOwners[target] = this.owners[night];
+        }
+      }
+      this.words = newWords;
+      this.owners = newOwners;
+      this.baseDay = today;
+      this.version++;
+    }
+
+    synchronized long getVersion() {
+      return this.version;
+    }
+
+    synchronized Occupancy snapshot(DateRange period) {
+      BitSet occupiedNights = new BitSet();
+      int from = offset(period.getStart());
+      int to = offset(period.getEnd());
+      for (int night = from; night < to; night++) {
+        if (isSet(night)) {
+          occupiedNights.set(night - from);
+        }
+      }
+      return new Occupancy(period, occupiedNights, this.version);
+    }
+
+    synchronized StaySearch findFreeStays(DateRange window, int nights) {
+      int from = offset(window.getStart());
+      int lastArrival = offset(window.getEnd()) - nights;
+      if (window.getStart().toEpochDay() < this.baseDay || lastArrival < from) {
+        return new StaySearch(window, nights, new BitSet(), this.version);
+      }
+
+      long[] feasible = new long[this.words.length];
+      for (int word = 0; word < feasible.length; word++) {
+        feasible[word] = ~this.words[word];
+      }
+      for (int shift = 1; shift < nights; shift++) {
+        for (int word = 0; word < feasible.length; word++) {
+          long next = word + 1 < feasible.length ? ~this.words[word + 1] : 0L;
+          feasible[word] &= (~this.words[word] >>> shift) | (next << (Long.SIZE - shift));
+        }
+      }
+
+      BitSet arrivals = BitSet.valueOf(feasible).get(from, lastArrival + 1);
+      return new StaySearch(window, nights, arrivals, this.version);
+    }
+
+    synchronized boolean covers(LocalDate start, LocalDate end) {
+      return start.toEpochDay() >= this.baseDay
+          && end.toEpochDay() <= this.baseDay + CAPACITY_DAYS;
+    }
+
+    synchronized boolean isOccupied(LocalDate arrival, LocalDate departure, Long bookingId) {
+      int from = offset(arrival);
+      int to = offset(departure);
+      if (!anySet(from, to)) {
+        return false;
+      }
+      for (int night = from; night < to; night++) {
+        if (isSet(night) && (bookingId == null || this.owners[night] != bookingId)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    synchronized void occupy(long sequence, Long bookingId, LocalDate arrival,
+        LocalDate departure) {
+      record(bookingId, new Change(sequence, arrival, departure));
+      clear(bookingId);
+      mark(bookingId, arrival, departure);
+      this.version++;
+    }
+
+    synchronized void release(long sequence, Long bookingId) {
+      record(bookingId, new Change(sequence, null, null));
+      if (clear(bookingId)) {
+        this.version++;
+      }
+    }
+
+    synchronized Set<Long> getBookingIds(LocalDate start, LocalDate end) {
+      Set<Long> bookingIds = new LinkedHashSet<>();
+      int to = offset(end);
+      for (int night = offset(start); night < to; night++) {
+        if (isSet(night)) {
+          bookingIds.add(this.owners[night]);
+        }
+      }
+      return bookingIds;
+    }
+
+    private void record(Long bookingId, Change change) {
+      this.changes.remove(bookingId);
+      this.changes.put(bookingId, change);
+    }
+
+    private void mark(Long bookingId, LocalDate arrival, LocalDate departure) {
+      int to = offset(departure);
+      for (int night = offset(arrival); night < to; night++) {
+        this.words[night / Long.SIZE] |= 1L << (night % Long.SIZE);
+        this.owners[night] = bookingId;
+      }
+    }
+
+    private boolean clear(Long bookingId) {
+      boolean cleared = false;
+      for (int word = 0; word < this.words.length; word++) {
+        long occupied = this.words[word];
+        while (occupied != 0) {
+          int bit = Long.numberOfTrailingZeros(occupied);
+          occupied &= occupied - 1;
+          int night = word * Long.SIZE + bit;
+          if (this.owners[night] == bookingId) {
+            this.words[word] &= ~(1L << bit);
+            this.owners[night] = FREE;
+            cleared = true;
+          }
+        }
+      }
+      return cleared;
+    }
+
+    private boolean anySet(int from, int to) {
+      if (from >= to) {
+        return false;
+      }
+      for (int word = from / Long.SIZE; word < this.words.length && word * Long.SIZE < to;
+          word++) {
+        long mask = -1L;
+        if (word == from / Long.SIZE) {
+          mask &= -1L << (from % Long.SIZE);
+        }
+        if (word == (to - 1) / Long.SIZE) {
+          mask &= -1L >>> (Long.SIZE - 1 - ((to - 1) % Long.SIZE));
+        }
+        if ((this.words[word] & mask) != 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean isSet(int night) {
+      return (this.words[night / Long.SIZE] & (1L << (night % Long.SIZE))) != 0;
+    }
+
+    private int offset(LocalDate date) {
+      long offset = date.toEpochDay() - this.baseDay;
+      return (int) Math.max(0, Math.min(offset, CAPACITY_DAYS));
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package com.upgrade.campside.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.upgrade.campside.domain.model.Person;
+import com.upgrade.campside.domain.repository.PersonRepository;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The <code>PersonService</code> class is responsible for operations regarding persons. A person
+ * is identified by its normalized email, which is unique in the database, so every booking of a
+ * returning customer points to the same person instead of inserting a new one. A bounded
+ * in-process cache maps emails to person ids, so repeat customers are resolved by primary key.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Service
+public class PersonService {
+
+  private final PersonRepository repository;
+  private final TransactionTemplate insertTemplate;
+  private final Cache<String, Long> idsByEmail;
+
+  /**
+   * Class constructor with AutoWired dependencies injection.
+   */
+  @Autowired
+  public PersonService(PersonRepository repository, PlatformTransactionManager transactionManager,
+      @Value("${campside.person.cache-size:10000}") long cacheSize) {
+    this.repository = repository;
+    this.insertTemplate = new TransactionTemplate(transactionManager);
+    this.insertTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.idsByEmail = Caffeine.newBuilder().maximumSize(cacheSize).build();
+  }
+
+  /**
+   * Finds the person with an email, creating it with the given full name if there is none yet. The
+   * full name of an existing person is kept. The returned person is managed by the caller
+   * transaction, if any.
+   *
+   * Called without a transaction, e.g. to resolve the owner of a booking before its transaction
+   * opens, a new person is inserted and committed in its own transaction, so two concurrent first
+   * bookings with the same email can not both insert it: the loser gets a unique constraint
+   * violation and reads the winner's row instead. Called inside a transaction, a new person is
+   * inserted by it, on the connection it already holds: a pooled connection is never held while
+   * waiting for a second one. A person created concurrently with the same email then fails the
+   * caller transaction, so bookings resolve their owner first.
+   *
+   * @param email the <code>String</code> holding the person's email.
+   * @param fullName the <code>String</code> holding the person's full name.
+   * @return the <code>Person</code> owning the email.
+   */
+  public Person findOrCreate(String email, String fullName) {
+    String normalizedEmail = Person.normalizeEmail(email);
+
+    Long cachedId = idsByEmail.getIfPresent(normalizedEmail);
+    if (cachedId != null) {
+      Optional<Person> cached = repository.findById(cachedId);
+      if (cached.isPresent()) {
+        return cached.get();
+      }
+      idsByEmail.invalidate(normalizedEmail);
+    }
+
+    Long id = repository.findIdByEmail(normalizedEmail)
+        .orElseGet(() -> insert(normalizedEmail, fullName));
+    idsByEmail.put(normalizedEmail, id);
+    return repository.findById(id)
+        .orElseThrow(() -> new IllegalStateException("Person " + id + " vanished"));
+  }
+
+  /**
+   * Finds the persons with the given emails, creating in batch the ones there are none yet, e.g.
+   * for a bulk import. Must run inside a transaction: the new persons are inserted by it, so a
+   * person created concurrently with the same email fails the caller transaction on commit, and
+   * the caller is expected to retry. Only the persons found are cached, the new ones are not
+   * committed yet.
+   *
+   * @param fullNamesByEmail the <code>Map<String, String></code> of full names by email.
+   * @return the <code>Map<String, Person></code> of managed persons by normalized email.
+   */
+  public Map<String, Person> findOrCreateAll(Map<String, String> fullNamesByEmail) {
+    Map<String, String> fullNames = new HashMap<>();
+    fullNamesByEmail.forEach((email, fullName) ->
+        fullNames.putIfAbsent(Person.normalizeEmail(email), fullName));
+
+    Map<String, Person> persons = new HashMap<>();
+    for (Person person : repository.findByEmailIn(fullNames.keySet())) {
+      persons.put(person.getEmail(), person);
+      idsByEmail.put(person.getEmail(), person.getId());
+    }
+    List<Person> created = new ArrayList<>();
+    fullNames.forEach((email, fullName) -> {
+      if (!persons.containsKey(email)) {
+        created.add(new Person(email, fullName));
+      }
+    });
+    repository.saveAll(created).forEach(person -> persons.put(person.getEmail(), person));
+    return persons;
+  }
+
+  private Long insert(String normalizedEmail, String fullName) {
+    if (TransactionSynchronizationManager.isActualTransactionActive()) {
+      return repository.saveAndFlush(new Person(normalizedEmail, fullName)).getId();
+    }
+    try {
+      return insertTemplate.execute(
+          status -> repository.saveAndFlush(new Person(normalizedEmail, fullName)).getId());
+    } catch (DataIntegrityViolationException ex) {
+      return repository.findIdByEmail(normalizedEmail).orElseThrow(() -> ex);
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package com.upgrade.campside.service;
+
+import lombok.Getter;
+
+/**
+ * Event published by the <code>ReservationService</code> whenever a reservation is created,
+ * rescheduled or canceled. It holds the changed reservation and its campsite, listeners read its
+ * committed state from the store. Listeners should react after the commit.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Getter
+public class ReservationChangedEvent {
+
+  private final Long bookingId;
+  private final Long campsiteId;
+
+  /**
+   * <code>ReservationChangedEvent</code> constructor.
+   *
+   * @param bookingId the <code>Long</code> with the reservation booking id
+   * @param campsiteId the <code>Long</code> with the reservation campsite id
+   */
+  public ReservationChangedEvent(Long bookingId, Long campsiteId) {
+    this.bookingId = bookingId;
+    this.campsiteId = campsiteId;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ReservationChangedEvent[bookingId=%d, campsite=%d]", bookingId,
+        campsiteId);
+  }
+}
@@ -0,0 +1,292 @@
+package com.upgrade.campside.service;
+
+import com.upgrade.campside.domain.model.Campsite;
+import com.upgrade.campside.domain.model.Person;
+import com.upgrade.campside.domain.model.Reservation;
+import com.upgrade.campside.domain.model.ReservationStatus;
+import com.upgrade.campside.domain.repository.ReservationStore;
+import com.upgrade.campside.exception.CampsiteNotFoundException;
+import com.upgrade.campside.exception.ReservationConflictException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import javax.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The <code>ReservationImporter</code> class loads historical reservations in bulk, e.g. to seed
+ * or migrate a database. The input is a CSV file with a header line and one reservation per line:
+ * <code>email,full_name,arrival_date,departure_date[,status[,campsite_id]]</code>, dates in ISO
+ * format, status CONFIRMED (default) or CANCELED and the default campsite unless given. Fields are
+ * not quoted and can not hold commas.
+ *
+ * Lines are read in chunks. Chunks are parsed in parallel, a few chunks ahead, while the previous
+ * ones are inserted; each chunk is inserted in one transaction, resolving its persons with one
+ * query and saving its reservations with one flush, so ids come from the pooled sequence and rows
+ * are sent in JDBC batches. The booking rules for new reservations do not apply, but stays still
+ * can not overlap on a campsite: a chunk with a conflicting stay is rolled back and inserted line
+ * by line, rejecting the conflicting ones. Once done, the occupancy index and the query read model
+ * are refreshed.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Service
+public class ReservationImporter {
+
+  private static final int PARSE_AHEAD = Runtime.getRuntime().availableProcessors();
+
+  private final ReservationStore store;
+  private final PersonService personService;
+  private final CampsiteService campsiteService;
+  private final OccupancyIndex occupancyIndex;
+  private final ReservationQueryService queryService;
+  private final TransactionTemplate transactionTemplate;
+  private final EntityManager entityManager;
+  private final int chunkSize;
+
+  /**
+   * Class constructor with AutoWired dependencies injection.
+   */
+  @Autowired
+  public ReservationImporter(ReservationStore store, PersonService personService,
+      CampsiteService campsiteService, OccupancyIndex occupancyIndex,
+      ReservationQueryService queryService, PlatformTransactionManager transactionManager,
+      EntityManager entityManager, @Value("${campside.import.chunk-size:5000}") int chunkSize) {
+    this.store = store;
+    this.personService = personService;
+    this.campsiteService = campsiteService;
+    this.occupancyIndex = occupancyIndex;
+    this.queryService = queryService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.entityManager = entityManager;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Imports the reservations of a CSV file. Valid lines are committed chunk by chunk, so a failure
+   * midway keeps the chunks already imported.
+   *
+   * @param csv the <code>InputStream</code> of the CSV file, in UTF-8.
+   * @return the <code>ImportResult</code> of the import.
+   * @throws IOException the file could not be read
+   */
+  public ImportResult importCsv(InputStream csv) throws IOException {
+    ImportResult result = new ImportResult();
+    BufferedReader reader = new BufferedReader(
+        new InputStreamReader(csv, StandardCharsets.UTF_8));
+    if (reader.readLine() == null) {
+      return result;
+    }
+
+    try {
+      Deque<CompletableFuture<List<Row>>> parsing = new ArrayDeque<>();
+      long lineNumber = 1;
+      List<String> lines = new ArrayList<>(this.chunkSize);
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        lines.add(line);
+        if (lines.size() == this.chunkSize) {
+          parsing.add(parseAsync(lineNumber + 1, lines));
+          lineNumber += lines.size();
+          lines = new ArrayList<>(this.chunkSize);
+          if (parsing.size() > PARSE_AHEAD) {
+            insert(parsing.poll().join(), result);
+          }
+        }
+      }
+      if (!lines.isEmpty()) {
+        parsing.add(parseAsync(lineNumber + 1, lines));
+      }
+      while (!parsing.isEmpty()) {
+        insert(parsing.poll().join(), result);
+      }
+    } finally {
+      this.occupancyIndex.rebuild();
+      this.queryService.requestRebuild();
+    }
+    return result;
+  }
+
+  private CompletableFuture<List<Row>> parseAsync(long firstLine, List<String> lines) {
+    return CompletableFuture.supplyAsync(() -> {
+      List<Row> rows = new ArrayList<>(lines.size());
+      for (int i = 0; i < lines.size(); i++) {
+        String line = lines.get(i);
+        if (!line.trim().isEmpty()) {
+          rows.add(Row.parse(firstLine + i, line));
+        }
+      }
+      return rows;
+    });
+  }
+
+  /**
+   * Inserts the valid rows of a chunk in one transaction, or line by line if it can not be
+   * committed.
+   */
+  private void insert(List<Row> rows, ImportResult result) {
+    List<Row> valid = new ArrayList<>(rows.size());
+    for (Row row : rows) {
+      if (row.rejection == null) {
+        try {
+          this.campsiteService.checkExists(row.campsiteId);
+        } catch (CampsiteNotFoundException ex) {
+          row.rejection = ex.getMessage();
+        }
+      }
+      if (row.rejection != null) {
+        result.addRejected(row.line, row.rejection);
+      } else {
+        valid.add(row);
+      }
+    }
+    if (valid.isEmpty()) {
+      return;
+    }
+
+    Boolean committed;
+    try {
+      committed = this.transactionTemplate.execute(status -> {
+        Map<String, String> fullNamesByEmail = new HashMap<>();
+        valid.forEach(row -> fullNamesByEmail.putIfAbsent(row.email, row.fullName));
+        Map<String, Person> persons = this.personService.findOrCreateAll(fullNamesByEmail);
+
+        List<Reservation> reservations = new ArrayList<>(valid.size());
+        for (Row row : valid) {
+          reservations.add(row.toReservation(persons.get(Person.normalizeEmail(row.email))));
+        }
+        try {
+          this.store.saveAll(reservations);
+          return true;
+        } catch (ReservationConflictException ex) {
+          status.setRollbackOnly();
+          return false;
+        }
+      });
+    } catch (DataIntegrityViolationException ex) {
+      committed = false;
+    } finally {
+      this.entityManager.clear();
+    }
+
+    if (Boolean.TRUE.equals(committed)) {
+      result.addImported(valid.size());
+    } else {
+      valid.forEach(row -> insertAlone(row, result));
+    }
+  }
+
+  /**
+   * Inserts a row of a chunk on its own, after the chunk could not be committed.
+   */
+  private void insertAlone(Row row, ImportResult result) {
+    String rejection;
+    try {
+      rejection = this.transactionTemplate.execute(status -> {
+        Person person = this.personService.findOrCreate(row.email, row.fullName);
+        try {
+          this.store.save(row.toReservation(person));
+          return null;
+        } catch (ReservationConflictException ex) {
+          status.setRollbackOnly();
+          return ex.getMessage();
+        }
+      });
+    } finally {
+      this.entityManager.clear();
+    }
+
+    if (rejection == null) {
+      result.addImported(1);
+    } else {
+      result.addRejected(row.line, rejection);
+    }
+  }
+
+  /**
+   * A parsed line of the CSV file, or the reason it was rejected.
+   */
+  private static final class Row {
+
+    private final long line;
+    private String email;
+    private String fullName;
+    private LocalDate arrivalDate;
+    private LocalDate departureDate;
+    private ReservationStatus status = ReservationStatus.CONFIRMED;
+    private Long campsiteId = Campsite.DEFAULT_ID;
+    private String rejection;
+
+    private Row(long line) {
+      this.line = line;
+    }
+
+    static Row parse(long line, String text) {
+      Row row = new Row(line);
+      String[] fields = text.split(",", -1);
+      if (fields.length < 4 || fields.length > 6) {
+        row.rejection = "Expected email,full_name,arrival_date,departure_date"
+            + "[,status[,campsite_id]], found " + fields.length + " fields.";
+        return row;
+      }
+
+      row.email = fields[0].trim();
+      row.fullName = fields[1].trim();
+      if (row.email.isEmpty() || row.fullName.isEmpty()) {
+        row.rejection = "The email and the full name are mandatory.";
+        return row;
+      }
+      try {
+        row.arrivalDate = LocalDate.parse(fields[2].trim());
+        row.departureDate = LocalDate.parse(fields[3].trim());
+      } catch (DateTimeParseException ex) {
+        row.rejection = "Invalid date: " + ex.getParsedString();
+        return row;
+      }
+      if (!row.departureDate.isAfter(row.arrivalDate)) {
+        row.rejection = "The departure date must be after the arrival date.";
+        return row;
+      }
+      if (fields.length >= 5 && !fields[4].trim().isEmpty()) {
+        String status = fields[4].trim().toUpperCase();
+        if (ReservationStatus.CANCELED.name().equals(status)) {
+          row.status = ReservationStatus.CANCELED;
+        } else if (!ReservationStatus.CONFIRMED.name().equals(status)) {
+          row.rejection = "Only CONFIRMED and CANCELED reservations can be imported, found "
+              + fields[4].trim() + ".";
+          return row;
+        }
+      }
+      if (fields.length == 6 && !fields[5].trim().isEmpty()) {
+        try {
+          row.campsiteId = Long.valueOf(fields[5].trim());
+        } catch (NumberFormatException ex) {
+          row.rejection = "Invalid campsite id: " + fields[5].trim();
+        }
+      }
+      return row;
+    }
+
+    Reservation toReservation(Person owner) {
+      return new Reservation(this.campsiteId, this.arrivalDate, this.departureDate, owner,
+          this.status);
+    }
+  }
+}
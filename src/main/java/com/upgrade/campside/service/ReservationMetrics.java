@@ -0,0 +1,232 @@
+package com.upgrade.campside.service;
+
+import com.upgrade.campside.exception.InvalidReservationDateException;
+import com.upgrade.campside.exception.ReservationNotFoundException;
+import com.upgrade.campside.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * The <code>ReservationMetrics</code> class records the Micrometer meters of the reservation
+ * service, published on the actuator metrics and prometheus endpoints:
+ *
+ * <ul>
+ * <li><code>campside.booking</code>: timer of each write, end to end, tagged by operation and
+ * outcome;</li>
+ * <li><code>campside.booking.rejections</code>: counter of rejected writes, tagged by the
+ * violated date rule;</li>
+ * <li><code>campside.booking.transaction</code>: timer of each write transaction of the direct
+ * engine, from begin to commit or rollback;</li>
+ * <li><code>campside.booking.queue.wait</code>: timer of the time a write waits in the sequencer
+ * queue before the writer thread picks it, the sequencer lock wait;</li>
+ * <li><code>campside.booking.batch</code>: timer of each sequencer batch transaction, the time
+ * the single writer is held, with <code>campside.booking.batch.size</code>;</li>
+ * <li><code>campside.availability</code>: timer of the availability queries missing the
+ * cache;</li>
+ * <li><code>campside.repository</code>: timer of each repository method, tagged by repository,
+ * method and outcome;</li>
+ * <li><code>campside.query.staleness</code>: gauge of the age, in seconds, of the oldest
+ * committed change not applied to the read model of the <code>ReservationQueryService</code>
+ * yet;</li>
+ * <li><code>campside.query.projection.lag</code>: timer of the delay between the commit of a
+ * change and its application to the read model;</li>
+ * <li><code>campside.limiter.limit</code>, <code>campside.limiter.inflight</code> and
+ * <code>campside.limiter.waiting</code>: gauges of each <code>ConcurrencyLimiter</code>, tagged
+ * by limiter, with <code>campside.limiter.rejections</code> counting the requests it shed.</li>
+ * </ul>
+ *
+ * Percentile histograms are enabled by the
+ * <code>management.metrics.distribution.percentiles-histogram.campside</code> property.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Component
+public class ReservationMetrics {
+
+  public static final String BOOKING = "campside.booking";
+  public static final String REJECTIONS = "campside.booking.rejections";
+  public static final String TRANSACTION = "campside.booking.transaction";
+  public static final String QUEUE_WAIT = "campside.booking.queue.wait";
+  public static final String BATCH = "campside.booking.batch";
+  public static final String BATCH_SIZE = "campside.booking.batch.size";
+  public static final String HOLDS_EXPIRED = "campside.booking.holds.expired";
+  public static final String AVAILABILITY = "campside.availability";
+  public static final String REPOSITORY = "campside.repository";
+  public static final String QUERY_STALENESS = "campside.query.staleness";
+  public static final String PROJECTION_LAG = "campside.query.projection.lag";
+  public static final String LIMITER_LIMIT = "campside.limiter.limit";
+  public static final String LIMITER_IN_FLIGHT = "campside.limiter.inflight";
+  public static final String LIMITER_WAITING = "campside.limiter.waiting";
+  public static final String LIMITER_REJECTIONS = "campside.limiter.rejections";
+
+  private final MeterRegistry registry;
+
+  /**
+   * Class constructor with AutoWired dependencies injection.
+   */
+  @Autowired
+  public ReservationMetrics(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * Starts timing an operation.
+   *
+   * @return the started <code>Timer.Sample</code>.
+   */
+  public Timer.Sample start() {
+    return Timer.start(registry);
+  }
+
+  /**
+   * Records a finished write, and the violated rule when it was rejected.
+   *
+   * @param sample the <code>Timer.Sample</code> started with the write.
+   * @param operation the write operation: create, update, cancel or batch.
+   * @param error the <code>Throwable</code> the write failed with, null on success.
+   */
+  public void recordBooking(Timer.Sample sample, String operation, Throwable error) {
+    sample.stop(registry.timer(BOOKING, "operation", operation, "outcome", outcome(error)));
+    if (error instanceof InvalidReservationDateException) {
+      recordRejection(operation, (InvalidReservationDateException) error);
+    }
+  }
+
+  /**
+   * Counts a rejected write, e.g. a rejected item of a batch.
+   *
+   * @param operation the write operation: create, update, cancel or batch.
+   * @param rejection the <code>InvalidReservationDateException</code> rejecting it.
+   */
+  public void recordRejection(String operation, InvalidReservationDateException rejection) {
+    registry.counter(REJECTIONS, "operation", operation,
+        "rule", rejection.getRule().name().toLowerCase()).increment();
+  }
+
+  /**
+   * Records a write transaction of the direct engine.
+   *
+   * @param sample the <code>Timer.Sample</code> started with the transaction.
+   * @param operation the write operation: create, update, cancel or batch.
+   */
+  public void recordTransaction(Timer.Sample sample, String operation) {
+    sample.stop(registry.timer(TRANSACTION, "operation", operation));
+  }
+
+  /**
+   * Records the time a write waited in the sequencer queue.
+   *
+   * @param nanos the waited time, in nanoseconds.
+   */
+  public void recordQueueWait(long nanos) {
+    registry.timer(QUEUE_WAIT).record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Records a sequencer batch transaction.
+   *
+   * @param sample the <code>Timer.Sample</code> started with the transaction.
+   * @param size the number of writes in the batch.
+   */
+  public void recordBatch(Timer.Sample sample, int size) {
+    sample.stop(registry.timer(BATCH));
+    registry.summary(BATCH_SIZE).record(size);
+  }
+
+  /**
+   * Counts the holds expired by the hold timing wheel.
+   *
+   * @param count the number of holds expired at once.
+   */
+  public void recordExpiredHolds(int count) {
+    registry.counter(HOLDS_EXPIRED).increment(count);
+  }
+
+  /**
+   * Records an availability query missing the cache.
+   *
+   * @param sample the <code>Timer.Sample</code> started with the query.
+   */
+  public void recordAvailability(Timer.Sample sample) {
+    sample.stop(registry.timer(AVAILABILITY));
+  }
+
+  /**
+   * Publishes the staleness of the query read model.
+   *
+   * @param model the read model.
+   * @param stalenessSeconds the function returning its staleness, in seconds.
+   */
+  public <T> void gaugeQueryStaleness(T model, ToDoubleFunction<T> stalenessSeconds) {
+    Gauge.builder(QUERY_STALENESS, model, stalenessSeconds).baseUnit("seconds")
+        .register(registry);
+  }
+
+  /**
+   * Records the delay between the commit of a change and its application to the read model.
+   *
+   * @param nanos the delay, in nanoseconds.
+   */
+  public void recordProjectionLag(long nanos) {
+    registry.timer(PROJECTION_LAG).record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Publishes the limit, the requests in flight and the requests waiting of a concurrency limiter.
+   *
+   * @param limiter the <code>ConcurrencyLimiter</code>.
+   */
+  public void gaugeLimiter(ConcurrencyLimiter limiter) {
+    Gauge.builder(LIMITER_LIMIT, limiter, ConcurrencyLimiter::getLimit)
+        .tag("limiter", limiter.getName()).register(registry);
+    Gauge.builder(LIMITER_IN_FLIGHT, limiter, ConcurrencyLimiter::getInFlight)
+        .tag("limiter", limiter.getName()).register(registry);
+    Gauge.builder(LIMITER_WAITING, limiter, ConcurrencyLimiter::getWaiting)
+        .tag("limiter", limiter.getName()).register(registry);
+  }
+
+  /**
+   * Counts a request shed by a concurrency limiter.
+   *
+   * @param limiter the <code>ConcurrencyLimiter</code> name.
+   */
+  public void recordLimiterRejection(String limiter) {
+    registry.counter(LIMITER_REJECTIONS, "limiter", limiter).increment();
+  }
+
+  /**
+   * Records a repository method invocation.
+   *
+   * @param repository the repository bean name.
+   * @param method the invoked method name.
+   * @param nanos the invocation time, in nanoseconds.
+   * @param error the <code>Throwable</code> the invocation failed with, null on success.
+   */
+  public void recordRepository(String repository, String method, long nanos, Throwable error) {
+    registry.timer(REPOSITORY, "repository", repository, "method", method,
+        "outcome", error == null ? "success" : "error").record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  private static String outcome(Throwable error) {
+    if (error == null) {
+      return "success";
+    }
+    if (error instanceof InvalidReservationDateException) {
+      return "rejected";
+    }
+    if (error instanceof ReservationNotFoundException) {
+      return "not_found";
+    }
+    if (error instanceof ServiceOverloadedException) {
+      return "overloaded";
+    }
+    return "error";
+  }
+}
@@ -0,0 +1,509 @@
+package com.upgrade.campside.service;
+
+import com.upgrade.campside.domain.model.DateRange;
+import com.upgrade.campside.domain.model.ReservationView;
+import com.upgrade.campside.domain.repository.ReservationStore;
+import com.upgrade.campside.exception.ReservationNotFoundException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * The <code>ReservationQueryService</code> class is the query side of the reservations, serving
+ * lookups and availability from a denormalized, in-memory read model instead of the write store.
+ * The model holds every known reservation by booking id, with its owner, and the daily
+ * occupancy of each campsite: each occupied night from today with the reservation occupying it.
+ * Queries never open a transaction nor take a lock, so availability traffic does not compete with
+ * bookings. Each campsite has its own calendar version, so a change on one campsite does not
+ * invalidate the versions seen by clients of the others.
+ *
+ * The model is updated asynchronously: each <code>ReservationChangedEvent</code> is queued once
+ * its transaction commits, and a single projector thread reads the committed state of the
+ * changed reservations from the store, in batches, and applies it. It is fully rebuilt from the
+ * store at startup and on a fixed delay, picking up the writes of other instances. A rebuild keeps
+ * the version of every campsite whose occupied nights are unchanged, so clients do not lose their
+ * validators once a minute. A reservation not projected yet is looked up in the store, and so are
+ * periods starting before today.
+ *
+ * The staleness of the model, the age of the oldest committed change not applied yet, is
+ * published as the <code>campside.query.staleness</code> gauge, and the delay of each applied
+ * change as the <code>campside.query.projection.lag</code> timer of the
+ * <code>ReservationMetrics</code>.
+ *
+ * Availability answers are kept in the <code>availability</code> cache, by campsite and period,
+ * so repeated polls of the same calendar skip building the list, and polls of past periods skip
+ * the store. Each applied change evicts, through the <code>AvailabilityCacheEvictor</code>, the
+ * cached periods sharing a night with the previous or the new stay of the reservation, and a
+ * rebuild evicts the periods of every campsite whose nights changed and every period read from
+ * the store. An answer computed while its change was being applied may be cached after the
+ * eviction, the cache time to live bounds how long it is served.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Service
+public class ReservationQueryService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReservationQueryService.class);
+  private static final long RETRY_DELAY_MILLIS = 1000;
+
+  private final ReservationStore store;
+  private final ReservationMetrics metrics;
+  private final AvailabilityCacheEvictor cacheEvictor;
+  private final BlockingDeque<Change> changes = new LinkedBlockingDeque<>();
+  private volatile Model model = new Model(LocalDate.MIN);
+  private volatile long oldestInFlight;
+  private volatile boolean rebuildRequested;
+  private volatile boolean running;
+  private Thread projector;
+
+  /**
+   * Class constructor with AutoWired dependencies injection.
+   */
+  @Autowired
+  public ReservationQueryService(ReservationStore store, ReservationMetrics metrics,
+      AvailabilityCacheEvictor cacheEvictor) {
+    this.store = store;
+    this.metrics = metrics;
+    this.cacheEvictor = cacheEvictor;
+    metrics.gaugeQueryStaleness(this, service -> service.getStalenessNanos() / 1e9);
+  }
+
+  /**
+   * Builds the read model and starts the projector thread.
+   */
+  @PostConstruct
+  public void start() {
+    rebuild();
+    this.running = true;
+    this.projector = new Thread(this::run, "reservation-projector");
+    this.projector.setDaemon(true);
+    this.projector.start();
+  }
+
+  /**
+   * Stops the projector thread.
+   */
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    this.running = false;
+    if (this.projector != null) {
+      this.projector.interrupt();
+      this.projector.join(RETRY_DELAY_MILLIS);
+    }
+  }
+
+  /**
+   * Queues a committed reservation change for the projector.
+   *
+   * @param event the <code>ReservationChangedEvent</code> with the changed reservation.
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onReservationChanged(ReservationChangedEvent event) {
+    this.changes.offer(new Change(event.getBookingId(), System.nanoTime()));
+  }
+
+  /**
+   * Asks the projector to rebuild the model on a fixed delay, so writes made by other instances
+   * and days gone by are eventually reflected.
+   */
+  @Scheduled(fixedDelayString = "${campside.query.rebuild-interval:60000}",
+      initialDelayString = "${campside.query.rebuild-interval:60000}")
+  public void requestRebuild() {
+    this.rebuildRequested = true;
+    this.changes.offer(new Change(null, System.nanoTime()));
+  }
+
+  /**
+   * Retrieves the view of a reservation by its booking id.
+   *
+   * @param bookingId the <code>Long</code> bookingID.
+   * @return the <code>ReservationView</code> of the reservation.
+   * @throws ReservationNotFoundException reservation not found
+   */
+  public ReservationView getReservationView(Long bookingId) throws ReservationNotFoundException {
+    ReservationView view = this.model.reservations.get(bookingId);
+    if (view != null) {
+      return view;
+    }
+    return store.findViewById(bookingId)
+        .orElseThrow(() -> new ReservationNotFoundException(bookingId));
+  }
+
+  /**
+   * Retrieves the view of a reservation from the read model only, without looking it up in the
+   * store.
+   *
+   * @param bookingId the <code>Long</code> bookingID.
+   * @return an <code>Optional<ReservationView></code>, empty if not projected yet.
+   */
+  public Optional<ReservationView> findProjectedView(Long bookingId) {
+    return Optional.ofNullable(this.model.reservations.get(bookingId));
+  }
+
+  /**
+   * Tells if queries of a period starting on a date are answered by the read model alone, without
+   * reading the store.
+   *
+   * @param startDate the <code>LocalDate</code> with start search.
+   * @return true if the read model covers the date.
+   */
+  public boolean isProjected(LocalDate startDate) {
+    return this.model.covers(startDate);
+  }
+
+  /**
+   * Queries the availability of a campsite, the active reservations occupying a night of a time
+   * frame, by arrival date. Answers are cached by campsite and period.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @param startDate the <code>LocalDate</code> with start search.
+   * @param endDate the <code>LocalDate</code> with end search, inclusive.
+   * @return a <code>List<ReservationView><code> during the time frame.
+   */
+  @Cacheable(cacheNames = AvailabilityCacheEvictor.AVAILABILITY_CACHE,
+      key = "new com.upgrade.campside.service.CampsitePeriod(#p0, "
+          + "new com.upgrade.campside.domain.model.DateRange(#p1, #p2.plusDays(1)))")
+  public List<ReservationView> getAvailability(Long campsiteId, LocalDate startDate,
+      LocalDate endDate) {
+    Model current = this.model;
+    LocalDate lastNightEnd = endDate.plusDays(1);
+    if (!current.covers(startDate)) {
+      return store.getViewsInPeriod(campsiteId, startDate, lastNightEnd);
+    }
+
+    Set<ReservationView> reservations = new LinkedHashSet<>(
+        current.nightsOf(campsiteId).subMap(startDate, true, lastNightEnd, false).values());
+    return new ArrayList<>(reservations);
+  }
+
+  /**
+   * Queries the occupied nights of a campsite in a period, tagged with the version of its
+   * calendar.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @param period the <code>DateRange</code> with the nights to query.
+   * @return the <code>Occupancy</code> of the period.
+   */
+  public Occupancy getOccupancy(Long campsiteId, DateRange period) {
+    Model current = this.model;
+    long version = current.versionOf(campsiteId);
+    BitSet occupiedNights = new BitSet();
+    if (current.covers(period.getStart())) {
+      for (LocalDate night : current.nightsOf(campsiteId)
+          .subMap(period.getStart(), true, period.getEnd(), false).keySet()) {
+        occupiedNights.set((int) (night.toEpochDay() - period.getStart().toEpochDay()));
+      }
+      return new Occupancy(period, occupiedNights, version);
+    }
+
+    long start = period.getStart().toEpochDay();
+    long nights = period.getNights();
+    for (ReservationView view : store
+        .getViewsInPeriod(campsiteId, period.getStart(), period.getEnd())) {
+      long from = Math.max(0, view.getArrivalDate().toEpochDay() - start);
+      long to = Math.min(nights, view.getDepartureDate().toEpochDay() - start);
+      if (from < to) {
+        occupiedNights.set((int) from, (int) to);
+      }
+    }
+    return new Occupancy(period, occupiedNights, version);
+  }
+
+  /**
+   * Current calendar version of a campsite in the read model, increased on every applied change of
+   * the campsite and on every rebuild finding its occupied nights changed.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @return the campsite calendar version.
+   */
+  public long getCalendarVersion(Long campsiteId) {
+    return this.model.versionOf(campsiteId);
+  }
+
+  /**
+   * Age of the oldest committed change not applied to the model yet, zero when it is up to date.
+   *
+   * @return the staleness, in nanoseconds.
+   */
+  public long getStalenessNanos() {
+    long oldest = this.oldestInFlight;
+    Change next = this.changes.peekFirst();
+    if (next != null && (oldest == 0 || next.committedAt - oldest < 0)) {
+      oldest = next.committedAt;
+    }
+    return oldest == 0 ? 0 : Math.max(0, System.nanoTime() - oldest);
+  }
+
+  /**
+   * Builds a new model from the store, with the active reservations from today, and swaps it in.
+   * Campsites whose occupied nights from today are the same as in the current model keep their
+   * version, the cached periods of the others are evicted, as are the cached periods starting
+   * before today.
+   */
+  synchronized void rebuild() {
+    LocalDate today = LocalDate.now();
+    Model previous = this.model;
+    Model rebuilt = new Model(today, previous.rebuiltVersion, previous.version);
+    for (ReservationView view : store.getActiveViewsFrom(today)) {
+      rebuilt.load(view);
+    }
+    rebuilt.versionFrom(previous);
+    this.model = rebuilt;
+    rebuilt.versions.forEach((campsiteId, version) -> {
+      if (version != previous.versionOf(campsiteId)) {
+        cacheEvictor.evictCampsite(campsiteId);
+      }
+    });
+    cacheEvictor.evictStartingBefore(today);
+  }
+
+  /**
+   * Applies every queued change. Called by the projector thread, or directly when it is not
+   * started.
+   */
+  synchronized void project() {
+    List<Change> batch = new ArrayList<>();
+    this.changes.drainTo(batch);
+    if (batch.isEmpty()) {
+      return;
+    }
+
+    this.oldestInFlight = batch.get(0).committedAt;
+    try {
+      if (this.rebuildRequested) {
+        this.rebuildRequested = false;
+        rebuild();
+      } else {
+        apply(batch);
+      }
+      long now = System.nanoTime();
+      batch.forEach(change -> metrics.recordProjectionLag(now - change.committedAt));
+    } catch (RuntimeException ex) {
+      for (int i = batch.size() - 1; i >= 0; i--) {
+        this.changes.offerFirst(batch.get(i));
+      }
+      throw ex;
+    } finally {
+      this.oldestInFlight = 0;
+    }
+  }
+
+  /**
+   * Reads the committed state of the changed reservations in one query and applies it, then
+   * evicts the cached periods sharing a night with their previous or new stays.
+   */
+  private void apply(List<Change> batch) {
+    Set<Long> bookingIds = new LinkedHashSet<>();
+    batch.stream().filter(change -> change.bookingId != null)
+        .forEach(change -> bookingIds.add(change.bookingId));
+    if (bookingIds.isEmpty()) {
+      return;
+    }
+
+    Map<Long, ReservationView> committed = new LinkedHashMap<>();
+    bookingIds.forEach(bookingId -> committed.put(bookingId, null));
+    store.findViewsByIds(bookingIds).forEach(view -> committed.put(view.getBookingId(), view));
+    Model current = this.model;
+    committed.forEach((bookingId, view) -> {
+      ReservationView previous = current.reservations.get(bookingId);
+      current.apply(bookingId, view);
+      evict(previous);
+      evict(view);
+    });
+  }
+
+  private void evict(ReservationView view) {
+    if (view != null) {
+      cacheEvictor.evict(view.getCampsiteId(),
+          new DateRange(view.getArrivalDate(), view.getDepartureDate()));
+    }
+  }
+
+  private void run() {
+    while (this.running) {
+      try {
+        this.changes.offerFirst(this.changes.takeFirst());
+        project();
+      } catch (InterruptedException ex) {
+        return;
+      } catch (RuntimeException ex) {
+        LOGGER.warn("Failed to update the reservation read model, retrying", ex);
+        try {
+          TimeUnit.MILLISECONDS.sleep(RETRY_DELAY_MILLIS);
+        } catch (InterruptedException interrupted) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * The read model: reservations by booking id and the occupied nights of each campsite from a day
+   * on. Written by one thread at a time, read concurrently. Every change takes the next model
+   * version as the version of its campsite, so versions never go back, even across rebuilds. A
+   * campsite without any change keeps the version the model was first built with.
+   */
+  private static final class Model {
+
+    private static final NavigableMap<LocalDate, ReservationView> NO_NIGHTS =
+        new ConcurrentSkipListMap<>();
+
+    private final LocalDate from;
+    private final long rebuiltVersion;
+    private final Map<Long, ReservationView> reservations = new ConcurrentHashMap<>();
+    private final Map<Long, NavigableMap<LocalDate, ReservationView>> nights =
+        new ConcurrentHashMap<>();
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+    private volatile long version;
+
+    Model(LocalDate from) {
+      this(from, 0, 0);
+    }
+
+    Model(LocalDate from, long rebuiltVersion, long version) {
+      this.from = from;
+      this.rebuiltVersion = rebuiltVersion;
+      this.version = version;
+    }
+
+    boolean covers(LocalDate start) {
+      return !start.isBefore(this.from);
+    }
+
+    NavigableMap<LocalDate, ReservationView> nightsOf(Long campsiteId) {
+      return this.nights.getOrDefault(campsiteId, NO_NIGHTS);
+    }
+
+    long versionOf(Long campsiteId) {
+      return this.versions.getOrDefault(campsiteId, this.rebuiltVersion);
+    }
+
+    /**
+     * Adds an active reservation while the model is built, without touching any version.
+     */
+    void load(ReservationView view) {
+      this.reservations.put(view.getBookingId(), view);
+      occupy(view, nightsOf(view));
+    }
+
+    /**
+     * Sets the version of every campsite known by this model or the previous one: the previous
+     * version if the campsite nights are unchanged, the next model version otherwise.
+     */
+    void versionFrom(Model previous) {
+      Set<Long> campsites = new HashSet<>(previous.versions.keySet());
+      campsites.addAll(previous.nights.keySet());
+      campsites.addAll(this.nights.keySet());
+      for (Long campsiteId : campsites) {
+        if (sameOccupants(previous.nightsOf(campsiteId).tailMap(this.from, true),
+            nightsOf(campsiteId))) {
+          this.versions.put(campsiteId, previous.versionOf(campsiteId));
+        } else {
+          touch(campsiteId);
+        }
+      }
+    }
+
+    /**
+     * Replaces the state of a reservation, null when it no longer exists.
+     */
+    void apply(Long bookingId, ReservationView view) {
+      ReservationView previous = view == null
+          ? this.reservations.remove(bookingId) : this.reservations.put(bookingId, view);
+      List<LocalDate> occupied = view != null && view.getStatus().isActive()
+          ? nightsOf(view) : new ArrayList<>();
+      occupy(view, occupied);
+      if (previous != null && previous.getStatus().isActive()) {
+        List<LocalDate> released = nightsOf(previous);
+        released.removeAll(occupied);
+        release(previous.getCampsiteId(), bookingId, released);
+        touch(previous.getCampsiteId());
+      }
+      if (view != null) {
+        touch(view.getCampsiteId());
+      }
+    }
+
+    private void occupy(ReservationView view, List<LocalDate> occupied) {
+      if (!occupied.isEmpty()) {
+        NavigableMap<LocalDate, ReservationView> siteNights = this.nights
+            .computeIfAbsent(view.getCampsiteId(), campsiteId -> new ConcurrentSkipListMap<>());
+        occupied.forEach(night -> siteNights.put(night, view));
+      }
+    }
+
+    private void touch(Long campsiteId) {
+      this.version++;
+      this.versions.put(campsiteId, this.version);
+    }
+
+    private void release(Long campsiteId, Long bookingId, Collection<LocalDate> released) {
+      NavigableMap<LocalDate, ReservationView> siteNights = nightsOf(campsiteId);
+      released.forEach(night -> siteNights.computeIfPresent(night,
+          (key, occupant) -> occupant.getBookingId().equals(bookingId) ? null : occupant));
+    }
+
+    private static boolean sameOccupants(NavigableMap<LocalDate, ReservationView> nights,
+        NavigableMap<LocalDate, ReservationView> others) {
+      if (nights.size() != others.size()) {
+        return false;
+      }
+      for (Map.Entry<LocalDate, ReservationView> night : nights.entrySet()) {
+        ReservationView other = others.get(night.getKey());
+        if (other == null || !other.getBookingId().equals(night.getValue().getBookingId())) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private List<LocalDate> nightsOf(ReservationView view) {
+      List<LocalDate> occupied = new ArrayList<>();
+      LocalDate night = view.getArrivalDate().isBefore(this.from)
+          ? this.from : view.getArrivalDate();
+      for (; night.isBefore(view.getDepartureDate()); night = night.plusDays(1)) {
+        occupied.add(night);
+      }
+      return occupied;
+    }
+  }
+
+  /**
+   * A committed change of a reservation, or a rebuild request without booking id.
+   */
+  private static final class Change {
+
+    private final Long bookingId;
+    private final long committedAt;
+
+    Change(Long bookingId, long committedAt) {
+      this.bookingId = bookingId;
+      this.committedAt = committedAt;
+    }
+  }
+}
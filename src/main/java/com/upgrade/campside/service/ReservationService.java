@@ -1,51 +1,147 @@
 package com.upgrade.campside.service;
 
+import static java.time.temporal.ChronoUnit.DAYS;
+
+import com.upgrade.campside.domain.model.DateRange;
 import com.upgrade.campside.domain.model.Person;
 import com.upgrade.campside.domain.model.Reservation;
 import com.upgrade.campside.domain.model.ReservationStatus;
-import com.upgrade.campside.domain.repository.ReservationRepository;
+import com.upgrade.campside.domain.model.ReservationView;
+import com.upgrade.campside.domain.repository.ReservationStore;
 import com.upgrade.campside.exception.InvalidReservationDateException;
+import com.upgrade.campside.exception.InvalidReservationDateException.Rule;
+import com.upgrade.campside.exception.ReservationConflictException;
 import com.upgrade.campside.exception.ReservationNotFoundException;
+import io.micrometer.core.instrument.Timer;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import javax.persistence.EntityNotFoundException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * The <code>ReservationService</code> class is responsible for operations regarding reservations.
  * For queries methods look for <code>ReservationQueryService</code>. As a service this class uses
- * only its related repository, in this case <code>ReservationRepository</code>, operations on
- * others entities are performed using the related services.
+ * only its related storage, in this case the <code>ReservationStore</code>, operations on others
+ * entities are performed using the related services. Overlap checks are answered by the
+ * <code>OccupancyIndex</code>, which is updated once each write commits, and double booking is
+ * finally rejected by the store night claims. This class is the direct <code>BookingEngine</code>,
+ * each write runs in its own transaction on the caller thread. Writes, their transactions and
+ * availability queries are timed by the <code>ReservationMetrics</code>.
+ *
+ * Every reservation belongs to a campsite, and only the reservations of the same campsite are
+ * checked for overlaps. Writes on different campsites share no lock, no calendar and no night
+ * claim, so they only compete for the connection pool.
+ *
+ * Held reservations block their nights like confirmed ones until they are confirmed or released.
+ * Holds left alone are expired by a <code>HoldTimingWheel</code>, in batches, without polling
+ * the store.
+ *
+ * Every write also has an <code>apply</code> method, e.g. <code>applyCreate</code>, running it in
+ * the caller transaction, which must exist, so the <code>SequencedBookingEngine</code> can commit
+ * several bookings together.
  *
  * @author Olavo Holanda
  * @version 0.1
  * @since 0.1
  */
 @Service
-public class ReservationService {
+public class ReservationService implements BookingEngine {
+
+  private static final String CREATE = "create";
+  private static final String UPDATE = "update";
+  private static final String CANCEL = "cancel";
+  private static final String BATCH = "batch";
+  private static final String HOLD = "hold";
+  private static final String CONFIRM = "confirm";
+  private static final String RELEASE = "release";
+  private static final String EXPIRE = "expire";
+  private static final String NOT_HELD = "This reservation is not held, or its hold expired.";
+  private static final long HOLD_TICK_MILLIS = 1000;
+  private static final int HOLD_WHEEL_SIZE = 1024;
+  private static final int MAX_NIGHTS = 3;
+  private static final String ALREADY_RESERVED = ReservationConflictException.ALREADY_RESERVED;
 
-  private final ReservationRepository repository;
+  private final ReservationStore store;
+  private final PersonService personService;
+  private final OccupancyIndex occupancyIndex;
+  private final ApplicationEventPublisher eventPublisher;
+  private final TransactionTemplate transactionTemplate;
+  private final ReservationMetrics metrics;
+  private final long holdDuration;
+  private final HoldTimingWheel holdTimingWheel;
 
   /**
    * Class constructor with AutoWired dependencies injection.
    */
   @Autowired
-  public ReservationService(ReservationRepository repository) {
-    this.repository = repository;
+  public ReservationService(ReservationStore store, PersonService personService,
+      OccupancyIndex occupancyIndex, ApplicationEventPublisher eventPublisher,
+      PlatformTransactionManager transactionManager, ReservationMetrics metrics,
+      @Value("${campside.hold.duration:600000}") long holdDuration) {
+    this.store = store;
+    this.personService = personService;
+    this.occupancyIndex = occupancyIndex;
+    this.eventPublisher = eventPublisher;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.metrics = metrics;
+    this.holdDuration = holdDuration;
+    this.holdTimingWheel = new HoldTimingWheel(HOLD_TICK_MILLIS, HOLD_WHEEL_SIZE,
+        System.currentTimeMillis(), this::expireHolds);
+  }
+
+  /**
+   * Schedules the expiry of the holds found in the store and starts the hold timing wheel.
+   */
+  @PostConstruct
+  public void startHoldExpiry() {
+    store.getHolds().forEach(hold ->
+        holdTimingWheel.schedule(hold.getBookingId(), hold.getHeldUntil()));
+    holdTimingWheel.start();
+  }
+
+  /**
+   * Stops the hold timing wheel. Holds left are expired after the next start.
+   */
+  @PreDestroy
+  public void stopHoldExpiry() throws InterruptedException {
+    holdTimingWheel.stop();
   }
 
   /**
    * Creates a new <code>Reservation</code> based on the person email, full name, arrival and
-   * departure dates. By default the reservation has a CONFIRMED status. Attention, this operation
-   * uses synchronized to avoid overlap concurrent reservation dates.
+   * departure dates. By default the reservation has a CONFIRMED status. Concurrent overlapping
+   * reservations are rejected by the unique night claims, in this or any other instance.
+   *
+   * The owner is resolved before the booking transaction starts, so a booking never holds one
+   * pooled connection while waiting for another one to insert a new person.
    *
    * Constraints: - Reservations can be for a 3 day max; - Arrival date must be at least one day
    * from now; - Arrival date must be up to one month from now; - Reservations can not overlap;
    *
+   * @param campsiteId the <code>Long</code> id of the campsite to reserve.
    * @param email the <code>String</code> holding the person's email.
    * @param fullName the <code>String</code> holding the person's full name.
    * @param arrival the <code>LocalDate</code> arrival.
@@ -53,21 +149,166 @@ public class ReservationService {
    * @return a new, persisted, reservation.
    * @throws InvalidReservationDateException the dates constraints fail
    */
-  @Transactional(propagation = Propagation.REQUIRES_NEW, isolation = Isolation.SERIALIZABLE)
-  public synchronized Reservation createReservation(String email, String fullName, LocalDate arrival,
-      LocalDate departure) throws InvalidReservationDateException {
-    validateReservationDates(arrival, departure, null);
+  @Override
+  public Reservation createReservation(Long campsiteId, String email, String fullName,
+      LocalDate arrival, LocalDate departure) throws InvalidReservationDateException {
+    Timer.Sample sample = metrics.start();
+    Exception error = null;
+    try {
+      validateReservationDates(campsiteId, arrival, departure, null);
+      personService.findOrCreate(email, fullName);
+      return inTransaction(CREATE,
+          () -> applyCreate(campsiteId, email, fullName, arrival, departure));
+    } catch (InvalidReservationDateException | RuntimeException ex) {
+      error = ex;
+      throw ex;
+    } catch (ReservationNotFoundException ex) {
+      error = ex;
+      throw new IllegalStateException(ex);
+    } finally {
+      metrics.recordBooking(sample, CREATE, error);
+    }
+  }
+
+  /**
+   * Validates and saves a new confirmed reservation in the current transaction.
+   */
+  public Reservation applyCreate(Long campsiteId, String email, String fullName,
+      LocalDate arrival, LocalDate departure) throws InvalidReservationDateException {
+    validateReservationDates(campsiteId, arrival, departure, null);
 
-    Person person = new Person(email, fullName);
-    Reservation reservation = new Reservation(arrival, departure, person,
+    Person person = personService.findOrCreate(email, fullName);
+    Reservation reservation = new Reservation(campsiteId, arrival, departure, person,
         ReservationStatus.CONFIRMED);
-    return repository.save(reservation);
+    Reservation saved = store.save(reservation);
+
+    Long bookingId = saved.getBookingId();
+    occupyOnCommit(campsiteId, bookingId, arrival, departure);
+    publishChange(bookingId, campsiteId);
+    return saved;
+  }
+
+  /**
+   * Creates many reservations at once, e.g. sent by a partner agency. Every request is validated
+   * against the current occupancy of its campsite and against the requests accepted before it on
+   * the same campsite, so a batch can not double book itself. The accepted reservations are
+   * inserted in one transaction and flushed once, so their rows and night claims are sent to the
+   * database in JDBC batches. Their owners are found, or created, all together in the same
+   * transaction.
+   *
+   * If the batch can not be committed, e.g. a night was claimed meanwhile by another instance or a
+   * new owner was created concurrently, each accepted request is retried with
+   * <code>createReservation</code> and gets its own result.
+   *
+   * @param requests the <code>List<BookingRequest></code> to create, by priority order.
+   * @return a <code>List<BookingResult></code> with the result of each request, in order.
+   */
+  public List<BookingResult> createReservations(List<BookingRequest> requests) {
+    Timer.Sample sample = metrics.start();
+    BookingResult[] results = new BookingResult[requests.size()];
+    List<Integer> accepted = new ArrayList<>();
+    List<CampsitePeriod> acceptedStays = new ArrayList<>();
+
+    for (int i = 0; i < requests.size(); i++) {
+      BookingRequest request = requests.get(i);
+      try {
+        validateReservationDates(request.getCampsiteId(), request.getArrivalDate(),
+            request.getDepartureDate(), null);
+        CampsitePeriod stay = new CampsitePeriod(request.getCampsiteId(),
+            new DateRange(request.getArrivalDate(), request.getDepartureDate()));
+        if (acceptedStays.stream().anyMatch(other ->
+            other.getCampsiteId().equals(stay.getCampsiteId())
+                && other.getPeriod().intersects(stay.getPeriod()))) {
+          throw new InvalidReservationDateException(ALREADY_RESERVED, Rule.ALREADY_RESERVED);
+        }
+        accepted.add(i);
+        acceptedStays.add(stay);
+      } catch (InvalidReservationDateException ex) {
+        metrics.recordRejection(BATCH, ex);
+        results[i] = BookingResult.rejected(ex);
+      }
+    }
+
+    if (!accepted.isEmpty()) {
+      List<Reservation> created = createAll(accepted.stream().map(requests::get)
+          .collect(Collectors.toList()));
+      for (int i = 0; i < accepted.size(); i++) {
+        int index = accepted.get(i);
+        results[index] = created == null ? createAlone(requests.get(index))
+            : BookingResult.created(created.get(i));
+      }
+    }
+
+    metrics.recordBooking(sample, BATCH, null);
+    return Arrays.asList(results);
+  }
+
+  /**
+   * Saves already validated reservations together, with their owners, in one transaction.
+   *
+   * @param requests the <code>List<BookingRequest></code> to create.
+   * @return the created reservations, in order, or null if the transaction rolled back.
+   */
+  private List<Reservation> createAll(List<BookingRequest> requests) {
+    Timer.Sample sample = metrics.start();
+    try {
+      return transactionTemplate.execute(status -> {
+        Map<String, String> fullNamesByEmail = new HashMap<>();
+        requests.forEach(request ->
+            fullNamesByEmail.putIfAbsent(request.getEmail(), request.getFullName()));
+        Map<String, Person> persons = personService.findOrCreateAll(fullNamesByEmail);
+
+        List<Reservation> reservations = new ArrayList<>(requests.size());
+        for (BookingRequest request : requests) {
+          Person person = persons.get(Person.normalizeEmail(request.getEmail()));
+          reservations.add(new Reservation(request.getCampsiteId(), request.getArrivalDate(),
+              request.getDepartureDate(), person, ReservationStatus.CONFIRMED));
+        }
+
+        List<Reservation> created;
+        try {
+          created = store.saveAll(reservations);
+        } catch (ReservationConflictException ex) {
+          status.setRollbackOnly();
+          return null;
+        }
+
+        for (Reservation reservation : created) {
+          Long bookingId = reservation.getBookingId();
+          Long campsiteId = reservation.getCampsiteId();
+          occupyOnCommit(campsiteId, bookingId, reservation.getArrivalDate(),
+              reservation.getDepartureDate());
+          publishChange(bookingId, campsiteId);
+        }
+        return created;
+      });
+    } catch (DataIntegrityViolationException ex) {
+      return null;
+    } finally {
+      metrics.recordTransaction(sample, BATCH);
+    }
+  }
+
+  /**
+   * Creates a reservation of a batch on its own, after the batch could not be committed.
+   *
+   * @param request the <code>BookingRequest</code> to create.
+   * @return the result of the request.
+   */
+  private BookingResult createAlone(BookingRequest request) {
+    try {
+      return BookingResult.created(createReservation(request.getCampsiteId(), request.getEmail(),
+          request.getFullName(), request.getArrivalDate(), request.getDepartureDate()));
+    } catch (InvalidReservationDateException ex) {
+      return BookingResult.rejected(ex);
+    }
   }
 
   /**
    * Updates a specific <code>Reservation</code> dates based on its booking id. If the new dates
-   * satisfy all constraints, the reservation will be update with success. Attention, this operation
-   * uses synchronized to avoid overlap concurrent reservation dates.
+   * satisfy all constraints, the reservation will be update with success. The reservation stays on
+   * its campsite. Concurrent overlapping reservations are rejected by the unique night claims, in
+   * this or any other instance.
    *
    * Constraints: - Reservations can be for a 3 day max; - Arrival date must be at least one day
    * from now; - Arrival date must be up to one month from now; - Reservations can not overlap;
@@ -79,16 +320,39 @@ public class ReservationService {
    * @throws InvalidReservationDateException the dates constraints fail
    * @throws ReservationNotFoundException reservation not found
    */
-  @Transactional(propagation = Propagation.REQUIRES_NEW, isolation = Isolation.SERIALIZABLE)
-  public synchronized Reservation updateReservationDates(Long bookingId, LocalDate newArrival,
+  @Override
+  public Reservation updateReservationDates(Long bookingId, LocalDate newArrival,
       LocalDate newDeparture) throws InvalidReservationDateException, ReservationNotFoundException {
+    Timer.Sample sample = metrics.start();
+    Exception error = null;
+    try {
+      return inTransaction(UPDATE, () -> applyUpdate(bookingId, newArrival, newDeparture));
+    } catch (InvalidReservationDateException | ReservationNotFoundException
+        | RuntimeException ex) {
+      error = ex;
+      throw ex;
+    } finally {
+      metrics.recordBooking(sample, UPDATE, error);
+    }
+  }
 
-    validateReservationDates(newArrival, newDeparture, bookingId);
-
+  /**
+   * Moves a reservation to new, validated, dates in the current transaction.
+   */
+  public Reservation applyUpdate(Long bookingId, LocalDate newArrival, LocalDate newDeparture)
+      throws InvalidReservationDateException, ReservationNotFoundException {
     Reservation current = this.getReservationById(bookingId);
-    current.setArrivalDate(newArrival);
-    current.setDepartureDate(newDeparture);
-    return repository.save(current);
+    Long campsiteId = current.getCampsiteId();
+    validateReservationDates(campsiteId, newArrival, newDeparture, bookingId);
+
+    current.reschedule(newArrival, newDeparture);
+    Reservation saved = store.save(current);
+
+    if (saved.getStatus() != ReservationStatus.CANCELED) {
+      occupyOnCommit(campsiteId, bookingId, newArrival, newDeparture);
+      publishChange(bookingId, campsiteId);
+    }
+    return saved;
   }
 
   /**
@@ -98,71 +362,486 @@ public class ReservationService {
    * @return an updated reservation.
    * @throws ReservationNotFoundException reservation not found
    */
+  @Override
   public Reservation cancelReservation(Long bookingId) throws ReservationNotFoundException {
+    Timer.Sample sample = metrics.start();
+    Exception error = null;
+    try {
+      return inTransaction(CANCEL, () -> applyCancel(bookingId));
+    } catch (InvalidReservationDateException ex) {
+      error = ex;
+      throw new IllegalStateException(ex);
+    } catch (ReservationNotFoundException | RuntimeException ex) {
+      error = ex;
+      throw ex;
+    } finally {
+      metrics.recordBooking(sample, CANCEL, error);
+    }
+  }
+
+  /**
+   * Cancels a reservation in the current transaction, releasing its nights if it was active.
+   */
+  public Reservation applyCancel(Long bookingId) throws ReservationNotFoundException {
+    Reservation current = this.getReservationById(bookingId);
+    boolean wasActive = current.getStatus() != ReservationStatus.CANCELED;
+    current.cancel();
+    Reservation saved = saveCanceled(current);
+
+    if (wasActive) {
+      Long campsiteId = saved.getCampsiteId();
+      releaseOnCommit(campsiteId, bookingId);
+      publishChange(bookingId, campsiteId);
+    }
+    return saved;
+  }
+
+  /**
+   * Holds a campsite for a person for a while, e.g. during the payment. The held reservation
+   * blocks its nights like a confirmed one until it is confirmed with <code>confirmHold</code>,
+   * released with <code>releaseHold</code>, or its hold expires after the
+   * <code>campside.hold.duration</code>. Same constraints as <code>createReservation</code>.
+   *
+   * @param campsiteId the <code>Long</code> id of the campsite to hold.
+   * @param email the <code>String</code> holding the person's email.
+   * @param fullName the <code>String</code> holding the person's full name.
+   * @param arrival the <code>LocalDate</code> arrival.
+   * @param departure the <code>LocalDate</code> departure.
+   * @return a new, persisted, held reservation.
+   * @throws InvalidReservationDateException the dates constraints fail
+   */
+  @Override
+  public Reservation holdReservation(Long campsiteId, String email, String fullName,
+      LocalDate arrival, LocalDate departure) throws InvalidReservationDateException {
+    Timer.Sample sample = metrics.start();
+    Exception error = null;
+    try {
+      validateReservationDates(campsiteId, arrival, departure, null);
+      personService.findOrCreate(email, fullName);
+      return inTransaction(HOLD,
+          () -> applyHold(campsiteId, email, fullName, arrival, departure));
+    } catch (InvalidReservationDateException | RuntimeException ex) {
+      error = ex;
+      throw ex;
+    } catch (ReservationNotFoundException ex) {
+      error = ex;
+      throw new IllegalStateException(ex);
+    } finally {
+      metrics.recordBooking(sample, HOLD, error);
+    }
+  }
+
+  /**
+   * Validates and saves a new held reservation in the current transaction, scheduling its expiry.
+   */
+  public Reservation applyHold(Long campsiteId, String email, String fullName,
+      LocalDate arrival, LocalDate departure) throws InvalidReservationDateException {
+    validateReservationDates(campsiteId, arrival, departure, null);
+
+    Person person = personService.findOrCreate(email, fullName);
+    Instant heldUntil = Instant.now().plusMillis(holdDuration);
+    Reservation saved = store.save(
+        new Reservation(campsiteId, arrival, departure, person, heldUntil));
+
+    Long bookingId = saved.getBookingId();
+    occupyOnCommit(campsiteId, bookingId, arrival, departure);
+    publishChange(bookingId, campsiteId);
+    holdTimingWheel.schedule(bookingId, heldUntil);
+    return saved;
+  }
+
+  /**
+   * Confirms a held reservation, before its hold expires. Confirming a confirmed reservation
+   * changes nothing.
+   *
+   * @param bookingId the <code>Long</code> holding the booking id.
+   * @return the confirmed reservation.
+   * @throws InvalidReservationDateException the reservation is not held or its hold expired
+   * @throws ReservationNotFoundException reservation not found
+   */
+  @Override
+  public Reservation confirmHold(Long bookingId)
+      throws InvalidReservationDateException, ReservationNotFoundException {
+    Timer.Sample sample = metrics.start();
+    Exception error = null;
+    try {
+      return inTransaction(CONFIRM, () -> applyConfirm(bookingId));
+    } catch (InvalidReservationDateException | ReservationNotFoundException
+        | RuntimeException ex) {
+      error = ex;
+      throw ex;
+    } finally {
+      metrics.recordBooking(sample, CONFIRM, error);
+    }
+  }
+
+  /**
+   * Confirms a held reservation in the current transaction, before its hold expires.
+   */
+  public Reservation applyConfirm(Long bookingId)
+      throws InvalidReservationDateException, ReservationNotFoundException {
     Reservation current = this.getReservationById(bookingId);
-    current.setStatus(ReservationStatus.CANCELED);
-    return repository.save(current);
+    if (current.getStatus() == ReservationStatus.CONFIRMED) {
+      return current;
+    }
+    if (!store.confirmHold(bookingId, Instant.now())) {
+      throw new InvalidReservationDateException(NOT_HELD, Rule.NOT_HELD);
+    }
+
+    publishChange(bookingId, current.getCampsiteId());
+    return this.getReservationById(bookingId);
+  }
+
+  /**
+   * Releases a held reservation before its hold expires, canceling it. Releasing a canceled
+   * reservation changes nothing.
+   *
+   * @param bookingId the <code>Long</code> holding the booking id.
+   * @return the canceled reservation.
+   * @throws InvalidReservationDateException the reservation is confirmed
+   * @throws ReservationNotFoundException reservation not found
+   */
+  @Override
+  public Reservation releaseHold(Long bookingId)
+      throws InvalidReservationDateException, ReservationNotFoundException {
+    Timer.Sample sample = metrics.start();
+    Exception error = null;
+    try {
+      return inTransaction(RELEASE, () -> applyRelease(bookingId));
+    } catch (InvalidReservationDateException | ReservationNotFoundException
+        | RuntimeException ex) {
+      error = ex;
+      throw ex;
+    } finally {
+      metrics.recordBooking(sample, RELEASE, error);
+    }
+  }
+
+  /**
+   * Releases a held reservation in the current transaction, canceling it.
+   */
+  public Reservation applyRelease(Long bookingId)
+      throws InvalidReservationDateException, ReservationNotFoundException {
+    if (this.getReservationById(bookingId).getStatus() == ReservationStatus.CONFIRMED) {
+      throw new InvalidReservationDateException(NOT_HELD, Rule.NOT_HELD);
+    }
+    return applyCancel(bookingId);
+  }
+
+  /**
+   * Cancels the given holds whose hold expired, all at once in one transaction, and releases
+   * their nights. Called by the <code>HoldTimingWheel</code> with the holds due at a tick; holds
+   * confirmed or released meanwhile are left untouched.
+   *
+   * @param bookingIds the <code>List<Long></code> booking ids of the holds due.
+   */
+  void expireHolds(List<Long> bookingIds) {
+    Timer.Sample sample = metrics.start();
+    try {
+      List<ReservationView> expired = transactionTemplate.execute(status -> {
+        List<ReservationView> views = store.expireHolds(bookingIds, Instant.now());
+        for (ReservationView view : views) {
+          Long bookingId = view.getBookingId();
+          Long campsiteId = view.getCampsiteId();
+          releaseOnCommit(campsiteId, bookingId);
+          publishChange(bookingId, campsiteId);
+        }
+        return views;
+      });
+      metrics.recordExpiredHolds(expired.size());
+    } finally {
+      metrics.recordTransaction(sample, EXPIRE);
+    }
+  }
+
+  /**
+   * Queries the availability of a campsite, it will return a list of reservation in the desired
+   * time frame. When the time frame is inside the <code>OccupancyIndex</code> window the
+   * reservations are looked up by booking id, and no query is issued at all if every night is free.
+   * Either way reservations and owners are read in one query as <code>ReservationView</code>
+   * projections. The availability endpoints are served by the <code>ReservationQueryService</code>
+   * read model, this query reads the write side directly.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @param startDate the <code>LocalDate</code> with start search.
+   * @param endDate the <code>LocalDate</code> with end search.
+   * @return a <code>List<ReservationView><code> during the time frame.
+   */
+  public List<ReservationView> getAvailability(Long campsiteId, LocalDate startDate,
+      LocalDate endDate) {
+    Timer.Sample sample = metrics.start();
+    try {
+      LocalDate lastNightEnd = endDate.plusDays(1);
+      if (!occupancyIndex.covers(campsiteId, startDate, lastNightEnd)) {
+        return store.getViewsInPeriod(campsiteId, startDate, lastNightEnd);
+      }
+
+      Set<Long> bookingIds = occupancyIndex.getBookingIds(campsiteId, startDate, lastNightEnd);
+      if (bookingIds.isEmpty()) {
+        return Collections.emptyList();
+      }
+      return store.findViewsByIds(bookingIds);
+    } finally {
+      metrics.recordAvailability(sample);
+    }
+  }
+
+  /**
+   * Streams the reservations of a campsite in a time frame to a consumer, one at a time, straight
+   * from a database cursor. Reservations are read as <code>ReservationView</code> projections, so
+   * nothing is kept in the persistence context and memory stays constant whatever the size of the
+   * time frame. The consumer runs inside a read-only transaction.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @param startDate the <code>LocalDate</code> with start search.
+   * @param endDate the <code>LocalDate</code> with end search.
+   * @param consumer the <code>Consumer<ReservationView></code> called for each reservation.
+   */
+  @Transactional(readOnly = true)
+  public void streamAvailability(Long campsiteId, LocalDate startDate, LocalDate endDate,
+      Consumer<ReservationView> consumer) {
+    try (Stream<ReservationView> reservations = store
+        .streamViewsInPeriod(campsiteId, startDate, endDate.plusDays(1))) {
+      reservations.forEach(consumer);
+    }
   }
 
   /**
-   * Queries the Campside availability, it will return a list of reservation in the desired time
-   * frame.
+   * Streams every reservation in a time frame to a consumer, whatever its status and campsite, e.g.
+   * for a reconciliation export. Reservations are read from a forward-only database cursor, by
+   * arrival date and booking id, so memory stays constant whatever the size of the table. The
+   * consumer runs inside a read-only transaction.
    *
    * @param startDate the <code>LocalDate</code> with start search.
    * @param endDate the <code>LocalDate</code> with end search.
-   * @return a <code>List<Reservation><code> during the time frame.
+   * @param consumer the <code>Consumer<ReservationView></code> called for each reservation.
+   */
+  @Transactional(readOnly = true)
+  public void exportReservations(LocalDate startDate, LocalDate endDate,
+      Consumer<ReservationView> consumer) {
+    try (Stream<ReservationView> reservations = store
+        .streamAllViewsInPeriod(startDate, endDate.plusDays(1))) {
+      reservations.forEach(consumer);
+    }
+  }
+
+  /**
+   * Retrieves a read-only view of a reservation by its booking ID, in a single query.
+   *
+   * @param bookingId the <code>Long</code> bookingID.
+   * @return the <code>ReservationView</code> of the reservation.
+   * @throws ReservationNotFoundException reservation not found
+   */
+  public ReservationView getReservationView(Long bookingId) throws ReservationNotFoundException {
+    return store.findViewById(bookingId)
+        .orElseThrow(() -> new ReservationNotFoundException(bookingId));
+  }
+
+  /**
+   * Queries the occupied nights of a campsite in a period, as a compact <code>Occupancy</code>
+   * bitmap. Periods inside the <code>OccupancyIndex</code> window are answered without touching
+   * the store.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @param period the <code>DateRange</code> with the nights to query.
+   * @return the <code>Occupancy</code> of the period.
    */
-  public List<Reservation> getAvailability(LocalDate startDate, LocalDate endDate) {
-    return repository.getReservationsInPeriod(startDate, endDate);
+  public Occupancy getOccupancy(Long campsiteId, DateRange period) {
+    if (occupancyIndex.covers(campsiteId, period.getStart(), period.getEnd())) {
+      return occupancyIndex.snapshot(campsiteId, period);
+    }
+
+    long version = occupancyIndex.getVersion(campsiteId);
+    BitSet occupiedNights = new BitSet();
+    long nights = period.getNights();
+    for (Reservation reservation : store
+        .getReservationsInPeriod(campsiteId, period.getStart(), period.getEnd())) {
+      long from = Math.max(0, DAYS.between(period.getStart(), reservation.getArrivalDate()));
+      long to = Math.min(nights, DAYS.between(period.getStart(), reservation.getDepartureDate()));
+      if (from < to) {
+        occupiedNights.set((int) from, (int) to);
+      }
+    }
+    return new Occupancy(period, occupiedNights, version);
+  }
+
+  /**
+   * Finds every feasible arrival date on a campsite for a stay of the given number of nights inside
+   * a window, following the same rules as a new reservation: the arrival is at least one day from
+   * now and up to one month from now, and the stay is 1 to 3 nights long and free. The window is
+   * narrowed to the bookable arrivals, and the stays are searched on the
+   * <code>OccupancyIndex</code> bitmap, without touching the store.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @param start the <code>LocalDate</code> of the first night of the window.
+   * @param end the <code>LocalDate</code> after the last night of the window.
+   * @param nights the number of nights of the stay.
+   * @return the <code>StaySearch</code> with the feasible arrivals.
+   * @throws InvalidReservationDateException the number of nights is not between 1 and 3
+   */
+  public StaySearch findFreeStays(Long campsiteId, LocalDate start, LocalDate end, int nights)
+      throws InvalidReservationDateException {
+    return occupancyIndex.findFreeStays(campsiteId, resolveStayWindow(start, end, nights),
+        nights);
+  }
+
+  /**
+   * Narrows a stay search window to the bookable arrivals of today: from tomorrow on, and ending
+   * with the departure of a stay arriving one month from now. The result depends on the current
+   * day, not only on the requested window.
+   *
+   * @param start the <code>LocalDate</code> of the first night of the window.
+   * @param end the <code>LocalDate</code> after the last night of the window.
+   * @param nights the number of nights of the stay.
+   * @return the <code>DateRange</code> actually searched.
+   * @throws InvalidReservationDateException the number of nights is not between 1 and 3
+   */
+  public DateRange resolveStayWindow(LocalDate start, LocalDate end, int nights)
+      throws InvalidReservationDateException {
+    if (nights < 1) {
+      throw new InvalidReservationDateException(
+          "Invalid stay length. The departure date must be after the arrival date.",
+          Rule.DEPARTURE_BEFORE_ARRIVAL);
+    }
+    if (nights > MAX_NIGHTS) {
+      throw new InvalidReservationDateException(
+          "Max days exceeded for this search. The campside can be reserved for max 3 days.",
+          Rule.MAX_DAYS);
+    }
+
+    LocalDate now = LocalDate.now();
+    LocalDate first = start.isBefore(now.plusDays(1)) ? now.plusDays(1) : start;
+    LocalDate lastDeparture = now.plusMonths(1).plusDays(nights);
+    LocalDate last = end.isAfter(lastDeparture) ? lastDeparture : end;
+    return new DateRange(first, last.isAfter(first) ? last : first);
+  }
+
+  /**
+   * Current calendar version of a campsite, increased on every change of its occupied nights.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @return the calendar version.
+   */
+  public long getCalendarVersion(Long campsiteId) {
+    return occupancyIndex.getVersion(campsiteId);
+  }
+
+  /**
+   * Finds the campsite of a reservation, e.g. to route a write on it by campsite.
+   *
+   * @param bookingId the <code>Long</code> bookingID.
+   * @return the <code>Long</code> campsite id, if the reservation exists.
+   */
+  public Optional<Long> findCampsiteId(Long bookingId) {
+    return store.findById(bookingId).map(Reservation::getCampsiteId);
   }
 
   /**
    * Validates reservation create/update dates constraints.
    *
+   * @param campsiteId the <code>Long</code> campsite id.
    * @param arrival the <code>LocalDate</code> arrival.
    * @param departure the <code>LocalDate</code> departure.
    * @param bookingId the <code>Long</code> with reservation booking id, optional.
    * @throws InvalidReservationDateException the dates constraints fail
    */
-  private void validateReservationDates(LocalDate arrival, LocalDate departure, Long bookingId)
-      throws InvalidReservationDateException {
+  void validateReservationDates(Long campsiteId, LocalDate arrival, LocalDate departure,
+      Long bookingId) throws InvalidReservationDateException {
     LocalDate now = LocalDate.now();
+    if (!departure.isAfter(arrival)) {
+      throw new InvalidReservationDateException(
+          "Invalid dates for this reservation. The departure date must be after the arrival date.",
+          Rule.DEPARTURE_BEFORE_ARRIVAL);
+    }
+
     if (now.plusDays(1).isAfter(arrival)) {
       throw new InvalidReservationDateException(
-          "Too late for this reservation. The campside can be reserved at least one day before arrival.");
+          "Too late for this reservation. The campside can be reserved at least one day before arrival.",
+          Rule.TOO_LATE);
     }
 
     if (now.plusMonths(1).isBefore(arrival)) {
       throw new InvalidReservationDateException(
-          "Too soon for this reservation. The campside can be reserved up to one month in advance.");
+          "Too soon for this reservation. The campside can be reserved up to one month in advance.",
+          Rule.TOO_SOON);
     }
 
-    if (arrival.plusDays(3).isBefore(departure)) {
+    if (arrival.plusDays(MAX_NIGHTS).isBefore(departure)) {
       throw new InvalidReservationDateException(
-          "Max days exceeded for this reservation. The campside can be reserved for max 3 days.");
+          "Max days exceeded for this reservation. The campside can be reserved for max 3 days.",
+          Rule.MAX_DAYS);
     }
 
-    if (isCampsideReserved(arrival, departure, bookingId)) {
-      throw new InvalidReservationDateException(
-          "Already reserved. The campside is not available during this requested time.");
+    if (isCampsiteReserved(campsiteId, arrival, departure, bookingId)) {
+      throw new InvalidReservationDateException(ALREADY_RESERVED, Rule.ALREADY_RESERVED);
     }
   }
 
   /**
-   * Checks if the Campside is reserved between the desired dates. If bookingId is present
+   * Checks if a campsite is reserved between the desired dates. If bookingId is present
    * then it will exclude that particular reservations. This is expected if the user is trying
-   * to modify its reservation date.
+   * to modify its reservation date. The <code>OccupancyIndex</code> answers for every stay inside
+   * its window, the store is only queried for stays outside of it. The index only holds committed
+   * writes, so the changes of the current transaction, e.g. the previous commands of a sequencer
+   * batch, are checked on top of it.
    *
+   * @param campsiteId the <code>Long</code> campsite id.
    * @param arrival the <code>LocalDate</code> arrival.
    * @param departure the <code>LocalDate</code> departure.
    * @param bookingId the <code>Long</code> with reservation booking id, optional.
    * @return true if it is reserved false otherwise
    */
-  private boolean isCampsideReserved(LocalDate arrival, LocalDate departure, Long bookingId) {
-    if (bookingId == null) {
-      return repository.checkReservationOverlaps(arrival, departure);
+  private boolean isCampsiteReserved(Long campsiteId, LocalDate arrival, LocalDate departure,
+      Long bookingId) {
+    if (!occupancyIndex.covers(campsiteId, arrival, departure)) {
+      return store.overlaps(campsiteId, arrival, departure, bookingId);
+    }
+
+    PendingIndexChanges pending = pendingIndexChanges();
+    if (pending == null) {
+      return occupancyIndex.isOccupied(campsiteId, arrival, departure, bookingId);
+    }
+    for (Long owner : occupancyIndex.getBookingIds(campsiteId, arrival, departure)) {
+      if (!owner.equals(bookingId) && !pending.changes(owner)) {
+        return true;
+      }
+    }
+    return pending.isOccupied(campsiteId, arrival, departure, bookingId);
+  }
+
+  /**
+   * Runs a write in a transaction, timed as the <code>campside.booking.transaction</code> of the
+   * operation. A write failing with a checked exception is rolled back and the exception is
+   * rethrown.
+   *
+   * @param operation the write operation: create, update or cancel.
+   * @param write the <code>Write</code> to run.
+   * @return the written reservation.
+   */
+  private Reservation inTransaction(String operation, Write write)
+      throws InvalidReservationDateException, ReservationNotFoundException {
+    Timer.Sample sample = metrics.start();
+    Object outcome;
+    try {
+      outcome = transactionTemplate.execute(status -> {
+        try {
+          return write.apply();
+        } catch (InvalidReservationDateException | ReservationNotFoundException ex) {
+          status.setRollbackOnly();
+          return ex;
+        }
+      });
+    } finally {
+      metrics.recordTransaction(sample, operation);
+    }
+
+    if (outcome instanceof InvalidReservationDateException) {
+      throw (InvalidReservationDateException) outcome;
+    }
+    if (outcome instanceof ReservationNotFoundException) {
+      throw (ReservationNotFoundException) outcome;
     }
-    return repository.checkReservationOverlapsExceptOwn(arrival, departure, bookingId);
+    return (Reservation) outcome;
   }
 
   /**
@@ -174,10 +853,162 @@ public class ReservationService {
    * @throws ReservationNotFoundException reservation not found
    */
   private Reservation getReservationById(Long bookingId) throws ReservationNotFoundException {
+    return store.findById(bookingId)
+        .orElseThrow(() -> new ReservationNotFoundException(bookingId));
+  }
+
+  /**
+   * Saves a canceled reservation, which releases its nights and never conflicts.
+   *
+   * @param reservation the canceled <code>Reservation</code>.
+   * @return the saved reservation.
+   */
+  private Reservation saveCanceled(Reservation reservation) {
     try {
-      return repository.getOne(bookingId);
-    } catch (EntityNotFoundException ex) {
-      throw new ReservationNotFoundException(bookingId);
+      return store.save(reservation);
+    } catch (ReservationConflictException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  /**
+   * Publishes a <code>ReservationChangedEvent</code>, delivered to transactional listeners once the
+   * current transaction commits.
+   *
+   * @param bookingId the <code>Long</code> with reservation booking id.
+   * @param campsiteId the <code>Long</code> with reservation campsite id.
+   */
+  private void publishChange(Long bookingId, Long campsiteId) {
+    eventPublisher.publishEvent(new ReservationChangedEvent(bookingId, campsiteId));
+  }
+
+  /**
+   * Marks the nights of a stay as occupied by a reservation in the <code>OccupancyIndex</code>
+   * once the current transaction commits, replacing any nights it held before.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @param bookingId the <code>Long</code> with reservation booking id.
+   * @param arrival the <code>LocalDate</code> arrival.
+   * @param departure the <code>LocalDate</code> departure.
+   */
+  private void occupyOnCommit(Long campsiteId, Long bookingId, LocalDate arrival,
+      LocalDate departure) {
+    onCommit(new IndexChange(campsiteId, bookingId, arrival, departure));
+  }
+
+  /**
+   * Frees the nights held by a reservation in the <code>OccupancyIndex</code> once the current
+   * transaction commits.
+   *
+   * @param campsiteId the <code>Long</code> campsite id.
+   * @param bookingId the <code>Long</code> with reservation booking id.
+   */
+  private void releaseOnCommit(Long campsiteId, Long bookingId) {
+    onCommit(new IndexChange(campsiteId, bookingId, null, null));
+  }
+
+  /**
+   * Queues an <code>OccupancyIndex</code> change on the current transaction, applied after it
+   * commits and dropped if it rolls back, so the index never shows the nights of a write that may
+   * still fail, nor loses those of a committed one. Without an active transaction the write is
+   * already final and the change is applied right away.
+   *
+   * @param change the <code>IndexChange</code> to apply.
+   */
+  private void onCommit(IndexChange change) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      change.applyTo(occupancyIndex);
+      return;
     }
+    PendingIndexChanges pending = pendingIndexChanges();
+    if (pending == null) {
+      pending = new PendingIndexChanges();
+      TransactionSynchronizationManager.bindResource(this, pending);
+      TransactionSynchronizationManager.registerSynchronization(pending);
+    }
+    pending.add(change);
+  }
+
+  /**
+   * The <code>OccupancyIndex</code> changes queued on the current transaction.
+   *
+   * @return the <code>PendingIndexChanges</code>, or null if there is none.
+   */
+  private PendingIndexChanges pendingIndexChanges() {
+    return (PendingIndexChanges) TransactionSynchronizationManager.getResource(this);
+  }
+
+  /**
+   * A change of the nights of one reservation in the <code>OccupancyIndex</code>: its new stay, or
+   * no stay at all when its nights are released.
+   */
+  private static final class IndexChange {
+
+    private final Long campsiteId;
+    private final Long bookingId;
+    private final LocalDate arrival;
+    private final LocalDate departure;
+
+    IndexChange(Long campsiteId, Long bookingId, LocalDate arrival, LocalDate departure) {
+      this.campsiteId = campsiteId;
+      this.bookingId = bookingId;
+      this.arrival = arrival;
+      this.departure = departure;
+    }
+
+    boolean overlaps(Long campsiteId, LocalDate arrival, LocalDate departure) {
+      return this.arrival != null && this.campsiteId.equals(campsiteId)
+          && this.arrival.isBefore(departure) && this.departure.isAfter(arrival);
+    }
+
+    void applyTo(OccupancyIndex index) {
+      if (this.arrival == null) {
+        index.release(this.campsiteId, this.bookingId);
+      } else {
+        index.occupy(this.campsiteId, this.bookingId, this.arrival, this.departure);
+      }
+    }
+  }
+
+  /**
+   * The <code>OccupancyIndex</code> changes of one transaction, the last one of each reservation,
+   * applied in order after the commit.
+   */
+  private final class PendingIndexChanges extends TransactionSynchronizationAdapter {
+
+    private final Map<Long, IndexChange> changes = new LinkedHashMap<>();
+
+    void add(IndexChange change) {
+      this.changes.remove(change.bookingId);
+      this.changes.put(change.bookingId, change);
+    }
+
+    boolean changes(Long bookingId) {
+      return this.changes.containsKey(bookingId);
+    }
+
+    boolean isOccupied(Long campsiteId, LocalDate arrival, LocalDate departure, Long bookingId) {
+      return this.changes.values().stream().anyMatch(change ->
+          !change.bookingId.equals(bookingId) && change.overlaps(campsiteId, arrival, departure));
+    }
+
+    @Override
+    public void afterCommit() {
+      this.changes.values().forEach(change -> change.applyTo(occupancyIndex));
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+      TransactionSynchronizationManager.unbindResourceIfPossible(ReservationService.this);
+    }
+  }
+
+  /**
+   * A write operation, run by <code>inTransaction</code>.
+   */
+  @FunctionalInterface
+  private interface Write {
+
+    Reservation apply() throws InvalidReservationDateException, ReservationNotFoundException;
   }
 }
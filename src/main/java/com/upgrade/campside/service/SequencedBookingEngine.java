@@ -0,0 +1,469 @@
+package com.upgrade.campside.service;
+
+import com.upgrade.campside.domain.model.Campsite;
+import com.upgrade.campside.domain.model.Reservation;
+import com.upgrade.campside.exception.InvalidReservationDateException;
+import com.upgrade.campside.exception.ReservationConflictException;
+import com.upgrade.campside.exception.ReservationNotFoundException;
+import com.upgrade.campside.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Timer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The <code>SequencedBookingEngine</code> class is a <code>BookingEngine</code> where create,
+ * update and cancel commands are put on a bounded queue and applied by a single writer thread.
+ * The writer drains up to a batch of commands, validates them in order against the current
+ * occupancy and commits them all in one transaction, completing each caller future only after the
+ * commit. If the batch can not be committed, e.g. a night was claimed by another instance, every
+ * command of the batch is replayed in its own transaction.
+ *
+ * Owners of new reservations are resolved on the caller thread before the command is queued, as in
+ * the direct engine, so a lane transaction never waits for a second pooled connection to insert a
+ * new person.
+ *
+ * Commands are partitioned by campsite in lanes, each one with its own queue and writer thread,
+ * so the commands of one campsite are always applied in order while different campsites are
+ * written in parallel. Updates, cancels, confirms and releases are routed by the campsite of the
+ * reservation. The number of lanes is set by <code>campside.booking.sequencer.lanes</code>, one
+ * per available processor by default.
+ *
+ * When a lane queue is full callers are rejected right away with a
+ * <code>ServiceOverloadedException</code>, and so are callers still waiting for their command
+ * after <code>campside.booking.sequencer.await-timeout</code>, or queuing it while the engine
+ * stops. A timed out command may still be committed later. Each writer plays the role of a lock:
+ * the time each command waits in the queue and the time each batch holds the writer are recorded
+ * by the <code>ReservationMetrics</code>. Enabled with
+ * <code>campside.booking.engine=sequencer</code>.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Primary
+@Service
+@ConditionalOnProperty(name = "campside.booking.engine", havingValue = "sequencer")
+public class SequencedBookingEngine implements BookingEngine {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SequencedBookingEngine.class);
+  private static final long RETRY_AFTER_SECONDS = 1;
+
+  private final ReservationService service;
+  private final PersonService personService;
+  private final TransactionTemplate transactionTemplate;
+  private final ReservationMetrics metrics;
+  private final Lane[] lanes;
+  private final int batchSize;
+  private final long offerTimeout;
+  private final long awaitTimeout;
+  private volatile boolean running;
+
+  /**
+   * Class constructor with AutoWired dependencies injection.
+   */
+  @Autowired
+  public SequencedBookingEngine(ReservationService service, PersonService personService,
+      PlatformTransactionManager transactionManager, ReservationMetrics metrics,
+      @Value("${campside.booking.sequencer.capacity:1024}") int capacity,
+      @Value("${campside.booking.sequencer.batch-size:64}") int batchSize,
+      @Value("${campside.booking.sequencer.offer-timeout:50}") long offerTimeout,
+      @Value("${campside.booking.sequencer.await-timeout:30000}") long awaitTimeout,
+      @Value("${campside.booking.sequencer.lanes:0}") int lanes) {
+    this.service = service;
+    this.personService = personService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.metrics = metrics;
+    this.lanes = new Lane[lanes > 0 ? lanes : Runtime.getRuntime().availableProcessors()];
+    for (int i = 0; i < this.lanes.length; i++) {
+      this.lanes[i] = new Lane(i, capacity);
+    }
+    this.batchSize = batchSize;
+    this.offerTimeout = offerTimeout;
+    this.awaitTimeout = awaitTimeout;
+  }
+
+  /**
+   * Starts the writer threads.
+   */
+  @PostConstruct
+  public void start() {
+    this.running = true;
+    for (Lane lane : this.lanes) {
+      lane.start();
+    }
+  }
+
+  /**
+   * Stops the writer threads, rejecting every command still in the queues.
+   */
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    this.running = false;
+    for (Lane lane : this.lanes) {
+      lane.stop();
+    }
+  }
+
+  @Override
+  public Reservation createReservation(Long campsiteId, String email, String fullName,
+      LocalDate arrival, LocalDate departure)
+      throws InvalidReservationDateException, ServiceOverloadedException {
+    this.personService.findOrCreate(email, fullName);
+    try {
+      return submit("create", campsiteId,
+          target -> target.applyCreate(campsiteId, email, fullName, arrival, departure));
+    } catch (ReservationNotFoundException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  @Override
+  public Reservation updateReservationDates(Long bookingId, LocalDate newArrival,
+      LocalDate newDeparture) throws InvalidReservationDateException,
+      ReservationNotFoundException, ServiceOverloadedException {
+    return submit("update", campsiteOf(bookingId),
+        target -> target.applyUpdate(bookingId, newArrival, newDeparture));
+  }
+
+  @Override
+  public Reservation cancelReservation(Long bookingId)
+      throws ReservationNotFoundException, ServiceOverloadedException {
+    try {
+      return submit("cancel", campsiteOf(bookingId), target -> target.applyCancel(bookingId));
+    } catch (InvalidReservationDateException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  @Override
+  public Reservation holdReservation(Long campsiteId, String email, String fullName,
+      LocalDate arrival, LocalDate departure)
+      throws InvalidReservationDateException, ServiceOverloadedException {
+    this.personService.findOrCreate(email, fullName);
+    try {
+      return submit("hold", campsiteId,
+          target -> target.applyHold(campsiteId, email, fullName, arrival, departure));
+    } catch (ReservationNotFoundException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  @Override
+  public Reservation confirmHold(Long bookingId) throws InvalidReservationDateException,
+      ReservationNotFoundException, ServiceOverloadedException {
+    return submit("confirm", campsiteOf(bookingId), target -> target.applyConfirm(bookingId));
+  }
+
+  @Override
+  public Reservation releaseHold(Long bookingId) throws InvalidReservationDateException,
+      ReservationNotFoundException, ServiceOverloadedException {
+    return submit("release", campsiteOf(bookingId), target -> target.applyRelease(bookingId));
+  }
+
+  /**
+   * Number of commands waiting for the writer threads.
+   *
+   * @return the queue depth, summed over every lane.
+   */
+  public int getQueueDepth() {
+    int depth = 0;
+    for (Lane lane : this.lanes) {
+      depth += lane.queue.size();
+    }
+    return depth;
+  }
+
+  /**
+   * Number of commands that can still be queued before callers are rejected.
+   *
+   * @return the remaining queue capacity, summed over every lane.
+   */
+  public int getRemainingCapacity() {
+    int remaining = 0;
+    for (Lane lane : this.lanes) {
+      remaining += lane.queue.remainingCapacity();
+    }
+    return remaining;
+  }
+
+  /**
+   * Number of lanes, each one with its own queue and writer thread.
+   *
+   * @return the number of lanes.
+   */
+  public int getLaneCount() {
+    return this.lanes.length;
+  }
+
+  /**
+   * Finds the campsite a reservation command must be routed by. Unknown reservations go to the
+   * default campsite lane, where they are rejected as not found.
+   *
+   * @param bookingId the <code>Long</code> bookingID.
+   * @return the <code>Long</code> campsite id.
+   */
+  private Long campsiteOf(Long bookingId) {
+    return this.service.findCampsiteId(bookingId).orElse(Campsite.DEFAULT_ID);
+  }
+
+  /**
+   * Queues an operation on the lane of its campsite and waits for the writer thread to apply and
+   * commit it.
+   *
+   * @param name the operation name: create, update or cancel.
+   * @param campsiteId the <code>Long</code> campsite id the operation is routed by.
+   * @param operation the <code>Operation</code> to apply.
+   * @return the committed reservation.
+   */
+  private Reservation submit(String name, Long campsiteId, Operation operation)
+      throws InvalidReservationDateException, ReservationNotFoundException,
+      ServiceOverloadedException {
+    Timer.Sample sample = this.metrics.start();
+    Exception error = null;
+    try {
+      Lane lane = this.lanes[Math.floorMod(campsiteId.hashCode(), this.lanes.length)];
+      return await(lane, new Command(operation));
+    } catch (InvalidReservationDateException | ReservationNotFoundException
+        | ServiceOverloadedException | RuntimeException ex) {
+      error = ex;
+      throw ex;
+    } finally {
+      this.metrics.recordBooking(sample, name, error);
+    }
+  }
+
+  /**
+   * Queues a command and waits for its outcome, up to the await timeout. A command queued while
+   * the engine stops is taken back, as the lane may already have drained its queue.
+   *
+   * @param lane the <code>Lane</code> to queue the command on.
+   * @param command the <code>Command</code> to queue.
+   * @return the committed reservation.
+   */
+  private Reservation await(Lane lane, Command command) throws InvalidReservationDateException,
+      ReservationNotFoundException, ServiceOverloadedException {
+    try {
+      if (!this.running) {
+        throw shuttingDown();
+      }
+      if (!lane.queue.offer(command, this.offerTimeout, TimeUnit.MILLISECONDS)) {
+        throw new ServiceOverloadedException(
+            "Too many pending bookings. Please try again later.", RETRY_AFTER_SECONDS);
+      }
+      if (!this.running && lane.queue.remove(command)) {
+        throw shuttingDown();
+      }
+      return command.future.get(this.awaitTimeout, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(ex);
+    } catch (TimeoutException ex) {
+      throw new ServiceOverloadedException(
+          "The booking is still pending and may yet be applied. Please check before retrying.",
+          RETRY_AFTER_SECONDS);
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof InvalidReservationDateException) {
+        throw (InvalidReservationDateException) cause;
+      }
+      if (cause instanceof ReservationNotFoundException) {
+        throw (ReservationNotFoundException) cause;
+      }
+      if (cause instanceof ServiceOverloadedException) {
+        throw (ServiceOverloadedException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  /**
+   * The rejection of a command that can not be applied because the engine is stopping.
+   */
+  private static ServiceOverloadedException shuttingDown() {
+    return new ServiceOverloadedException("The booking engine is shutting down.",
+        RETRY_AFTER_SECONDS);
+  }
+
+  /**
+   * Applies a batch of commands in one transaction. Rejected commands do not touch the database
+   * and are completed with their error once the batch commits.
+   *
+   * @param batch the <code>List<Command></code> to apply, in arrival order.
+   */
+  private void process(List<Command> batch) {
+    long startedAt = System.nanoTime();
+    batch.forEach(command -> this.metrics.recordQueueWait(startedAt - command.queuedAt));
+
+    Timer.Sample sample = this.metrics.start();
+    List<Object> outcomes;
+    try {
+      outcomes = this.transactionTemplate.execute(status -> {
+        List<Object> applied = new ArrayList<>(batch.size());
+        for (Command command : batch) {
+          Object outcome = command.applyTo(this.service);
+          if (outcome instanceof ReservationConflictException) {
+            status.setRollbackOnly();
+            return null;
+          }
+          applied.add(outcome);
+        }
+        return applied;
+      });
+    } catch (RuntimeException ex) {
+      LOGGER.warn("Booking batch of {} commands failed to commit, replaying one by one",
+          batch.size(), ex);
+      outcomes = null;
+    } finally {
+      this.metrics.recordBatch(sample, batch.size());
+    }
+
+    if (outcomes == null) {
+      batch.forEach(this::processAlone);
+      return;
+    }
+    for (int i = 0; i < batch.size(); i++) {
+      batch.get(i).complete(outcomes.get(i));
+    }
+  }
+
+  /**
+   * Applies a single command in its own transaction.
+   *
+   * @param command the <code>Command</code> to apply.
+   */
+  private void processAlone(Command command) {
+    try {
+      Object outcome = this.transactionTemplate.execute(status -> {
+        Object applied = command.applyTo(this.service);
+        if (applied instanceof Exception) {
+          status.setRollbackOnly();
+        }
+        return applied;
+      });
+      command.complete(outcome);
+    } catch (RuntimeException ex) {
+      command.future.completeExceptionally(ex);
+    }
+  }
+
+  /**
+   * A bounded queue of commands and the writer thread applying them.
+   */
+  private final class Lane {
+
+    private final BlockingQueue<Command> queue;
+    private final Thread writer;
+
+    Lane(int index, int capacity) {
+      this.queue = new ArrayBlockingQueue<>(capacity);
+      this.writer = new Thread(this::run, "booking-sequencer-" + index);
+      this.writer.setDaemon(true);
+    }
+
+    void start() {
+      this.writer.start();
+    }
+
+    void stop() throws InterruptedException {
+      this.writer.join(TimeUnit.SECONDS.toMillis(5));
+
+      List<Command> pending = new ArrayList<>();
+      this.queue.drainTo(pending);
+      pending.forEach(command -> command.future.completeExceptionally(shuttingDown()));
+    }
+
+    /**
+     * Writer thread loop, drains the queue in batches until stopped. Whatever a batch throws, its
+     * commands are completed and the writer goes on with the next one.
+     */
+    private void run() {
+      List<Command> batch = new ArrayList<>(batchSize);
+      while (running) {
+        try {
+          Command first = this.queue.poll(100, TimeUnit.MILLISECONDS);
+          if (first == null) {
+            continue;
+          }
+          batch.add(first);
+          this.queue.drainTo(batch, batchSize - 1);
+          process(batch);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          return;
+        } catch (Throwable ex) {
+          LOGGER.error("Unexpected error while processing a booking batch", ex);
+          batch.forEach(command -> command.future.completeExceptionally(ex));
+        } finally {
+          batch.clear();
+        }
+      }
+    }
+  }
+
+  /**
+   * A write operation on the <code>ReservationService</code>, applied by the writer thread.
+   */
+  @FunctionalInterface
+  private interface Operation {
+
+    Reservation apply(ReservationService service)
+        throws InvalidReservationDateException, ReservationNotFoundException;
+  }
+
+  /**
+   * A queued operation and the future completed once it is committed or rejected.
+   */
+  private static class Command {
+
+    private final Operation operation;
+    private final CompletableFuture<Reservation> future = new CompletableFuture<>();
+    private final long queuedAt = System.nanoTime();
+
+    Command(Operation operation) {
+      this.operation = operation;
+    }
+
+    /**
+     * Applies the operation, returning either the reservation or the checked exception thrown.
+     */
+    Object applyTo(ReservationService service) {
+      try {
+        return this.operation.apply(service);
+      } catch (InvalidReservationDateException | ReservationNotFoundException ex) {
+        return ex;
+      }
+    }
+
+    void complete(Object outcome) {
+      if (outcome instanceof Exception) {
+        this.future.completeExceptionally((Exception) outcome);
+      } else {
+        this.future.complete((Reservation) outcome);
+      }
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package com.upgrade.campside.service;
+
+import com.upgrade.campside.domain.model.DateRange;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * The <code>StaySearch</code> class is the result of a search for free stays of a given number of
+ * nights inside a window: one bit per feasible arrival date, from the window start, tagged with
+ * the calendar version it was computed at.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Getter
+public class StaySearch {
+
+  private final DateRange window;
+  private final int nights;
+  private final BitSet arrivals;
+  private final long version;
+
+  /**
+   * <code>StaySearch</code> constructor.
+   *
+   * @param window the <code>DateRange</code> every stay fits in
+   * @param nights the number of nights of the stays
+   * @param arrivals the <code>BitSet</code> with one bit per feasible arrival, from the window
+   *     start
+   * @param version the calendar version of the search
+   */
+  public StaySearch(DateRange window, int nights, BitSet arrivals, long version) {
+    this.window = window;
+    this.nights = nights;
+    this.arrivals = arrivals;
+    this.version = version;
+  }
+
+  /**
+   * Lists the feasible arrival dates.
+   *
+   * @return a <code>List<LocalDate></code> with the arrival dates, in order.
+   */
+  public List<LocalDate> getArrivalDates() {
+    List<LocalDate> arrivalDates = new ArrayList<>(arrivals.cardinality());
+    LocalDate start = window.getStart();
+    for (int day = arrivals.nextSetBit(0); day >= 0; day = arrivals.nextSetBit(day + 1)) {
+      arrivalDates.add(start.plusDays(day));
+    }
+    return arrivalDates;
+  }
+}
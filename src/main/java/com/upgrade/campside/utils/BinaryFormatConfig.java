@@ -0,0 +1,66 @@
+package com.upgrade.campside.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.upgrade.campside.controller.dto.BinaryDTOModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary formats configuration class. Besides JSON, the endpoints answer in CBOR
+ * (<code>application/cbor</code>) and Smile (<code>application/x-jackson-smile</code>) when the
+ * <code>Accept</code> header asks for them, and read request bodies in both. JSON stays the
+ * default. The binary mappers share the settings of the JSON one and add the
+ * <code>BinaryDTOModule</code>, for epoch day dates and hand-written DTO serializers.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Configuration
+public class BinaryFormatConfig {
+
+  /**
+   * The CBOR message converter, replacing the default one.
+   *
+   * @param builder the <code>Jackson2ObjectMapperBuilder</code> configured by Spring Boot.
+   * @return the <code>MappingJackson2CborHttpMessageConverter</code>.
+   */
+  @Bean
+  public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(
+      Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2CborHttpMessageConverter(binaryMapper(builder, new CBORFactory()));
+  }
+
+  /**
+   * The Smile message converter, replacing the default one.
+   *
+   * @param builder the <code>Jackson2ObjectMapperBuilder</code> configured by Spring Boot.
+   * @return the <code>MappingJackson2SmileHttpMessageConverter</code>.
+   */
+  @Bean
+  public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(
+      Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2SmileHttpMessageConverter(binaryMapper(builder, new SmileFactory()));
+  }
+
+  /**
+   * Builds the mapper of a binary format, with the <code>BinaryDTOModule</code> registered after
+   * the modules of the builder so its serializers take precedence.
+   *
+   * @param builder the <code>Jackson2ObjectMapperBuilder</code> with the common settings.
+   * @param factory the <code>JsonFactory</code> of the binary format.
+   * @return the <code>ObjectMapper</code> of the format.
+   */
+  public static ObjectMapper binaryMapper(Jackson2ObjectMapperBuilder builder,
+      JsonFactory factory) {
+    ObjectMapper mapper = builder.factory(factory).build();
+    mapper.registerModule(new BinaryDTOModule());
+    return mapper;
+  }
+}
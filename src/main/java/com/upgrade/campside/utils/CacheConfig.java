@@ -0,0 +1,19 @@
+package com.upgrade.campside.utils;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Spring cache configuration class. Enables the <code>@Cacheable</code> annotations, the caches
+ * themselves are Caffeine caches configured by the <code>spring.cache</code> properties, and
+ * their hit, miss and eviction statistics are exposed on the actuator metrics endpoint.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+}
@@ -0,0 +1,65 @@
+package com.upgrade.campside.utils;
+
+import com.upgrade.campside.controller.ConcurrencyLimitInterceptor;
+import com.upgrade.campside.service.ConcurrencyLimiter;
+import com.upgrade.campside.service.ReservationMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Concurrency limits configuration class. Requests to the reservation endpoints go through the
+ * <code>ConcurrencyLimitInterceptor</code>, with one adaptive limiter for reads and another one for
+ * writes, each with its own limits, queue and Retry-After delay. Exports and streamed
+ * availability are long-lived by design and are not limited. Disabled with
+ * <code>campside.limiter.enabled=false</code>.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Configuration
+@ConditionalOnProperty(name = "campside.limiter.enabled", havingValue = "true",
+    matchIfMissing = true)
+public class ConcurrencyLimitConfig implements WebMvcConfigurer {
+
+  private final ReservationMetrics metrics;
+  private final ConcurrencyLimiter readLimiter;
+  private final ConcurrencyLimiter writeLimiter;
+
+  /**
+   * Class constructor with AutoWired dependencies injection.
+   */
+  @Autowired
+  public ConcurrencyLimitConfig(ReservationMetrics metrics,
+      @Value("${campside.limiter.window:100}") long windowMillis,
+      @Value("${campside.limiter.read.initial-limit:50}") int readInitialLimit,
+      @Value("${campside.limiter.read.max-limit:500}") int readMaxLimit,
+      @Value("${campside.limiter.read.queue-size:200}") int readQueueSize,
+      @Value("${campside.limiter.read.max-wait:100}") long readMaxWait,
+      @Value("${campside.limiter.read.retry-after:1}") long readRetryAfter,
+      @Value("${campside.limiter.write.initial-limit:10}") int writeInitialLimit,
+      @Value("${campside.limiter.write.max-limit:100}") int writeMaxLimit,
+      @Value("${campside.limiter.write.queue-size:50}") int writeQueueSize,
+      @Value("${campside.limiter.write.max-wait:50}") long writeMaxWait,
+      @Value("${campside.limiter.write.retry-after:1}") long writeRetryAfter) {
+    this.metrics = metrics;
+    this.readLimiter = new ConcurrencyLimiter("read", readInitialLimit, 1, readMaxLimit,
+        readQueueSize, readMaxWait, windowMillis, readRetryAfter);
+    this.writeLimiter = new ConcurrencyLimiter("write", writeInitialLimit, 1, writeMaxLimit,
+        writeQueueSize, writeMaxWait, windowMillis, writeRetryAfter);
+    metrics.gaugeLimiter(this.readLimiter);
+    metrics.gaugeLimiter(this.writeLimiter);
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(
+        new ConcurrencyLimitInterceptor(this.readLimiter, this.writeLimiter, this.metrics))
+        .addPathPatterns("/api/reservation", "/api/reservation/**")
+        .excludePathPatterns("/api/reservation/export", "/api/reservation/availability/stream");
+  }
+}
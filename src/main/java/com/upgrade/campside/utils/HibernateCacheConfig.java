@@ -0,0 +1,119 @@
+package com.upgrade.campside.utils;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Hibernate second-level cache configuration class. <code>Reservation</code>, <code>Person</code>
+ * and <code>Campsite</code> entities are kept in Caffeine caches, through JCache, so lookups by id
+ * are answered without a round trip to the database. Each region is created here with its maximum
+ * size and time to live, a region not created here fails the startup.
+ *
+ * Queries are not cached: the overlap checks decide whether a booking is accepted, and must see
+ * the writes of every instance. The entity cache is local to the instance: writes made by other
+ * instances are only seen once an entry expires, so the time to live bounds the staleness, and
+ * reservations about to change are loaded bypassing it. The statistics of each region are
+ * published as the <code>cache.*</code> metrics tagged with <code>cacheManager=hibernate</code>,
+ * and the overall hit and miss counts as the <code>hibernate.second.level.cache.requests</code>
+ * metric when Hibernate statistics are enabled, by the <code>statistics</code> profile.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Configuration
+@ConditionalOnProperty(name = "campside.hibernate-cache.enabled", havingValue = "true",
+    matchIfMissing = true)
+public class HibernateCacheConfig {
+
+  public static final String RESERVATION_REGION = "reservation";
+  public static final String PERSON_REGION = "person";
+  public static final String CAMPSITE_REGION = "campsite";
+
+  /**
+   * The JCache manager holding the Hibernate cache regions, private to this application context.
+   *
+   * @param entityMaxSize the maximum number of entries of each entity region.
+   * @param entityTtl the time to live of entity entries, in milliseconds.
+   * @return the <code>CacheManager</code> with every region created.
+   */
+  @Bean(destroyMethod = "close")
+  public CacheManager hibernateCacheManager(
+      @Value("${campside.hibernate-cache.entity.max-size:10000}") long entityMaxSize,
+      @Value("${campside.hibernate-cache.entity.ttl:600000}") long entityTtl) {
+    CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+    CacheManager cacheManager = provider.getCacheManager(
+        URI.create("campside-hibernate-" + System.identityHashCode(this)),
+        getClass().getClassLoader());
+
+    cacheManager.createCache(RESERVATION_REGION, region(entityMaxSize, entityTtl));
+    cacheManager.createCache(PERSON_REGION, region(entityMaxSize, entityTtl));
+    cacheManager.createCache(CAMPSITE_REGION, region(entityMaxSize, entityTtl));
+    return cacheManager;
+  }
+
+  /**
+   * Enables the second-level cache of Hibernate on the regions of the cache manager.
+   *
+   * @param hibernateCacheManager the <code>CacheManager</code> with the regions.
+   * @return the <code>HibernatePropertiesCustomizer</code> setting the cache properties.
+   */
+  @Bean
+  public HibernatePropertiesCustomizer hibernateCacheCustomizer(
+      CacheManager hibernateCacheManager) {
+    return properties -> {
+      properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+      properties.put(AvailableSettings.USE_QUERY_CACHE, false);
+      properties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+      properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+      properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+    };
+  }
+
+  /**
+   * Publishes the hits, misses, puts and removals of every region as <code>cache.*</code> metrics,
+   * tagged with the region name and <code>cacheManager=hibernate</code>.
+   *
+   * @param hibernateCacheManager the <code>CacheManager</code> with the regions.
+   * @return the <code>MeterBinder</code> of the region statistics.
+   */
+  @Bean
+  public MeterBinder hibernateCacheMetrics(CacheManager hibernateCacheManager) {
+    return registry -> hibernateCacheManager.getCacheNames().forEach(region ->
+        JCacheMetrics.monitor(registry, hibernateCacheManager.getCache(region),
+            Tags.of("cacheManager", "hibernate", "name", region)));
+  }
+
+  /**
+   * Configuration of a region kept by reference, bounded and expiring when the values are not 0.
+   */
+  private static CaffeineConfiguration<Object, Object> region(long maxSize, long ttlMillis) {
+    CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+    configuration.setStoreByValue(false);
+    configuration.setStatisticsEnabled(true);
+    if (maxSize > 0) {
+      configuration.setMaximumSize(OptionalLong.of(maxSize));
+    }
+    if (ttlMillis > 0) {
+      configuration.setExpireAfterWrite(
+          OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(ttlMillis)));
+    }
+    return configuration;
+  }
+}
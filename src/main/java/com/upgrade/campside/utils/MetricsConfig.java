@@ -0,0 +1,83 @@
+package com.upgrade.campside.utils;
+
+import com.upgrade.campside.service.ReservationMetrics;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.Repository;
+
+/**
+ * Metrics configuration class. Every Spring Data repository proxy gets an interceptor timing its
+ * methods, derived and declared queries as well as the inherited ones, as
+ * <code>campside.repository</code> meters of the <code>ReservationMetrics</code>.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Configuration
+public class MetricsConfig {
+
+  /**
+   * Adds the timing interceptor first in the repository proxies, the last one executes the query
+   * and does not proceed. The timing includes the repository transaction. Static, as any
+   * <code>BeanPostProcessor</code>, and the metrics are looked up lazily so that registering it
+   * does not create any other bean early.
+   *
+   * @param metrics the <code>ReservationMetrics</code> provider.
+   * @return the repository <code>BeanPostProcessor</code>.
+   */
+  @Bean
+  public static BeanPostProcessor repositoryMetricsPostProcessor(
+      ObjectProvider<ReservationMetrics> metrics) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof Repository && bean instanceof Advised) {
+          ((Advised) bean).addAdvice(0, new RepositoryMetricsInterceptor(beanName, metrics));
+        }
+        return bean;
+      }
+    };
+  }
+
+  /**
+   * Times each repository method invocation.
+   */
+  private static class RepositoryMetricsInterceptor implements MethodInterceptor {
+
+    private final String repository;
+    private final ObjectProvider<ReservationMetrics> metricsProvider;
+    private volatile ReservationMetrics metrics;
+
+    RepositoryMetricsInterceptor(String repository,
+        ObjectProvider<ReservationMetrics> metricsProvider) {
+      this.repository = repository;
+      this.metricsProvider = metricsProvider;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+      long start = System.nanoTime();
+      Throwable error = null;
+      try {
+        return invocation.proceed();
+      } catch (Throwable ex) {
+        error = ex;
+        throw ex;
+      } finally {
+        if (metrics == null) {
+          metrics = metricsProvider.getIfAvailable();
+        }
+        if (metrics != null) {
+          metrics.recordRepository(repository, invocation.getMethod().getName(),
+              System.nanoTime() - start, error);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package com.upgrade.campside.utils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Read executor configuration class. Availability queries and booking lookups the read model can
+ * not answer query the store on this small bounded pool, so many concurrent pollers of past periods
+ * hold at most a connection per read thread, leaving the others to bookings. Queries beyond the
+ * queue capacity are rejected instead of piling up.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Configuration
+public class ReadExecutorConfig {
+
+  public static final String READ_EXECUTOR = "readExecutor";
+
+  /**
+   * The read executor, or a caller runs executor when <code>campside.read.threads</code> is 0.
+   *
+   * @param threads the number of read threads.
+   * @param queueCapacity the maximum number of queries waiting for a read thread.
+   * @return the read <code>Executor</code>.
+   */
+  @Bean(name = READ_EXECUTOR)
+  public Executor readExecutor(@Value("${campside.read.threads:8}") int threads,
+      @Value("${campside.read.queue-capacity:1000}") int queueCapacity) {
+    if (threads == 0) {
+      return Runnable::run;
+    }
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0,
+        TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+        new CustomizableThreadFactory("read-"));
+    executor.prestartAllCoreThreads();
+    return executor;
+  }
+}
@@ -0,0 +1,18 @@
+package com.upgrade.campside.utils;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Spring scheduling configuration class. Enables <code>@Scheduled</code> tasks, such as the daily
+ * roll forward of the occupancy index.
+ *
+ * @author Olavo Holanda
+ * @version 0.1
+ * @since 0.1
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+}
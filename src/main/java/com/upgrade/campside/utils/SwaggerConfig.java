@@ -2,6 +2,7 @@ package com.upgrade.campside.utils;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.async.DeferredResult;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
 import springfox.documentation.spi.DocumentationType;
@@ -31,6 +32,7 @@ public class SwaggerConfig {
         .select()
         .apis(RequestHandlerSelectors.basePackage("com.upgrade.campside.controller"))
         .paths(PathSelectors.ant("/api/**"))
-        .build();
+        .build()
+        .genericModelSubstitutes(DeferredResult.class);
   }
 }
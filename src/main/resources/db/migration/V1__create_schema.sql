@@ -0,0 +1,40 @@
+-- Initial schema, as mapped by the entities. Hibernate only validates it, every later change is a
+-- new versioned migration.
+
+create sequence hibernate_sequence start with 1 increment by 1;
+
+create table person (
+  id bigint not null,
+  email varchar(255) not null,
+  full_name varchar(255) not null,
+  primary key (id),
+  constraint uk_person_email unique (email)
+);
+
+create table reservation (
+  booking_id bigint not null,
+  arrival_date date not null,
+  departure_date date not null,
+  status varchar(255) not null,
+  owner_id bigint,
+  primary key (booking_id),
+  constraint fk_reservation_owner foreign key (owner_id) references person
+);
+
+-- Overlap queries select the active stays with arrival_date < :end and departure_date > :start:
+-- an equality on status, then a range on arrival_date, filtered by departure_date in the index.
+create index idx_reservation_status_dates on reservation (status, arrival_date, departure_date);
+
+create index idx_reservation_owner on reservation (owner_id);
+
+create table reservation_night (
+  id bigint not null,
+  night date not null,
+  reservation_booking_id bigint not null,
+  primary key (id),
+  constraint uk_reservation_night_night unique (night),
+  constraint fk_reservation_night_reservation foreign key (reservation_booking_id)
+    references reservation
+);
+
+create index idx_reservation_night_reservation on reservation_night (reservation_booking_id);
@@ -0,0 +1,4 @@
+-- Held reservations block their nights until the hold expires. Holds are expired in memory by the
+-- hold timing wheel, the column is only read at startup to schedule the live ones again.
+
+alter table reservation add column held_until timestamp;
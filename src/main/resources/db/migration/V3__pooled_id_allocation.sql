@@ -0,0 +1,4 @@
+-- Ids are allocated in blocks of 50 by the pooled-lo optimizer: each sequence value is the first
+-- id of a block. Ids already handed out are below the next value, so blocks never overlap them.
+
+alter sequence hibernate_sequence increment by 50;
@@ -0,0 +1,29 @@
+-- Reservations belong to a campsite. Every existing reservation goes to the default campsite 1,
+-- new campsites get their ids from their own sequence.
+
+create sequence campsite_sequence start with 2 increment by 1;
+
+create table campsite (
+  id bigint not null,
+  name varchar(255) not null,
+  primary key (id),
+  constraint uk_campsite_name unique (name)
+);
+
+insert into campsite (id, name) values (1, 'Campside');
+
+alter table reservation add column campsite_id bigint default 1 not null;
+alter table reservation add constraint fk_reservation_campsite foreign key (campsite_id)
+  references campsite;
+
+-- Overlap queries are scoped to a campsite: an equality on campsite_id and status, then a range on
+-- arrival_date, so each query only scans the stays of its own campsite.
+drop index idx_reservation_status_dates;
+create index idx_reservation_campsite_status_dates
+  on reservation (campsite_id, status, arrival_date, departure_date);
+
+-- A night is claimed once per campsite, bookings on different campsites never hit the same key.
+alter table reservation_night add column campsite_id bigint default 1 not null;
+alter table reservation_night drop constraint uk_reservation_night_night;
+alter table reservation_night add constraint uk_reservation_night_campsite_night
+  unique (campsite_id, night);
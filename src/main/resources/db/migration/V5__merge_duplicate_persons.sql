@@ -0,0 +1,21 @@
+-- Persons are unique by normalized email, trimmed and in lower case. Rows written before that may
+-- share a normalized email: the oldest one of each email is kept, the reservations of the others
+-- move to it, then every email is normalized and the unique constraint is checked again.
+
+update reservation set owner_id = (
+    select min(survivor.id) from person owner, person survivor
+    where owner.id = reservation.owner_id
+      and lower(trim(survivor.email)) = lower(trim(owner.email)))
+  where owner_id in (
+    select duplicate.id from person duplicate, person older
+    where lower(trim(older.email)) = lower(trim(duplicate.email)) and older.id < duplicate.id);
+
+delete from person where exists (
+  select 1 from person older
+  where lower(trim(older.email)) = lower(trim(person.email)) and older.id < person.id);
+
+update person set email = lower(trim(email)) where email <> lower(trim(email));
+
+-- Dropped and added again, so the constraint is checked against the normalized emails
+alter table person drop constraint if exists uk_person_email;
+alter table person add constraint uk_person_email unique (email);
@@ -0,0 +1,12 @@
+-- Runs once, when a database created by Hibernate before Flyway managed the schema is baselined at
+-- version 1. Hibernate created the tables and constraints of V1 but not its indexes, which the
+-- later migrations expect: they are added here. The unique email constraint may be missing too,
+-- if duplicate persons kept Hibernate from adding it; V5 merges them and adds it.
+
+create index if not exists idx_reservation_status_dates
+  on reservation (status, arrival_date, departure_date);
+
+create index if not exists idx_reservation_owner on reservation (owner_id);
+
+create index if not exists idx_reservation_night_reservation
+  on reservation_night (reservation_booking_id);
@@ -0,0 +1,70 @@
+package com.upgrade.campside.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.upgrade.campside.service.ImportResult;
+import com.upgrade.campside.service.ReservationImporter;
+import java.io.InputStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.rest.RepositoryRestMvcAutoConfiguration;
+import org.springframework.boot.autoconfigure.hateoas.HypermediaAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(controllers = AdminController.class, properties = {
+    "campside.limiter.enabled=false",
+    "campside.admin.username=operator",
+    "campside.admin.password={noop}secret"})
+@ImportAutoConfiguration(exclude = {RepositoryRestMvcAutoConfiguration.class,
+    HypermediaAutoConfiguration.class})
+public class AdminControllerTest {
+
+  private static final String IMPORT = "/api/admin/reservations/import";
+
+  @Autowired
+  private MockMvc mvc;
+
+  @MockBean
+  private ReservationImporter importer;
+
+  @Test
+  public void importRequiresAdminCredentials() throws Exception {
+    mvc.perform(importRequest()).andExpect(status().isUnauthorized());
+    mvc.perform(importRequest().with(credentials("wrong")))
+        .andExpect(status().isUnauthorized());
+
+    verify(importer, never()).importCsv(any(InputStream.class));
+  }
+
+  @Test
+  public void importWithAdminCredentials() throws Exception {
+    when(importer.importCsv(any(InputStream.class))).thenReturn(mock(ImportResult.class));
+
+    mvc.perform(importRequest().with(credentials("secret")))
+        .andExpect(status().isOk());
+  }
+
+  private MockHttpServletRequestBuilder importRequest() {
+    return post(IMPORT).contentType("text/csv")
+        .content("email,full_name,arrival_date,departure_date\n");
+  }
+
+  private RequestPostProcessor credentials(String password) {
+    return SecurityMockMvcRequestPostProcessors.httpBasic("operator", password);
+  }
+}
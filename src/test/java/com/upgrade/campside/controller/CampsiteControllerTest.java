@@ -0,0 +1,78 @@
+package com.upgrade.campside.controller;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.upgrade.campside.domain.model.Campsite;
+import com.upgrade.campside.service.CampsiteService;
+import java.util.Collections;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.rest.RepositoryRestMvcAutoConfiguration;
+import org.springframework.boot.autoconfigure.hateoas.HypermediaAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(controllers = CampsiteController.class, properties = {
+    "campside.limiter.enabled=false",
+    "campside.admin.username=operator",
+    "campside.admin.password={noop}secret"})
+@ImportAutoConfiguration(exclude = {RepositoryRestMvcAutoConfiguration.class,
+    HypermediaAutoConfiguration.class})
+public class CampsiteControllerTest {
+
+  private static final String CAMPSITES = "/api/campsite";
+
+  @Autowired
+  private MockMvc mvc;
+
+  @MockBean
+  private CampsiteService service;
+
+  @Test
+  public void createRequiresAdminCredentials() throws Exception {
+    mvc.perform(createRequest()).andExpect(status().isUnauthorized());
+    mvc.perform(createRequest().with(credentials("wrong")))
+        .andExpect(status().isUnauthorized());
+
+    verify(service, never()).createCampsite(anyString());
+  }
+
+  @Test
+  public void createWithAdminCredentials() throws Exception {
+    when(service.createCampsite("North Shore")).thenReturn(new Campsite("North Shore"));
+
+    mvc.perform(createRequest().with(credentials("secret")))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void listIsOpen() throws Exception {
+    when(service.getCampsites()).thenReturn(Collections.emptyList());
+
+    mvc.perform(get(CAMPSITES)).andExpect(status().isOk());
+  }
+
+  private MockHttpServletRequestBuilder createRequest() {
+    return post(CAMPSITES).contentType(MediaType.APPLICATION_JSON)
+        .content("{\"name\": \"North Shore\"}");
+  }
+
+  private RequestPostProcessor credentials(String password) {
+    return SecurityMockMvcRequestPostProcessors.httpBasic("operator", password);
+  }
+}
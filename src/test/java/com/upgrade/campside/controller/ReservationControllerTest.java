@@ -0,0 +1,215 @@
+package com.upgrade.campside.controller;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.upgrade.campside.domain.model.Campsite;
+import com.upgrade.campside.domain.model.DateRange;
+import com.upgrade.campside.domain.model.ReservationStatus;
+import com.upgrade.campside.domain.model.ReservationView;
+import com.upgrade.campside.exception.ReservationNotFoundException;
+import com.upgrade.campside.service.CampsiteService;
+import com.upgrade.campside.service.IdempotencyStore;
+import com.upgrade.campside.service.Occupancy;
+import com.upgrade.campside.service.ReservationQueryService;
+import com.upgrade.campside.service.ReservationService;
+import com.upgrade.campside.utils.ReadExecutorConfig;
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.rest.RepositoryRestMvcAutoConfiguration;
+import org.springframework.boot.autoconfigure.hateoas.HypermediaAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(controllers = ReservationController.class,
+    properties = "campside.limiter.enabled=false")
+@ImportAutoConfiguration(exclude = {RepositoryRestMvcAutoConfiguration.class,
+    HypermediaAutoConfiguration.class})
+public class ReservationControllerTest {
+
+  private static final Long CAMPSITE = Campsite.DEFAULT_ID;
+  private static final String FREE_RANGES = "/api/reservation/availability/free";
+  private static final Long BOOKING = 5L;
+  private static final String RESERVATION = "/api/reservation/" + BOOKING;
+  private static final String EXPORT = "/api/reservation/export";
+
+  @Autowired
+  private MockMvc mvc;
+
+  /**
+   * Also the <code>BookingEngine</code> of the controller.
+   */
+  @MockBean
+  private ReservationService service;
+
+  @MockBean
+  private ReservationQueryService queryService;
+
+  @MockBean
+  private IdempotencyStore idempotencyStore;
+
+  @MockBean
+  private CampsiteService campsiteService;
+
+  @MockBean(name = ReadExecutorConfig.READ_EXECUTOR)
+  private Executor readExecutor;
+
+  private DateRange period;
+
+  @Before
+  public void setUp() {
+    period = new DateRange(LocalDate.now(), LocalDate.now().plusMonths(1));
+    when(queryService.getCalendarVersion(CAMPSITE)).thenReturn(7L);
+    when(queryService.getOccupancy(eq(CAMPSITE), any(DateRange.class)))
+        .thenReturn(new Occupancy(period, new BitSet(), 7L));
+  }
+
+  @Test
+  public void freeRangesAreNotModifiedWhileTheCalendarIsUnchanged() throws Exception {
+    String etag = mvc.perform(get(FREE_RANGES))
+        .andExpect(status().isOk())
+        .andExpect(header().exists(HttpHeaders.ETAG))
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    mvc.perform(get(FREE_RANGES).header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified());
+
+    when(queryService.getCalendarVersion(CAMPSITE)).thenReturn(8L);
+    when(queryService.getOccupancy(eq(CAMPSITE), any(DateRange.class)))
+        .thenReturn(new Occupancy(period, new BitSet(), 8L));
+    String changed = mvc.perform(get(FREE_RANGES).header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    assertNotNull(changed);
+    assertNotEquals(etag, changed);
+  }
+
+  @Test
+  public void freeRangesTagDiffersByRepresentation() throws Exception {
+    String json = mvc.perform(get(FREE_RANGES).accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    String cbor = mvc.perform(get(FREE_RANGES).accept(MediaType.APPLICATION_CBOR)
+        .header(HttpHeaders.IF_NONE_MATCH, json))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    assertNotEquals(json, cbor);
+
+    mvc.perform(get(FREE_RANGES).accept(MediaType.APPLICATION_CBOR)
+        .header(HttpHeaders.IF_NONE_MATCH, cbor))
+        .andExpect(status().isNotModified());
+  }
+
+  @Test
+  public void projectedReservationIsAnsweredWithoutReadExecutor() throws Exception {
+    when(queryService.findProjectedView(BOOKING)).thenReturn(Optional.of(view()));
+
+    MvcResult result = mvc.perform(get(RESERVATION))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    mvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.bookingId").value(BOOKING));
+    verify(readExecutor, never()).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void reservationNotProjectedIsLookedUpOnReadExecutor() throws Exception {
+    when(queryService.findProjectedView(BOOKING)).thenReturn(Optional.empty());
+    when(queryService.getReservationView(BOOKING)).thenReturn(view());
+    doAnswer(invocation -> {
+      invocation.<Runnable>getArgument(0).run();
+      return null;
+    }).when(readExecutor).execute(any(Runnable.class));
+
+    MvcResult result = mvc.perform(get(RESERVATION))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    mvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.bookingId").value(BOOKING));
+    verify(readExecutor).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void reservationNotFoundInStoreIsAnswered404() throws Exception {
+    when(queryService.findProjectedView(BOOKING)).thenReturn(Optional.empty());
+    when(queryService.getReservationView(BOOKING))
+        .thenThrow(new ReservationNotFoundException(BOOKING));
+    doAnswer(invocation -> {
+      invocation.<Runnable>getArgument(0).run();
+      return null;
+    }).when(readExecutor).execute(any(Runnable.class));
+
+    MvcResult result = mvc.perform(get(RESERVATION))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    mvc.perform(asyncDispatch(result))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void freeRangesTagOfAnotherBootIsNotMatched() throws Exception {
+    String previousBoot = String.format("\"json-%d-%d-%s-%s\"", CAMPSITE, 7L, period.getStart(),
+        period.getEnd());
+
+    mvc.perform(get(FREE_RANGES).header(HttpHeaders.IF_NONE_MATCH, previousBoot))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void exportRequiresAdminCredentials() throws Exception {
+    mvc.perform(get(EXPORT)).andExpect(status().isUnauthorized());
+
+    verify(service, never()).exportReservations(any(LocalDate.class), any(LocalDate.class),
+        any());
+  }
+
+  @Test
+  public void gzipIsOnlyAcceptedWithPositiveQuality() {
+    assertTrue(ReservationController.acceptsGzip("gzip, deflate"));
+    assertTrue(ReservationController.acceptsGzip("deflate, GZIP;q=0.5"));
+    assertTrue(ReservationController.acceptsGzip("*"));
+    assertFalse(ReservationController.acceptsGzip(null));
+    assertFalse(ReservationController.acceptsGzip("gzip;q=0"));
+    assertFalse(ReservationController.acceptsGzip("gzip; q=0.0, *"));
+    assertFalse(ReservationController.acceptsGzip("*;q=0"));
+    assertFalse(ReservationController.acceptsGzip("identity, x-gzipped"));
+  }
+
+  private ReservationView view() {
+    return new ReservationView(BOOKING, CAMPSITE, period.getStart().plusDays(2),
+        period.getStart().plusDays(4), ReservationStatus.CONFIRMED, null, 1L,
+        "johndoe@email.com", "John Doe");
+  }
+}
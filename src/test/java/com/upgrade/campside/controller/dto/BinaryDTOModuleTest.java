@@ -0,0 +1,76 @@
+package com.upgrade.campside.controller.dto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.upgrade.campside.domain.model.Campsite;
+import com.upgrade.campside.domain.model.Person;
+import com.upgrade.campside.domain.model.Reservation;
+import com.upgrade.campside.domain.model.ReservationStatus;
+import com.upgrade.campside.utils.BinaryFormatConfig;
+import java.time.Instant;
+import java.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+public class BinaryDTOModuleTest {
+
+  private ObjectMapper jsonMapper;
+  private ObjectMapper cborMapper;
+  private ObjectMapper smileMapper;
+  private ReservationDTO dto;
+
+  @Before
+  public void setUp() {
+    jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+    cborMapper = BinaryFormatConfig.binaryMapper(Jackson2ObjectMapperBuilder.json(),
+        new CBORFactory());
+    smileMapper = BinaryFormatConfig.binaryMapper(Jackson2ObjectMapperBuilder.json(),
+        new SmileFactory());
+
+    Person owner = new Person("binary@email.com", "Binary Guest");
+    owner.setId(7L);
+    Reservation reservation = new Reservation(Campsite.DEFAULT_ID, LocalDate.of(2020, 1, 10),
+        LocalDate.of(2020, 1, 12), owner, ReservationStatus.HELD);
+    reservation.setBookingId(42L);
+    reservation.setHeldUntil(Instant.ofEpochMilli(1578614400000L));
+    dto = new ReservationDTO();
+    dto.buildFromEntity(reservation);
+  }
+
+  @Test
+  public void datesAreWrittenAsEpochDays() throws Exception {
+    JsonNode cbor = new ObjectMapper(new CBORFactory()).readTree(cborMapper.writeValueAsBytes(dto));
+    JsonNode smile = new ObjectMapper(new SmileFactory())
+        .readTree(smileMapper.writeValueAsBytes(dto));
+    JsonNode json = jsonMapper.readTree(jsonMapper.writeValueAsBytes(dto));
+
+    for (JsonNode node : new JsonNode[]{cbor, smile}) {
+      assertEquals(42L, node.get("bookingId").asLong());
+      assertEquals(LocalDate.of(2020, 1, 10).toEpochDay(), node.get("arrivalDate").asLong());
+      assertEquals(LocalDate.of(2020, 1, 12).toEpochDay(), node.get("departureDate").asLong());
+      assertEquals("HELD", node.get("status").asText());
+      assertEquals(1578614400000L, node.get("heldUntil").asLong());
+      assertEquals("binary@email.com", node.get("owner").get("email").asText());
+      assertEquals(7L, node.get("owner").get("id").asLong());
+      assertEquals(json.size(), node.size());
+    }
+    assertTrue(cborMapper.writeValueAsBytes(dto).length < jsonMapper.writeValueAsBytes(dto).length);
+  }
+
+  @Test
+  public void datesAreReadFromEpochDaysOrIsoStrings() throws Exception {
+    ObjectMapper plainCbor = new ObjectMapper(new CBORFactory());
+    LocalDate date = LocalDate.of(2020, 2, 29);
+
+    assertEquals(date, cborMapper.readValue(plainCbor.writeValueAsBytes(date.toEpochDay()),
+        LocalDate.class));
+    assertEquals(date, cborMapper.readValue(plainCbor.writeValueAsBytes("2020-02-29"),
+        LocalDate.class));
+  }
+}
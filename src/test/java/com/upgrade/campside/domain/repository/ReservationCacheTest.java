@@ -0,0 +1,113 @@
+package com.upgrade.campside.domain.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.upgrade.campside.domain.model.Campsite;
+import com.upgrade.campside.domain.model.Person;
+import com.upgrade.campside.domain.model.Reservation;
+import com.upgrade.campside.domain.model.ReservationStatus;
+import com.upgrade.campside.utils.HibernateCacheConfig;
+import java.time.LocalDate;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import(HibernateCacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ReservationCacheTest {
+
+  private static final Long CAMPSITE = Campsite.DEFAULT_ID;
+
+  @Autowired
+  private ReservationRepository reservationRepository;
+
+  @Autowired
+  private PersonRepository personRepository;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  private Statistics statistics;
+
+  private Person owner;
+
+  private LocalDate today;
+
+  @Before
+  public void setUp() {
+    reservationRepository.deleteAll();
+    owner = personRepository.findIdByEmail("cached@email.com")
+        .flatMap(personRepository::findById)
+        .orElseGet(() -> personRepository.save(new Person("cached@email.com", "Cached Guest")));
+    today = LocalDate.now();
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+  }
+
+  @After
+  public void tearDown() {
+    reservationRepository.deleteAll();
+  }
+
+  @Test
+  public void findByIdIsServedFromSecondLevelCache() {
+    Reservation saved = reservationRepository.save(new Reservation(CAMPSITE, today.plusDays(2),
+        today.plusDays(4), owner, ReservationStatus.CONFIRMED));
+    statistics.clear();
+
+    Reservation found = reservationRepository.findById(saved.getBookingId()).get();
+
+    assertEquals(saved.getArrivalDate(), found.getArrivalDate());
+    assertEquals("cached@email.com", found.getOwner().getEmail());
+    assertEquals(0, statistics.getEntityLoadCount());
+    assertTrue(statistics.getSecondLevelCacheHitCount() >= 2);
+  }
+
+  @Test
+  public void overlapChecksAreCachedUntilReservationsChange() {
+    LocalDate arrival = today.plusDays(2);
+    LocalDate departure = today.plusDays(4);
+    statistics.clear();
+
+    assertFalse(reservationRepository.checkReservationOverlaps(CAMPSITE, arrival, departure));
+    assertFalse(reservationRepository.checkReservationOverlaps(CAMPSITE, arrival, departure));
+    assertEquals(1, statistics.getQueryExecutionCount());
+    assertEquals(1, statistics.getQueryCacheHitCount());
+
+    reservationRepository.save(new Reservation(CAMPSITE, arrival, departure, owner,
+        ReservationStatus.CONFIRMED));
+
+    assertTrue(reservationRepository.checkReservationOverlaps(CAMPSITE, arrival, departure));
+    assertEquals(2, statistics.getQueryExecutionCount());
+  }
+
+  @Test
+  public void storeReadsChangesMadeByAnotherInstance() {
+    Reservation saved = reservationRepository.save(new Reservation(CAMPSITE, today.plusDays(2),
+        today.plusDays(4), owner, ReservationStatus.CONFIRMED));
+    jdbcTemplate.update("update reservation set status = 'CANCELED' where booking_id = ?",
+        saved.getBookingId());
+
+    assertEquals(ReservationStatus.CONFIRMED,
+        reservationRepository.findById(saved.getBookingId()).get().getStatus());
+    assertEquals(ReservationStatus.CANCELED, new JpaReservationStore(reservationRepository)
+        .findById(saved.getBookingId()).get().getStatus());
+  }
+}
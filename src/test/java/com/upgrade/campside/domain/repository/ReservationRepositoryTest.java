@@ -0,0 +1,153 @@
+package com.upgrade.campside.domain.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.upgrade.campside.domain.model.Campsite;
+import com.upgrade.campside.domain.model.Person;
+import com.upgrade.campside.domain.model.Reservation;
+import com.upgrade.campside.domain.model.ReservationStatus;
+import com.upgrade.campside.domain.model.ReservationView;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.upgrade.campside.domain.repository.ReservationRepositoryTest$LastStatement"})
+public class ReservationRepositoryTest {
+
+  private static final Long CAMPSITE = Campsite.DEFAULT_ID;
+
+  @Autowired
+  private ReservationRepository reservationRepository;
+
+  @Autowired
+  private PersonRepository personRepository;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  private Statistics statistics;
+
+  private LocalDate today;
+
+  private Reservation first;
+
+  private Reservation second;
+
+  @Before
+  public void setUp() {
+    reservationRepository.deleteAll();
+    today = LocalDate.now();
+    first = reservationRepository.save(new Reservation(CAMPSITE, today.plusDays(2),
+        today.plusDays(4),
+        personRepository.save(new Person("johndoe@email.com", "John Doe")),
+        ReservationStatus.CONFIRMED));
+    second = reservationRepository.save(new Reservation(CAMPSITE, today.plusDays(6),
+        today.plusDays(8),
+        personRepository.save(new Person("jehnan@email.com", "Jehn An")),
+        ReservationStatus.CONFIRMED));
+    entityManager.flush();
+    entityManager.clear();
+
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+  }
+
+  @Test
+  public void viewsInPeriodInOneStatement() {
+    List<ReservationView> views = reservationRepository
+        .getViewsInPeriod(CAMPSITE, today, today.plusMonths(1));
+
+    assertEquals(2, views.size());
+    assertEquals("John Doe", views.get(0).getOwnerFullName());
+    assertEquals("jehnan@email.com", views.get(1).getOwnerEmail());
+    assertEquals(1, statistics.getPrepareStatementCount());
+    assertEquals(0, statistics.getEntityLoadCount());
+    assertTrue(entityManager.unwrap(Session.class).getStatistics().getEntityKeys().isEmpty());
+  }
+
+  @Test
+  public void viewsByIdsInOneStatement() {
+    List<ReservationView> views = reservationRepository
+        .findViewsByIds(Arrays.asList(second.getBookingId(), first.getBookingId()));
+
+    assertEquals(first.getBookingId(), views.get(0).getBookingId());
+    assertEquals(second.getBookingId(), views.get(1).getBookingId());
+    assertEquals(1, statistics.getPrepareStatementCount());
+    assertEquals(0, statistics.getEntityLoadCount());
+  }
+
+  @Test
+  public void viewByIdInOneStatement() {
+    ReservationView view = reservationRepository.findViewById(first.getBookingId()).get();
+
+    assertEquals(today.plusDays(2), view.getArrivalDate());
+    assertEquals(ReservationStatus.CONFIRMED, view.getStatus());
+    assertEquals(1, statistics.getPrepareStatementCount());
+    assertEquals(0, statistics.getEntityLoadCount());
+  }
+
+  @Test
+  public void overlapIsHalfOpen() {
+    assertTrue(reservationRepository.checkReservationOverlaps(CAMPSITE, today.plusDays(3),
+        today.plusDays(4)));
+    assertTrue(reservationRepository.checkReservationOverlaps(CAMPSITE, today.plusDays(1),
+        today.plusDays(9)));
+    assertFalse(reservationRepository.checkReservationOverlaps(CAMPSITE, today.plusDays(4),
+        today.plusDays(6)));
+    assertFalse(reservationRepository.checkReservationOverlaps(CAMPSITE, today, today.plusDays(2)));
+    assertFalse(reservationRepository
+        .checkReservationOverlapsExceptOwn(CAMPSITE, today.plusDays(2), today.plusDays(3),
+            first.getBookingId()));
+    assertEquals(1, reservationRepository
+        .getReservationsInPeriod(CAMPSITE, today.plusDays(3), today.plusDays(6)).size());
+  }
+
+  @Test
+  public void overlapQueryUsesCampsiteStatusDatesIndex() {
+    reservationRepository.checkReservationOverlaps(CAMPSITE, today.plusDays(1), today.plusDays(3));
+
+    Query explain = entityManager.createNativeQuery("explain " + LastStatement.sql);
+    explain.setParameter(1, CAMPSITE);
+    explain.setParameter(2, today.plusDays(3));
+    explain.setParameter(3, today.plusDays(1));
+    String plan = explain.getSingleResult().toString();
+
+    assertTrue(plan, plan.contains("/* PUBLIC.IDX_RESERVATION_CAMPSITE_STATUS_DATES: "));
+    assertFalse(plan, plan.contains("tableScan"));
+  }
+
+  /**
+   * Keeps the last SQL statement prepared by Hibernate, to explain it.
+   */
+  public static class LastStatement implements StatementInspector {
+
+    static volatile String sql;
+
+    @Override
+    public String inspect(String statement) {
+      sql = statement;
+      return statement;
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package com.upgrade.campside.service;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.upgrade.campside.domain.model.DateRange;
+import java.time.LocalDate;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+public class AvailabilityCacheEvictorTest {
+
+  private Cache cache;
+
+  private AvailabilityCacheEvictor evictor;
+
+  private LocalDate today;
+
+  @Before
+  public void setUp() {
+    CaffeineCacheManager cacheManager =
+        new CaffeineCacheManager(AvailabilityCacheEvictor.AVAILABILITY_CACHE);
+    cache = cacheManager.getCache(AvailabilityCacheEvictor.AVAILABILITY_CACHE);
+    evictor = new AvailabilityCacheEvictor(cacheManager);
+    today = LocalDate.now();
+  }
+
+  @Test
+  public void evictsOnlyAffectedPeriods() {
+    CampsitePeriod firstWeek = new CampsitePeriod(1L, new DateRange(today, today.plusDays(7)));
+    CampsitePeriod secondWeek =
+        new CampsitePeriod(1L, new DateRange(today.plusDays(7), today.plusDays(14)));
+    CampsitePeriod month = new CampsitePeriod(1L, new DateRange(today, today.plusMonths(1)));
+    CampsitePeriod otherCampsite =
+        new CampsitePeriod(2L, new DateRange(today, today.plusMonths(1)));
+    cache.put(firstWeek, Collections.emptyList());
+    cache.put(secondWeek, Collections.emptyList());
+    cache.put(month, Collections.emptyList());
+    cache.put(otherCampsite, Collections.emptyList());
+
+    evictor.evict(1L, new DateRange(today.plusDays(8), today.plusDays(10)));
+
+    assertNotNull(cache.get(firstWeek));
+    assertNull(cache.get(secondWeek));
+    assertNull(cache.get(month));
+    assertNotNull(cache.get(otherCampsite));
+  }
+
+  @Test
+  public void evictsPeriodsStartingBeforeDay() {
+    CampsitePeriod lastWeek =
+        new CampsitePeriod(1L, new DateRange(today.minusDays(7), today));
+    CampsitePeriod nextWeek = new CampsitePeriod(1L, new DateRange(today, today.plusDays(7)));
+    cache.put(lastWeek, Collections.emptyList());
+    cache.put(nextWeek, Collections.emptyList());
+
+    evictor.evictStartingBefore(today);
+
+    assertNull(cache.get(lastWeek));
+    assertNotNull(cache.get(nextWeek));
+  }
+}
@@ -0,0 +1,101 @@
+package com.upgrade.campside.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.upgrade.campside.exception.ServiceOverloadedException;
+import com.upgrade.campside.service.ConcurrencyLimiter.Permit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class ConcurrencyLimiterTest {
+
+  private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  public void limitFollowsLatency() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 20, 1, 100, 0, 0, 0, 1);
+
+    for (int window = 0; window < 10; window++) {
+      sampleWindow(limiter, MILLI, limiter.getLimit());
+    }
+    int grown = limiter.getLimit();
+    assertTrue("limit " + grown, grown > 20);
+
+    for (int window = 0; window < 20; window++) {
+      sampleWindow(limiter, 10 * MILLI, limiter.getLimit());
+    }
+    assertTrue("limit " + limiter.getLimit(), limiter.getLimit() < grown / 2);
+  }
+
+  @Test
+  public void limitDoesNotGrowWhenUnused() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 20, 1, 100, 0, 0, 0, 1);
+
+    for (int window = 0; window < 10; window++) {
+      sampleWindow(limiter, MILLI, 2);
+    }
+    assertEquals(20, limiter.getLimit());
+  }
+
+  @Test
+  public void droppedRequestsBackOff() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 20, 1, 100, 0, 0, 0, 1);
+
+    for (int sample = 0; sample < 10; sample++) {
+      limiter.sample(System.nanoTime(), MILLI, 20, sample == 0);
+    }
+    assertEquals(18, limiter.getLimit());
+  }
+
+  @Test
+  public void rejectsBeyondTheQueue() throws Exception {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 1, 1, 1, 0, 1000, 0, 3);
+    Permit permit = limiter.acquire();
+
+    try {
+      limiter.acquire();
+      fail();
+    } catch (ServiceOverloadedException ex) {
+      assertEquals(3, ex.getRetryAfterSeconds());
+    }
+    permit.onSuccess();
+    limiter.acquire().onSuccess();
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  public void queuedRequestGetsTheReleasedPermit() throws Exception {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 1, 1, 1, 1, 5000, 0, 1);
+    Permit permit = limiter.acquire();
+
+    CompletableFuture<Permit> queued = CompletableFuture.supplyAsync(() -> {
+      try {
+        return limiter.acquire();
+      } catch (ServiceOverloadedException ex) {
+        throw new IllegalStateException(ex);
+      }
+    });
+    while (limiter.getWaiting() == 0) {
+      Thread.sleep(1);
+    }
+    try {
+      limiter.acquire();
+      fail();
+    } catch (ServiceOverloadedException ex) {
+      assertEquals(1, limiter.getWaiting());
+    }
+
+    permit.onSuccess();
+    queued.get(5, TimeUnit.SECONDS).onSuccess();
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  private static void sampleWindow(ConcurrencyLimiter limiter, long rttNanos, int inFlight) {
+    for (int sample = 0; sample < 10; sample++) {
+      limiter.sample(System.nanoTime(), rttNanos, inFlight, false);
+    }
+  }
+}
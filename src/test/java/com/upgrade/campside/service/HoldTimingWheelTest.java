@@ -0,0 +1,82 @@
+package com.upgrade.campside.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HoldTimingWheelTest {
+
+  private static final long START = 1_000_000L;
+
+  private List<List<Long>> batches;
+
+  private HoldTimingWheel wheel;
+
+  @Before
+  public void setUp() {
+    batches = new ArrayList<>();
+    wheel = new HoldTimingWheel(100, 8, START, batches::add);
+  }
+
+  @Test
+  public void expiresDueHoldsInOneBatch() {
+    wheel.schedule(1L, Instant.ofEpochMilli(START + 250));
+    wheel.schedule(2L, Instant.ofEpochMilli(START + 300));
+    wheel.schedule(3L, Instant.ofEpochMilli(START + 450));
+
+    wheel.advanceTo(START + 299);
+    assertTrue(batches.isEmpty());
+
+    wheel.advanceTo(START + 420);
+    assertEquals(Arrays.asList(Arrays.asList(1L, 2L)), batches);
+
+    wheel.advanceTo(START + 500);
+    assertEquals(Arrays.asList(3L), batches.get(1));
+  }
+
+  @Test
+  public void keepsHoldsBeyondOneTurnOfTheWheel() {
+    wheel.schedule(1L, Instant.ofEpochMilli(START + 1200));
+
+    wheel.advanceTo(START + 1100);
+    assertTrue(batches.isEmpty());
+
+    wheel.advanceTo(START + 1200);
+    assertEquals(Arrays.asList(Arrays.asList(1L)), batches);
+  }
+
+  @Test
+  public void retriesFailedBatchOnNextTick() {
+    List<List<Long>> attempts = new ArrayList<>();
+    wheel = new HoldTimingWheel(100, 8, START, bookingIds -> {
+      attempts.add(bookingIds);
+      if (attempts.size() == 1) {
+        throw new IllegalStateException("database down");
+      }
+    });
+    wheel.schedule(1L, Instant.ofEpochMilli(START + 100));
+
+    wheel.advanceTo(START + 100);
+    wheel.advanceTo(START + 200);
+
+    assertEquals(Arrays.asList(Arrays.asList(1L), Arrays.asList(1L)), attempts);
+  }
+
+  @Test
+  public void expiresPastDeadlineOnNextTick() {
+    wheel.advanceTo(START + 500);
+    wheel.schedule(1L, Instant.ofEpochMilli(START));
+
+    wheel.advanceTo(START + 599);
+    assertTrue(batches.isEmpty());
+
+    wheel.advanceTo(START + 600);
+    assertEquals(Arrays.asList(Arrays.asList(1L)), batches);
+  }
+}
@@ -0,0 +1,123 @@
+package com.upgrade.campside.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.upgrade.campside.exception.IdempotencyKeyReusedException;
+import com.upgrade.campside.exception.InvalidReservationDateException;
+import com.upgrade.campside.exception.InvalidReservationDateException.Rule;
+import com.upgrade.campside.exception.ServiceOverloadedException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IdempotencyStoreTest {
+
+  private IdempotencyStore store;
+
+  private AtomicInteger runs;
+
+  @Before
+  public void setUp() {
+    store = new IdempotencyStore(60_000, 100, 100);
+    runs = new AtomicInteger();
+  }
+
+  @Test
+  public void retryReplaysOutcome() throws Exception {
+    String first = store.execute("create:key", "body", () -> "booked-" + runs.incrementAndGet());
+    String retry = store.execute("create:key", "body", () -> "booked-" + runs.incrementAndGet());
+
+    assertEquals("booked-1", first);
+    assertEquals("booked-1", retry);
+    assertEquals(1, runs.get());
+  }
+
+  @Test
+  public void retryReplaysRejection() throws Exception {
+    InvalidReservationDateException rejection =
+        new InvalidReservationDateException("Already reserved.", Rule.ALREADY_RESERVED);
+    try {
+      store.execute("create:key", "body", () -> {
+        runs.incrementAndGet();
+        throw rejection;
+      });
+    } catch (InvalidReservationDateException ex) {
+      assertSame(rejection, ex);
+    }
+
+    try {
+      store.execute("create:key", "body", () -> "booked-" + runs.incrementAndGet());
+    } catch (InvalidReservationDateException ex) {
+      assertSame(rejection, ex);
+    }
+    assertEquals(1, runs.get());
+  }
+
+  @Test
+  public void retryRunsAgainAfterOverload() throws Exception {
+    try {
+      store.execute("create:key", "body", () -> {
+        runs.incrementAndGet();
+        throw new ServiceOverloadedException("Too many pending bookings.", 1);
+      });
+    } catch (ServiceOverloadedException ex) {
+      // expected, not remembered
+    }
+
+    assertEquals("booked-2",
+        store.execute("create:key", "body", () -> "booked-" + runs.incrementAndGet()));
+  }
+
+  @Test
+  public void retryRunsAgainAfterError() throws Exception {
+    try {
+      store.execute("create:key", "body", () -> {
+        runs.incrementAndGet();
+        throw new OutOfMemoryError("no memory left");
+      });
+    } catch (OutOfMemoryError ex) {
+      // expected, not remembered
+    }
+
+    assertEquals("booked-2",
+        store.execute("create:key", "body", () -> "booked-" + runs.incrementAndGet()));
+  }
+
+  @Test(expected = ServiceOverloadedException.class)
+  public void retryWaitsForRunningWriteUpToTimeout() throws Exception {
+    CountDownLatch running = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Thread first = new Thread(() -> {
+      try {
+        store.execute("create:key", "body", () -> {
+          running.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+          return "booked";
+        });
+      } catch (Exception ex) {
+        throw new IllegalStateException(ex);
+      }
+    });
+    first.start();
+    running.await();
+    try {
+      store.execute("create:key", "body", () -> "booked-" + runs.incrementAndGet());
+    } finally {
+      release.countDown();
+      first.join();
+      assertEquals(0, runs.get());
+    }
+  }
+
+  @Test(expected = IdempotencyKeyReusedException.class)
+  public void keyReusedForAnotherRequest() throws Exception {
+    store.execute("create:key", "body", () -> "booked");
+    store.execute("create:key", "another body", () -> "booked");
+  }
+}
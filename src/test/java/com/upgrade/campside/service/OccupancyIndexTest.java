@@ -0,0 +1,215 @@
+package com.upgrade.campside.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.upgrade.campside.domain.model.Campsite;
+import com.upgrade.campside.domain.model.DateRange;
+import com.upgrade.campside.domain.model.Person;
+import com.upgrade.campside.domain.model.Reservation;
+import com.upgrade.campside.domain.model.ReservationStatus;
+import com.upgrade.campside.domain.repository.JpaReservationStore;
+import com.upgrade.campside.domain.repository.PersonRepository;
+import com.upgrade.campside.domain.repository.ReservationRepository;
+import com.upgrade.campside.domain.repository.ReservationStore;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class OccupancyIndexTest {
+
+  private static final Long CAMPSITE = Campsite.DEFAULT_ID;
+
+  @Autowired
+  private ReservationRepository reservationRepository;
+
+  @Autowired
+  private PersonRepository personRepository;
+
+  private OccupancyIndex occupancyIndex;
+
+  private LocalDate today;
+
+  @Before
+  public void setUp() {
+    reservationRepository.deleteAll();
+    ReservationStore reservationStore = new JpaReservationStore(reservationRepository);
+    occupancyIndex = new OccupancyIndex(reservationStore);
+    occupancyIndex.rebuild();
+    today = LocalDate.now();
+  }
+
+  @Test
+  public void rebuildFromRepository() {
+    Person person = personRepository.save(new Person("indexed@email.com", "Indexed Guest"));
+    Reservation active = reservationRepository.save(new Reservation(CAMPSITE, today.plusDays(2),
+        today.plusDays(4), person, ReservationStatus.CONFIRMED));
+    reservationRepository.save(new Reservation(CAMPSITE, today.plusDays(6), today.plusDays(8),
+        person, ReservationStatus.CANCELED));
+
+    occupancyIndex.rebuild();
+
+    assertTrue(occupancyIndex.isOccupied(CAMPSITE, today.plusDays(3), today.plusDays(5), null));
+    assertFalse(occupancyIndex.isOccupied(CAMPSITE, today.plusDays(6), today.plusDays(8), null));
+    assertEquals(Collections.singleton(active.getBookingId()),
+        occupancyIndex.getBookingIds(CAMPSITE, today, today.plusMonths(1)));
+  }
+
+  @Test
+  public void rebuildKeepsWritesAppliedWhileReading() {
+    Person person = personRepository.save(new Person("gap@email.com", "Gap Guest"));
+    Reservation canceled = reservationRepository.save(new Reservation(CAMPSITE,
+        today.plusDays(2), today.plusDays(4), person, ReservationStatus.CONFIRMED));
+    ReservationStore jpaStore = new JpaReservationStore(reservationRepository);
+    ReservationStore store = mock(ReservationStore.class, delegatesTo(jpaStore));
+    OccupancyIndex index = new OccupancyIndex(store);
+    index.rebuild();
+    index.occupy(CAMPSITE, 7L, today.plusDays(20), today.plusDays(22));
+
+    // Commits applied between the store read and the overwrite of the calendars
+    doAnswer(invocation -> {
+      List<Reservation> read = jpaStore.getActiveReservationsFrom(invocation.getArgument(0));
+      index.release(CAMPSITE, canceled.getBookingId());
+      index.occupy(CAMPSITE, 8L, today.plusDays(10), today.plusDays(12));
+      index.occupy(2L, 9L, today.plusDays(5), today.plusDays(6));
+      return read;
+    }).when(store).getActiveReservationsFrom(any(LocalDate.class));
+    index.rebuild();
+
+    assertFalse(index.isOccupied(CAMPSITE, today.plusDays(2), today.plusDays(4), null));
+    assertEquals(new LinkedHashSet<>(Collections.singletonList(8L)),
+        index.getBookingIds(CAMPSITE, today, today.plusMonths(1)));
+    assertTrue(index.isOccupied(2L, today.plusDays(5), today.plusDays(6), null));
+
+    // Writes applied before the read started are in it, the store wins
+    doAnswer(invocation -> jpaStore.getActiveReservationsFrom(invocation.getArgument(0)))
+        .when(store).getActiveReservationsFrom(any(LocalDate.class));
+    index.rebuild();
+
+    assertTrue(index.isOccupied(CAMPSITE, today.plusDays(2), today.plusDays(4), null));
+    assertFalse(index.isOccupied(CAMPSITE, today.plusDays(10), today.plusDays(12), null));
+  }
+
+  @Test
+  public void occupyIsHalfOpen() {
+    occupancyIndex.occupy(CAMPSITE, 1L, today.plusDays(2), today.plusDays(4));
+
+    assertTrue(occupancyIndex.isOccupied(CAMPSITE, today.plusDays(1), today.plusDays(3), null));
+    assertFalse(occupancyIndex.isOccupied(CAMPSITE, today.plusDays(4), today.plusDays(6), null));
+    assertFalse(occupancyIndex.isOccupied(CAMPSITE, today, today.plusDays(2), null));
+  }
+
+  @Test
+  public void occupiedIgnoresOwnNights() {
+    occupancyIndex.occupy(CAMPSITE, 1L, today.plusDays(2), today.plusDays(4));
+
+    assertFalse(occupancyIndex.isOccupied(CAMPSITE, today.plusDays(3), today.plusDays(5), 1L));
+    assertTrue(occupancyIndex.isOccupied(CAMPSITE, today.plusDays(3), today.plusDays(5), 2L));
+  }
+
+  @Test
+  public void occupyReplacesPreviousNights() {
+    occupancyIndex.occupy(CAMPSITE, 1L, today.plusDays(2), today.plusDays(4));
+    occupancyIndex.occupy(CAMPSITE, 1L, today.plusDays(10), today.plusDays(12));
+
+    assertFalse(occupancyIndex.isOccupied(CAMPSITE, today.plusDays(2), today.plusDays(4), null));
+    assertTrue(occupancyIndex.isOccupied(CAMPSITE, today.plusDays(11), today.plusDays(12), null));
+  }
+
+  @Test
+  public void releaseFreesNights() {
+    occupancyIndex.occupy(CAMPSITE, 1L, today.plusDays(62), today.plusDays(66));
+    occupancyIndex.release(CAMPSITE, 1L);
+
+    assertFalse(occupancyIndex.isOccupied(CAMPSITE, today.plusDays(62), today.plusDays(66), null));
+  }
+
+  @Test
+  public void versionChangesOnlyWithNights() {
+    long initial = occupancyIndex.getVersion(CAMPSITE);
+    occupancyIndex.release(CAMPSITE, 1L);
+    assertEquals(initial, occupancyIndex.getVersion(CAMPSITE));
+
+    occupancyIndex.occupy(CAMPSITE, 1L, today.plusDays(2), today.plusDays(4));
+    assertEquals(initial + 1, occupancyIndex.getVersion(CAMPSITE));
+    occupancyIndex.occupy(CAMPSITE, 1L, today.plusDays(10), today.plusDays(12));
+    assertEquals(initial + 2, occupancyIndex.getVersion(CAMPSITE));
+
+    occupancyIndex.release(CAMPSITE, 1L);
+    occupancyIndex.release(CAMPSITE, 1L);
+    assertEquals(initial + 3, occupancyIndex.getVersion(CAMPSITE));
+  }
+
+  @Test
+  public void campsitesAreIndependent() {
+    occupancyIndex.occupy(CAMPSITE, 1L, today.plusDays(2), today.plusDays(4));
+    occupancyIndex.occupy(2L, 2L, today.plusDays(3), today.plusDays(5));
+
+    assertTrue(occupancyIndex.isOccupied(CAMPSITE, today.plusDays(3), today.plusDays(4), null));
+    assertFalse(occupancyIndex.isOccupied(CAMPSITE, today.plusDays(4), today.plusDays(5), null));
+    assertTrue(occupancyIndex.isOccupied(2L, today.plusDays(4), today.plusDays(5), null));
+    assertEquals(Collections.singleton(2L),
+        occupancyIndex.getBookingIds(2L, today, today.plusMonths(1)));
+    assertTrue(occupancyIndex.getBookingIds(3L, today, today.plusMonths(1)).isEmpty());
+  }
+
+  @Test
+  public void unknownCampsiteIsReadAsEmpty() {
+    Long unknown = 99L;
+    occupancyIndex.release(unknown, 1L);
+
+    assertFalse(occupancyIndex.isOccupied(unknown, today.plusDays(1), today.plusDays(4), null));
+    assertEquals(0, occupancyIndex.getVersion(unknown));
+    assertTrue(occupancyIndex.covers(unknown, today, today.plusMonths(1)));
+    assertTrue(occupancyIndex.getBookingIds(unknown, today, today.plusMonths(1)).isEmpty());
+  }
+
+  @Test
+  public void bookingIdsInNightOrder() {
+    occupancyIndex.occupy(CAMPSITE, 2L, today.plusDays(20), today.plusDays(21));
+    occupancyIndex.occupy(CAMPSITE, 1L, today.plusDays(5), today.plusDays(7));
+
+    assertEquals(new LinkedHashSet<>(Arrays.asList(1L, 2L)),
+        occupancyIndex.getBookingIds(CAMPSITE, today, today.plusMonths(1)));
+  }
+
+  @Test
+  public void freeStaysAcrossWords() {
+    occupancyIndex.occupy(CAMPSITE, 1L, today.plusDays(60), today.plusDays(62));
+    occupancyIndex.occupy(CAMPSITE, 2L, today.plusDays(65), today.plusDays(66));
+    DateRange window = new DateRange(today.plusDays(58), today.plusDays(70));
+
+    StaySearch twoNights = occupancyIndex.findFreeStays(CAMPSITE, window, 2);
+    StaySearch oneNight = occupancyIndex.findFreeStays(CAMPSITE, window, 1);
+
+    assertEquals(Arrays.asList(today.plusDays(58), today.plusDays(62), today.plusDays(63),
+        today.plusDays(66), today.plusDays(67), today.plusDays(68)),
+        twoNights.getArrivalDates());
+    assertEquals(9, oneNight.getArrivalDates().size());
+    assertTrue(occupancyIndex.findFreeStays(CAMPSITE,
+        new DateRange(today.plusDays(60), today.plusDays(62)), 1).getArrivalDates().isEmpty());
+  }
+
+  @Test
+  public void coversOnlyIndexWindow() {
+    assertTrue(occupancyIndex.covers(CAMPSITE, today, today.plusMonths(1)));
+    assertFalse(occupancyIndex.covers(CAMPSITE, today.minusDays(1), today.plusDays(1)));
+    assertFalse(occupancyIndex.covers(CAMPSITE, today,
+        today.plusDays(OccupancyIndex.CAPACITY_DAYS + 1)));
+  }
+}
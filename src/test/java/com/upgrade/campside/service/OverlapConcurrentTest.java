@@ -2,19 +2,33 @@ package com.upgrade.campside.service;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
 
+import com.upgrade.campside.domain.model.Campsite;
 import com.upgrade.campside.domain.model.Reservation;
 import com.upgrade.campside.domain.model.ReservationStatus;
+import com.upgrade.campside.domain.repository.JpaReservationStore;
+import com.upgrade.campside.domain.repository.PersonRepository;
 import com.upgrade.campside.domain.repository.ReservationRepository;
+import com.upgrade.campside.domain.repository.ReservationStore;
 import com.upgrade.campside.exception.InvalidReservationDateException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -22,23 +36,60 @@ import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @RunWith(SpringRunner.class)
 @DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
 public class OverlapConcurrentTest {
 
+  private static final Long CAMPSITE = Campsite.DEFAULT_ID;
+
   @Autowired
   private ReservationRepository reservationRepository;
 
+  @Autowired
+  private PersonRepository personRepository;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
   private ReservationService reservationService;
 
+  private ReservationStore reservationStore;
+
+  private PersonService personService;
+
+  private OccupancyIndex occupancyIndex;
+
+  private ReservationMetrics metrics;
+
   @Rule
   public ExpectedException exceptionRule = ExpectedException.none();
 
   @Before
   public void setUp() {
-    reservationService = new ReservationService(reservationRepository);
+    reservationRepository.deleteAll();
+    metrics = new ReservationMetrics(new SimpleMeterRegistry());
+    personService = new PersonService(personRepository, transactionManager, 100);
+    reservationStore = new JpaReservationStore(reservationRepository);
+    occupancyIndex = new OccupancyIndex(reservationStore);
+    occupancyIndex.rebuild();
+    reservationService =
+        new ReservationService(reservationStore, personService, occupancyIndex,
+            eventPublisher, transactionManager, metrics, 600000);
+  }
+
+  @After
+  public void tearDown() {
     reservationRepository.deleteAll();
   }
 
@@ -57,12 +108,69 @@ public class OverlapConcurrentTest {
           }
         }));
 
+    service.shutdown();
     service.awaitTermination(5, TimeUnit.SECONDS);
 
     assertEquals(success.get(), 1);
     assertEquals(fails.get(), 4);
   }
 
+  @Test
+  public void racingCreatesLeaveWinnerNightsOccupied() throws Exception {
+    CyclicBarrier validated = new CyclicBarrier(2);
+    ReservationStore racing = mock(ReservationStore.class, delegatesTo(reservationStore));
+    doAnswer(invocation -> {
+      validated.await(5, TimeUnit.SECONDS);
+      return reservationStore.save(invocation.getArgument(0));
+    }).when(racing).save(any(Reservation.class));
+    ReservationService racingService = new ReservationService(racing, personService,
+        occupancyIndex, eventPublisher, transactionManager, metrics, 600000);
+    LocalDate arrival = LocalDate.now().plusDays(5);
+    LocalDate departure = arrival.plusDays(2);
+
+    ExecutorService service = Executors.newFixedThreadPool(2);
+    List<Future<Reservation>> results = new ArrayList<>();
+    for (String email : new String[] {"first@email.com", "second@email.com"}) {
+      results.add(service.submit(() ->
+          racingService.createReservation(CAMPSITE, email, "John Doe", arrival, departure)));
+    }
+    List<Long> winners = new ArrayList<>();
+    for (Future<Reservation> result : results) {
+      try {
+        winners.add(result.get(10, TimeUnit.SECONDS).getBookingId());
+      } catch (ExecutionException ex) {
+        assertNotNull(ex.getCause());
+      }
+    }
+    service.shutdown();
+
+    assertEquals(1, winners.size());
+    assertEquals(Collections.singleton(winners.get(0)),
+        occupancyIndex.getBookingIds(CAMPSITE, arrival, departure));
+  }
+
+  @Test
+  public void rebuildDuringWriteKeepsCommittedNights() throws Exception {
+    LocalDate arrival = LocalDate.now().plusDays(8);
+    LocalDate departure = arrival.plusDays(2);
+    ExecutorService rebuilder = Executors.newSingleThreadExecutor();
+
+    Reservation created = new TransactionTemplate(transactionManager).execute(status -> {
+      try {
+        Reservation reservation = reservationService.applyCreate(CAMPSITE, "rebuild@email.com",
+            "John Doe", arrival, departure);
+        rebuilder.submit(occupancyIndex::rebuild).get(5, TimeUnit.SECONDS);
+        return reservation;
+      } catch (Exception ex) {
+        throw new IllegalStateException(ex);
+      }
+    });
+    rebuilder.shutdown();
+
+    assertEquals(Collections.singleton(created.getBookingId()),
+        occupancyIndex.getBookingIds(CAMPSITE, arrival, departure));
+  }
+
   private boolean createReservation() {
     String name = "John Doe";
     String email = "johndoe@email.com";
@@ -71,7 +179,7 @@ public class OverlapConcurrentTest {
 
     try {
       reservationService
-          .createReservation(email, name, arrival, departure);
+          .createReservation(CAMPSITE, email, name, arrival, departure);
       return true;
     } catch (InvalidReservationDateException e) {
       return false;
@@ -0,0 +1,82 @@
+package com.upgrade.campside.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.upgrade.campside.domain.model.Person;
+import com.upgrade.campside.domain.repository.PersonRepository;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class PersonServiceTest {
+
+  @Autowired
+  private PersonRepository personRepository;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private PersonService personService;
+
+  @Before
+  public void setUp() {
+    personService = new PersonService(personRepository, transactionManager, 100);
+  }
+
+  @Test
+  public void findOrCreateReusesPersonByNormalizedEmail() {
+    Person created = personService.findOrCreate(" Repeat@Email.com", "Repeat Guest");
+    Person found = personService.findOrCreate("repeat@email.com", "Another Name");
+
+    assertEquals(created.getId(), found.getId());
+    assertEquals("repeat@email.com", found.getEmail());
+    assertEquals("Repeat Guest", found.getFullName());
+  }
+
+  @Test
+  public void findOrCreateConcurrentFirstBooking() throws Exception {
+    ExecutorService service = Executors.newFixedThreadPool(8);
+    Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+    IntStream.range(0, 8)
+        .forEach(index -> service.submit(() -> ids.add(
+            new PersonService(personRepository, transactionManager, 100)
+                .findOrCreate("first@email.com", "First Guest").getId())));
+
+    service.shutdown();
+    service.awaitTermination(5, TimeUnit.SECONDS);
+
+    assertEquals(1, ids.size());
+    assertEquals(ids.iterator().next(), personRepository.findIdByEmail("first@email.com").get());
+  }
+
+  @Test
+  public void findOrCreateInsideTransactionInsertsWithIt() {
+    new TransactionTemplate(transactionManager).execute(status -> {
+      personService.findOrCreate("joined@email.com", "Joined Guest");
+      status.setRollbackOnly();
+      return null;
+    });
+
+    assertFalse(personRepository.findIdByEmail("joined@email.com").isPresent());
+    assertEquals("Joined Guest",
+        personService.findOrCreate("joined@email.com", "Joined Guest").getFullName());
+  }
+}
@@ -0,0 +1,117 @@
+package com.upgrade.campside.service;
+
+import static org.junit.Assert.assertEquals;
+
+import com.upgrade.campside.domain.model.Campsite;
+import com.upgrade.campside.domain.model.ReservationStatus;
+import com.upgrade.campside.domain.model.ReservationView;
+import com.upgrade.campside.domain.repository.CampsiteRepository;
+import com.upgrade.campside.domain.repository.JpaReservationStore;
+import com.upgrade.campside.domain.repository.PersonRepository;
+import com.upgrade.campside.domain.repository.ReservationRepository;
+import com.upgrade.campside.domain.repository.ReservationStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ReservationImporterTest {
+
+  @Autowired
+  private ReservationRepository reservationRepository;
+
+  @Autowired
+  private PersonRepository personRepository;
+
+  @Autowired
+  private CampsiteRepository campsiteRepository;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  private ReservationStore reservationStore;
+
+  private ReservationImporter importer;
+
+  @Before
+  public void setUp() {
+    reservationRepository.deleteAll();
+    reservationStore = new JpaReservationStore(reservationRepository);
+    OccupancyIndex occupancyIndex = new OccupancyIndex(reservationStore);
+    ReservationQueryService queryService = new ReservationQueryService(reservationStore,
+        new ReservationMetrics(new SimpleMeterRegistry()),
+        new AvailabilityCacheEvictor(new ConcurrentMapCacheManager()));
+    PersonService personService = new PersonService(personRepository, transactionManager, 100);
+    importer = new ReservationImporter(reservationStore, personService,
+        new CampsiteService(campsiteRepository), occupancyIndex, queryService, transactionManager,
+        entityManager, 2);
+  }
+
+  @After
+  public void tearDown() {
+    reservationRepository.deleteAll();
+  }
+
+  @Test
+  public void importCsvInChunks() throws Exception {
+    String csv = "email,full_name,arrival_date,departure_date,status\n"
+        + "first@import.com,First Guest,2019-01-01,2019-01-03\n"
+        + "second@import.com,Second Guest,2019-01-03,2019-01-04,CONFIRMED\n"
+        + "FIRST@import.com,First Guest,2019-01-02,2019-01-05,CANCELED\n"
+        + "second@import.com,Second Guest,2019-01-05,2019-01-07\n"
+        + "\n"
+        + "third@import.com,Third Guest,2019-01-10,2019-01-10\n";
+
+    ImportResult result = importer.importCsv(
+        new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+    assertEquals(4, result.getImported());
+    assertEquals(1, result.getRejected());
+    assertEquals(7, result.getRejections().get(0).getLine());
+    List<ReservationView> views = reservationStore.getViewsInPeriod(Campsite.DEFAULT_ID,
+        LocalDate.of(2019, 1, 1), LocalDate.of(2019, 2, 1));
+    assertEquals(3, views.size());
+    assertEquals("first@import.com", views.get(0).getOwnerEmail());
+    assertEquals(ReservationStatus.CONFIRMED, views.get(2).getStatus());
+    assertEquals(2, personRepository.findByEmailIn(
+        java.util.Arrays.asList("first@import.com", "second@import.com")).size());
+  }
+
+  @Test
+  public void overlappingStaysAreRejected() throws Exception {
+    String csv = "email,full_name,arrival_date,departure_date\n"
+        + "overlap@import.com,Overlap Guest,2019-03-01,2019-03-04\n"
+        + "overlap@import.com,Overlap Guest,2019-03-03,2019-03-05\n"
+        + "overlap@import.com,Overlap Guest,2019-03-04,2019-03-05\n"
+        + "overlap@import.com,Overlap Guest,not-a-date,2019-03-05\n"
+        + "overlap@import.com,Overlap Guest,2019-03-01,2019-03-04,CONFIRMED,99\n";
+
+    ImportResult result = importer.importCsv(
+        new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+    assertEquals(2, result.getImported());
+    assertEquals(3, result.getRejected());
+    assertEquals(3, result.getRejections().get(0).getLine());
+    assertEquals(5, result.getRejections().get(1).getLine());
+    assertEquals(6, result.getRejections().get(2).getLine());
+  }
+}
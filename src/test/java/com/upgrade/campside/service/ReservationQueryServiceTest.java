@@ -0,0 +1,160 @@
+package com.upgrade.campside.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.upgrade.campside.domain.model.Campsite;
+import com.upgrade.campside.domain.model.DateRange;
+import com.upgrade.campside.domain.model.Person;
+import com.upgrade.campside.domain.model.Reservation;
+import com.upgrade.campside.domain.model.ReservationStatus;
+import com.upgrade.campside.domain.repository.JpaReservationStore;
+import com.upgrade.campside.domain.repository.PersonRepository;
+import com.upgrade.campside.domain.repository.ReservationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class ReservationQueryServiceTest {
+
+  private static final Long CAMPSITE = Campsite.DEFAULT_ID;
+
+  @Autowired
+  private ReservationRepository reservationRepository;
+
+  @Autowired
+  private PersonRepository personRepository;
+
+  private ReservationQueryService queryService;
+
+  private Cache cache;
+
+  private Person owner;
+
+  private LocalDate today;
+
+  @Before
+  public void setUp() {
+    reservationRepository.deleteAll();
+    owner = personRepository.save(new Person("readmodel@email.com", "John Doe"));
+    today = LocalDate.now();
+    CaffeineCacheManager cacheManager =
+        new CaffeineCacheManager(AvailabilityCacheEvictor.AVAILABILITY_CACHE);
+    cache = cacheManager.getCache(AvailabilityCacheEvictor.AVAILABILITY_CACHE);
+    queryService = new ReservationQueryService(new JpaReservationStore(reservationRepository),
+        new ReservationMetrics(new SimpleMeterRegistry()),
+        new AvailabilityCacheEvictor(cacheManager));
+  }
+
+  @Test
+  public void rebuildLoadsActiveReservations() {
+    save(new Reservation(CAMPSITE, today.plusDays(2), today.plusDays(4), owner,
+        ReservationStatus.CONFIRMED));
+    Reservation canceled = new Reservation(CAMPSITE, today.plusDays(5), today.plusDays(6), owner,
+        ReservationStatus.CONFIRMED);
+    canceled.cancel();
+    save(canceled);
+
+    queryService.rebuild();
+
+    assertEquals(1, queryService.getAvailability(CAMPSITE, today, today.plusMonths(1)).size());
+    assertEquals("readmodel@email.com", queryService
+        .getAvailability(CAMPSITE, today, today.plusMonths(1)).get(0).getOwnerEmail());
+    assertEquals(Collections.singletonList(new DateRange(today, today.plusDays(2))),
+        queryService.getOccupancy(CAMPSITE, new DateRange(today, today.plusDays(4)))
+            .getFreeRanges());
+  }
+
+  @Test
+  public void changesAreAppliedOnceProjected() {
+    queryService.rebuild();
+    Reservation reservation = save(new Reservation(CAMPSITE, today.plusDays(2), today.plusDays(4),
+        owner, ReservationStatus.CONFIRMED));
+    queryService.onReservationChanged(changed(reservation));
+    long version = queryService.getCalendarVersion(CAMPSITE);
+
+    assertTrue(queryService.getAvailability(CAMPSITE, today, today.plusMonths(1)).isEmpty());
+    assertTrue(queryService.getStalenessNanos() > 0);
+
+    queryService.project();
+    assertEquals(1, queryService.getAvailability(CAMPSITE, today, today.plusMonths(1)).size());
+    assertEquals(0, queryService.getStalenessNanos());
+    assertTrue(queryService.getCalendarVersion(CAMPSITE) > version);
+
+    reservation.reschedule(today.plusDays(3), today.plusDays(5));
+    save(reservation);
+    queryService.onReservationChanged(changed(reservation));
+    queryService.project();
+    assertEquals(today.plusDays(3), queryService
+        .getAvailability(CAMPSITE, today, today.plusMonths(1)).get(0).getArrivalDate());
+    assertTrue(queryService.getAvailability(CAMPSITE, today, today.plusDays(1)).isEmpty());
+
+    reservation.cancel();
+    save(reservation);
+    queryService.onReservationChanged(changed(reservation));
+    queryService.project();
+    assertTrue(queryService.getAvailability(CAMPSITE, today, today.plusMonths(1)).isEmpty());
+  }
+
+  @Test
+  public void rebuildKeepsVersionOfUnchangedCampsite() {
+    save(new Reservation(CAMPSITE, today.plusDays(2), today.plusDays(4), owner,
+        ReservationStatus.CONFIRMED));
+    queryService.rebuild();
+    long version = queryService.getCalendarVersion(CAMPSITE);
+
+    queryService.rebuild();
+    assertEquals(version, queryService.getCalendarVersion(CAMPSITE));
+
+    save(new Reservation(CAMPSITE, today.plusDays(6), today.plusDays(7), owner,
+        ReservationStatus.CONFIRMED));
+    queryService.rebuild();
+    assertTrue(queryService.getCalendarVersion(CAMPSITE) > version);
+  }
+
+  @Test
+  public void projectedChangeEvictsPeriodsOfPreviousAndNewStay() {
+    Reservation reservation = save(new Reservation(CAMPSITE, today.plusDays(2), today.plusDays(4),
+        owner, ReservationStatus.CONFIRMED));
+    queryService.rebuild();
+    CampsitePeriod previousStay =
+        new CampsitePeriod(CAMPSITE, new DateRange(today.plusDays(1), today.plusDays(3)));
+    CampsitePeriod newStay =
+        new CampsitePeriod(CAMPSITE, new DateRange(today.plusDays(9), today.plusDays(11)));
+    CampsitePeriod untouched =
+        new CampsitePeriod(CAMPSITE, new DateRange(today.plusDays(5), today.plusDays(7)));
+    cache.put(previousStay, Collections.emptyList());
+    cache.put(newStay, Collections.emptyList());
+    cache.put(untouched, Collections.emptyList());
+
+    reservation.reschedule(today.plusDays(10), today.plusDays(12));
+    save(reservation);
+    queryService.onReservationChanged(changed(reservation));
+    assertNotNull(cache.get(previousStay));
+
+    queryService.project();
+    assertNull(cache.get(previousStay));
+    assertNull(cache.get(newStay));
+    assertNotNull(cache.get(untouched));
+  }
+
+  private Reservation save(Reservation reservation) {
+    return reservationRepository.saveAndFlush(reservation);
+  }
+
+  private ReservationChangedEvent changed(Reservation reservation) {
+    return new ReservationChangedEvent(reservation.getBookingId(), reservation.getCampsiteId());
+  }
+}
@@ -1,14 +1,37 @@
 package com.upgrade.campside.service;
 
+import static java.time.temporal.ChronoUnit.DAYS;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
-
+import static org.junit.Assert.assertNull;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.upgrade.campside.domain.model.Campsite;
+import com.upgrade.campside.domain.model.DateRange;
+import com.upgrade.campside.domain.model.Person;
 import com.upgrade.campside.domain.model.Reservation;
 import com.upgrade.campside.domain.model.ReservationStatus;
+import com.upgrade.campside.domain.model.ReservationView;
+import com.upgrade.campside.domain.repository.CampsiteRepository;
+import com.upgrade.campside.domain.repository.JpaReservationStore;
+import com.upgrade.campside.domain.repository.PersonRepository;
 import com.upgrade.campside.domain.repository.ReservationRepository;
+import com.upgrade.campside.domain.repository.ReservationStore;
 import com.upgrade.campside.exception.InvalidReservationDateException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -16,23 +39,63 @@ import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @RunWith(SpringRunner.class)
 @DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
 public class ReservationServiceTest {
 
+  private static final Long CAMPSITE = Campsite.DEFAULT_ID;
+
   @Autowired
   private ReservationRepository reservationRepository;
 
+  @Autowired
+  private PersonRepository personRepository;
+
+  @Autowired
+  private CampsiteRepository campsiteRepository;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
   private ReservationService reservationService;
 
+  private SimpleMeterRegistry meterRegistry;
+
+  private ReservationStore reservationStore;
+
+  private PersonService personService;
+
+  private OccupancyIndex occupancyIndex;
+
   @Rule
   public ExpectedException exceptionRule = ExpectedException.none();
 
   @Before
   public void setUp() {
-    reservationService = new ReservationService(reservationRepository);
+    reservationRepository.deleteAll();
+    personService = new PersonService(personRepository, transactionManager, 100);
+    reservationStore = new JpaReservationStore(reservationRepository);
+    occupancyIndex = new OccupancyIndex(reservationStore);
+    occupancyIndex.rebuild();
+    meterRegistry = new SimpleMeterRegistry();
+    reservationService =
+        new ReservationService(reservationStore, personService, occupancyIndex,
+            eventPublisher, transactionManager, new ReservationMetrics(meterRegistry), 600000);
+  }
+
+  @After
+  public void tearDown() {
     reservationRepository.deleteAll();
   }
 
@@ -43,7 +106,8 @@ public class ReservationServiceTest {
     LocalDate arrival = LocalDate.now().plusDays(2);
     LocalDate departure = LocalDate.now().plusDays(3);
 
-    Reservation reservation = reservationService.createReservation(email, name, arrival, departure);
+    Reservation reservation = reservationService.createReservation(CAMPSITE, email, name, arrival,
+        departure);
 
     assertNotNull(reservation.getBookingId());
     assertEquals(reservation.getStatus(), ReservationStatus.CONFIRMED);
@@ -59,7 +123,41 @@ public class ReservationServiceTest {
     LocalDate arrival = LocalDate.now().plusDays(4);
     LocalDate departure = LocalDate.now().plusDays(10);
 
-    reservationService.createReservation(email, name, arrival, departure);
+    reservationService.createReservation(CAMPSITE, email, name, arrival, departure);
+  }
+
+  @Test
+  public void findFreeStaysAppliesBookingRules() throws Exception {
+    LocalDate today = LocalDate.now();
+    reservationService.createReservation(CAMPSITE, "stays@email.com", "Stay Searcher",
+        today.plusDays(3), today.plusDays(5));
+
+    List<LocalDate> arrivals = reservationService
+        .findFreeStays(CAMPSITE, today.minusDays(5), today.plusMonths(2), 3).getArrivalDates();
+
+    assertEquals(today.plusDays(5), arrivals.get(0));
+    assertEquals(today.plusMonths(1), arrivals.get(arrivals.size() - 1));
+    assertEquals(DAYS.between(today.plusDays(5), today.plusMonths(1)) + 1, arrivals.size());
+  }
+
+  @Test
+  public void stayWindowIsNarrowedFromToday() throws Exception {
+    LocalDate today = LocalDate.now();
+
+    DateRange past = reservationService.resolveStayWindow(today.minusDays(10), today, 2);
+    DateRange future = reservationService
+        .resolveStayWindow(today.minusDays(5), today.plusMonths(2), 2);
+
+    assertEquals(new DateRange(today.plusDays(1), today.plusDays(1)), past);
+    assertEquals(new DateRange(today.plusDays(1), today.plusMonths(1).plusDays(2)), future);
+  }
+
+  @Test
+  public void findFreeStaysInvalidMaxDays() throws Exception {
+    exceptionRule.expect(InvalidReservationDateException.class);
+    exceptionRule.expectMessage("Max days exceeded");
+
+    reservationService.findFreeStays(CAMPSITE, LocalDate.now(), LocalDate.now().plusMonths(1), 4);
   }
 
   @Test
@@ -72,7 +170,7 @@ public class ReservationServiceTest {
     LocalDate arrival = LocalDate.now();
     LocalDate departure = LocalDate.now().plusDays(1);
 
-    reservationService.createReservation(email, name, arrival, departure);
+    reservationService.createReservation(CAMPSITE, email, name, arrival, departure);
   }
 
   @Test
@@ -85,7 +183,7 @@ public class ReservationServiceTest {
     LocalDate arrival = LocalDate.now().plusMonths(2);
     LocalDate departure = arrival.plusDays(1);
 
-    reservationService.createReservation(email, name, arrival, departure);
+    reservationService.createReservation(CAMPSITE, email, name, arrival, departure);
   }
 
   @Test
@@ -98,14 +196,130 @@ public class ReservationServiceTest {
     LocalDate arrival = LocalDate.now().plusDays(4);
     LocalDate departure = LocalDate.now().plusDays(6);
 
-    reservationService.createReservation(email, name, arrival, departure);
+    reservationService.createReservation(CAMPSITE, email, name, arrival, departure);
 
     name = "Jehn An";
     email = "jehnan@email.com";
     arrival = LocalDate.now().plusDays(5);
     departure = LocalDate.now().plusDays(7);
 
-    reservationService.createReservation(email, name, arrival, departure);
+    reservationService.createReservation(CAMPSITE, email, name, arrival, departure);
+  }
+
+  @Test
+  public void sameNightsOnDifferentCampsites() throws Exception {
+    Long lakeside = campsiteRepository.save(new Campsite("Lakeside")).getId();
+    LocalDate arrival = LocalDate.now().plusDays(4);
+    LocalDate departure = arrival.plusDays(2);
+
+    Reservation first = reservationService.createReservation(CAMPSITE, "johndoe@email.com",
+        "John Doe", arrival, departure);
+    Reservation second = reservationService.createReservation(lakeside, "jehnan@email.com",
+        "Jehn An", arrival, departure);
+
+    assertEquals(lakeside, second.getCampsiteId());
+    assertEquals(Collections.singletonList(first.getBookingId()), reservationService
+        .getAvailability(CAMPSITE, arrival, departure).stream()
+        .map(ReservationView::getBookingId).collect(Collectors.toList()));
+    assertEquals(Collections.singletonList(second.getBookingId()), reservationService
+        .getAvailability(lakeside, arrival, departure).stream()
+        .map(ReservationView::getBookingId).collect(Collectors.toList()));
+
+    exceptionRule.expect(InvalidReservationDateException.class);
+    reservationService.createReservation(lakeside, "johndoe@email.com", "John Doe",
+        departure.minusDays(1), departure.plusDays(1));
+  }
+
+  @Test
+  public void createReservations() {
+    LocalDate arrival = LocalDate.now().plusDays(4);
+
+    List<BookingResult> results = reservationService.createReservations(Arrays.asList(
+        new BookingRequest(CAMPSITE, "first@agency.com", "First Guest", arrival,
+            arrival.plusDays(2)),
+        new BookingRequest(CAMPSITE, "second@agency.com", "Second Guest", arrival.plusDays(1),
+            arrival.plusDays(3)),
+        new BookingRequest(CAMPSITE, "third@agency.com", "Third Guest", LocalDate.now(), arrival),
+        new BookingRequest(CAMPSITE, "first@agency.com", "First Guest", arrival.plusDays(2),
+            arrival.plusDays(3))));
+
+    assertEquals(4, results.size());
+    assertNotNull(results.get(0).getReservation().getBookingId());
+    assertEquals(InvalidReservationDateException.Rule.ALREADY_RESERVED, results.get(1).getRule());
+    assertEquals(InvalidReservationDateException.Rule.TOO_LATE, results.get(2).getRule());
+    assertNotNull(results.get(3).getReservation().getBookingId());
+    assertEquals(results.get(0).getReservation().getOwner().getId(),
+        results.get(3).getReservation().getOwner().getId());
+    assertEquals(2, reservationService.getAvailability(CAMPSITE, arrival,
+        arrival.plusDays(3)).size());
+  }
+
+  @Test
+  public void createReservationRecordsMetrics() throws Exception {
+    LocalDate arrival = LocalDate.now().plusDays(4);
+    LocalDate departure = LocalDate.now().plusDays(6);
+
+    reservationService.createReservation(CAMPSITE, "metrics@email.com", "John Doe", arrival,
+        departure);
+    try {
+      reservationService.createReservation(CAMPSITE, "metrics@email.com", "John Doe", arrival,
+          departure);
+    } catch (InvalidReservationDateException ex) {
+      assertEquals(InvalidReservationDateException.Rule.ALREADY_RESERVED, ex.getRule());
+    }
+
+    assertEquals(1, meterRegistry.get(ReservationMetrics.BOOKING)
+        .tags("operation", "create", "outcome", "success").timer().count());
+    assertEquals(1, meterRegistry.get(ReservationMetrics.BOOKING)
+        .tags("operation", "create", "outcome", "rejected").timer().count());
+    assertEquals(1, meterRegistry.get(ReservationMetrics.REJECTIONS)
+        .tags("rule", "already_reserved").counter().count(), 0);
+    assertEquals(1, meterRegistry.get(ReservationMetrics.TRANSACTION)
+        .tags("operation", "create").timer().count());
+  }
+
+  @Test
+  public void createReservationRejectedByNightClaims() throws Exception {
+    exceptionRule.expect(InvalidReservationDateException.class);
+    exceptionRule.expectMessage("Already reserved. The campside is not available during this requested time.");
+
+    LocalDate arrival = LocalDate.now().plusDays(4);
+    LocalDate departure = LocalDate.now().plusDays(6);
+
+    // booked by another instance, unknown to this instance occupancy index
+    reservationRepository.save(new Reservation(CAMPSITE, arrival, departure,
+        personRepository.save(new Person("remote@email.com", "Remote Guest")),
+        ReservationStatus.CONFIRMED));
+
+    reservationService.createReservation(CAMPSITE, "johndoe@email.com", "John Doe",
+        arrival.plusDays(1), departure.plusDays(1));
+  }
+
+  @Test
+  public void createReservationBackToBack() throws Exception {
+    String name = "John Doe";
+    String email = "johndoe@email.com";
+    LocalDate arrival = LocalDate.now().plusDays(4);
+    LocalDate departure = LocalDate.now().plusDays(6);
+
+    reservationService.createReservation(CAMPSITE, email, name, arrival, departure);
+    Reservation reservation = reservationService
+        .createReservation(CAMPSITE, "jehnan@email.com", "Jehn An", departure,
+            departure.plusDays(2));
+
+    assertNotNull(reservation.getBookingId());
+  }
+
+  @Test
+  public void createReservationInvalidDeparture() throws Exception {
+    exceptionRule.expect(InvalidReservationDateException.class);
+    exceptionRule.expectMessage("Invalid dates for this reservation. The departure date must be after the arrival date.");
+
+    String name = "John Doe";
+    String email = "johndoe@email.com";
+    LocalDate arrival = LocalDate.now().plusDays(4);
+
+    reservationService.createReservation(CAMPSITE, email, name, arrival, arrival);
   }
 
   @Test
@@ -115,7 +329,8 @@ public class ReservationServiceTest {
     LocalDate arrival = LocalDate.now().plusDays(10);
     LocalDate departure = LocalDate.now().plusDays(11);
 
-    Reservation reservation = reservationService.createReservation(email, name, arrival, departure);
+    Reservation reservation = reservationService.createReservation(CAMPSITE, email, name, arrival,
+        departure);
     Long bookingId = reservation.getBookingId();
     assertNotNull(bookingId);
     assertEquals(reservation.getStatus(), ReservationStatus.CONFIRMED);
@@ -134,13 +349,95 @@ public class ReservationServiceTest {
     LocalDate arrival = LocalDate.now().plusDays(12);
     LocalDate departure = LocalDate.now().plusDays(14);
 
-    Reservation reservation = reservationService.createReservation(email, name, arrival, departure);
+    Reservation reservation = reservationService.createReservation(CAMPSITE, email, name, arrival,
+        departure);
     Long bookingId = reservation.getBookingId();
     assertNotNull(bookingId);
     assertEquals(reservation.getStatus(), ReservationStatus.CONFIRMED);
 
     Reservation cancelReservation = reservationService.cancelReservation(bookingId);
     assertEquals(cancelReservation.getStatus(), ReservationStatus.CANCELED);
+
+    Reservation newReservation = reservationService
+        .createReservation(CAMPSITE, "jehnan@email.com", "Jehn An", arrival, departure);
+    assertEquals(newReservation.getStatus(), ReservationStatus.CONFIRMED);
+  }
+
+  @Test
+  public void holdReservationBlocksNightsUntilConfirmed() throws Exception {
+    LocalDate arrival = LocalDate.now().plusDays(12);
+    LocalDate departure = LocalDate.now().plusDays(14);
+
+    Reservation hold = reservationService
+        .holdReservation(CAMPSITE, "johndoe@email.com", "John Doe", arrival, departure);
+    assertEquals(ReservationStatus.HELD, hold.getStatus());
+    assertNotNull(hold.getHeldUntil());
+
+    try {
+      reservationService.createReservation(CAMPSITE, "jehnan@email.com", "Jehn An", arrival,
+          departure);
+    } catch (InvalidReservationDateException ex) {
+      assertEquals(InvalidReservationDateException.Rule.ALREADY_RESERVED, ex.getRule());
+    }
+
+    Reservation confirmed = reservationService.confirmHold(hold.getBookingId());
+    assertEquals(ReservationStatus.CONFIRMED, confirmed.getStatus());
+    assertNull(confirmed.getHeldUntil());
+    assertEquals(1, reservationService.getAvailability(CAMPSITE, arrival, departure).size());
+  }
+
+  @Test
+  public void expireHoldsKeepsHoldConfirmedMeanwhile() throws Exception {
+    ReservationRepository racing = mock(ReservationRepository.class,
+        delegatesTo(reservationRepository));
+    reservationService = new ReservationService(new JpaReservationStore(racing), personService,
+        occupancyIndex, eventPublisher, transactionManager, new ReservationMetrics(meterRegistry),
+        0);
+    LocalDate arrival = LocalDate.now().plusDays(12);
+
+    Reservation hold = reservationService.holdReservation(CAMPSITE, "johndoe@email.com",
+        "John Doe", arrival, arrival.plusDays(2));
+    Long bookingId = hold.getBookingId();
+    Instant beforeExpiry = hold.getHeldUntil().minusMillis(1);
+    doAnswer(invocation -> {
+      List<ReservationView> due = reservationRepository
+          .findExpiredHolds(invocation.getArgument(0), invocation.getArgument(1));
+      reservationRepository.confirmHold(bookingId, beforeExpiry);
+      return due;
+    }).when(racing).findExpiredHolds(anyCollection(), any(Instant.class));
+    reservationService.expireHolds(Collections.singletonList(bookingId));
+
+    assertEquals(ReservationStatus.CONFIRMED,
+        reservationService.getReservationView(bookingId).getStatus());
+    assertEquals(0, meterRegistry.get(ReservationMetrics.HOLDS_EXPIRED).counter().count(), 0);
+    exceptionRule.expect(InvalidReservationDateException.class);
+    exceptionRule.expectMessage("Already reserved.");
+    reservationService.createReservation(CAMPSITE, "jehnan@email.com", "Jehn An", arrival,
+        arrival.plusDays(2));
+  }
+
+  @Test
+  public void expireHoldsReleasesNights() throws Exception {
+    reservationService = new ReservationService(reservationStore, personService, occupancyIndex,
+        eventPublisher, transactionManager, new ReservationMetrics(meterRegistry), 0);
+    LocalDate arrival = LocalDate.now().plusDays(12);
+
+    Long first = reservationService.holdReservation(CAMPSITE, "johndoe@email.com", "John Doe",
+        arrival, arrival.plusDays(2)).getBookingId();
+    Long second = reservationService.holdReservation(CAMPSITE, "jehnan@email.com", "Jehn An",
+        arrival.plusDays(2), arrival.plusDays(3)).getBookingId();
+    reservationService.expireHolds(Arrays.asList(first, second));
+
+    assertEquals(ReservationStatus.CANCELED, reservationService.getReservationView(first).getStatus());
+    assertEquals(ReservationStatus.CANCELED, reservationService.getReservationView(second).getStatus());
+    assertEquals(2, meterRegistry.get(ReservationMetrics.HOLDS_EXPIRED).counter().count(), 0);
+    Reservation rebooked = reservationService
+        .createReservation(CAMPSITE, "johndoe@email.com", "John Doe", arrival, arrival.plusDays(3));
+    assertEquals(ReservationStatus.CONFIRMED, rebooked.getStatus());
+
+    exceptionRule.expect(InvalidReservationDateException.class);
+    exceptionRule.expectMessage("This reservation is not held, or its hold expired.");
+    reservationService.confirmHold(first);
   }
 
   @Test
@@ -149,10 +446,70 @@ public class ReservationServiceTest {
     String email = "johndoe@email.com";
     LocalDate arrival = LocalDate.now().plusDays(15);
     LocalDate departure = LocalDate.now().plusDays(17);
-    reservationService.createReservation(email, name, arrival, departure);
-    reservationService.createReservation(email, name, arrival.plusDays(4), departure.plusDays(4));
+    reservationService.createReservation(CAMPSITE, email, name, arrival, departure);
+    reservationService.createReservation(CAMPSITE, email, name, arrival.plusDays(4),
+        departure.plusDays(4));
 
-    List<Reservation> reservations = reservationService.getAvailability(LocalDate.now(), LocalDate.now().plusMonths(1));
+    List<ReservationView> reservations = reservationService.getAvailability(CAMPSITE,
+        LocalDate.now(), LocalDate.now().plusMonths(1));
     assertEquals(2, reservations.size());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void streamAvailability() throws Exception {
+    String name = "John Doe";
+    String email = "johndoe@email.com";
+    LocalDate arrival = LocalDate.now().plusDays(15);
+    LocalDate departure = LocalDate.now().plusDays(17);
+    reservationService.createReservation(CAMPSITE, email, name, arrival, departure);
+    reservationService.createReservation(CAMPSITE, email, name, arrival.plusDays(4),
+        departure.plusDays(4));
+
+    List<Long> bookingIds = new ArrayList<>();
+    new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+        reservationService.streamAvailability(CAMPSITE, LocalDate.now(),
+            LocalDate.now().plusMonths(1), view -> bookingIds.add(view.getBookingId())));
+    assertEquals(2, bookingIds.size());
+  }
+
+  @Test
+  public void exportReservationsIncludesCanceled() throws Exception {
+    String name = "John Doe";
+    String email = "johndoe@email.com";
+    LocalDate arrival = LocalDate.now().plusDays(15);
+    LocalDate departure = LocalDate.now().plusDays(17);
+    Reservation canceled = reservationService.createReservation(CAMPSITE, email, name, arrival,
+        departure);
+    reservationService.cancelReservation(canceled.getBookingId());
+    reservationService.createReservation(CAMPSITE, email, name, arrival, departure);
+
+    List<ReservationView> exported = new ArrayList<>();
+    new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+        reservationService.exportReservations(LocalDate.now(), LocalDate.now().plusMonths(1),
+            exported::add));
+    assertEquals(2, exported.size());
+    assertEquals(ReservationStatus.CANCELED, exported.get(0).getStatus());
+    assertEquals(email, exported.get(1).getOwnerEmail());
+  }
+
+  @Test
+  public void getOccupancyFreeRanges() throws Exception {
+    LocalDate today = LocalDate.now();
+    long version = reservationService.getCalendarVersion(CAMPSITE);
+    reservationService.createReservation(CAMPSITE, "johndoe@email.com", "John Doe",
+        today.plusDays(2), today.plusDays(4));
+    reservationService.createReservation(CAMPSITE, "jehnan@email.com", "Jehn An",
+        today.plusDays(4), today.plusDays(5));
+    reservationService.createReservation(CAMPSITE, "johndoe@email.com", "John Doe",
+        today.plusDays(8), today.plusDays(10));
+
+    Occupancy occupancy = reservationService
+        .getOccupancy(CAMPSITE, new DateRange(today, today.plusDays(9)));
+
+    assertNotEquals(version, occupancy.getVersion());
+    assertEquals(Arrays.asList(
+        new DateRange(today, today.plusDays(2)),
+        new DateRange(today.plusDays(5), today.plusDays(8))),
+        occupancy.getFreeRanges());
+  }
+}
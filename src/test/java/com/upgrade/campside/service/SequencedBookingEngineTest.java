@@ -0,0 +1,180 @@
+package com.upgrade.campside.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.upgrade.campside.domain.model.Campsite;
+import com.upgrade.campside.domain.model.Reservation;
+import com.upgrade.campside.domain.model.ReservationStatus;
+import com.upgrade.campside.domain.repository.JpaReservationStore;
+import com.upgrade.campside.domain.repository.PersonRepository;
+import com.upgrade.campside.domain.repository.ReservationRepository;
+import com.upgrade.campside.domain.repository.ReservationStore;
+import com.upgrade.campside.exception.InvalidReservationDateException;
+import com.upgrade.campside.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class SequencedBookingEngineTest {
+
+  private static final Long CAMPSITE = Campsite.DEFAULT_ID;
+
+  @Autowired
+  private ReservationRepository reservationRepository;
+
+  @Autowired
+  private PersonRepository personRepository;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private SequencedBookingEngine bookingEngine;
+
+  @Before
+  public void setUp() {
+    reservationRepository.deleteAll();
+    ReservationMetrics metrics = new ReservationMetrics(new SimpleMeterRegistry());
+    PersonService personService = new PersonService(personRepository, transactionManager, 100);
+    ReservationStore reservationStore = new JpaReservationStore(reservationRepository);
+    OccupancyIndex occupancyIndex = new OccupancyIndex(reservationStore);
+    occupancyIndex.rebuild();
+    ReservationService reservationService =
+        new ReservationService(reservationStore, personService, occupancyIndex,
+            eventPublisher, transactionManager, metrics, 600000);
+    bookingEngine = new SequencedBookingEngine(reservationService, personService,
+        transactionManager, metrics, 64, 8, 1000, 30000, 2);
+    bookingEngine.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    bookingEngine.stop();
+    reservationRepository.deleteAll();
+  }
+
+  @Test
+  public void createConcurrentReservation() throws Exception {
+    ExecutorService service = Executors.newFixedThreadPool(16);
+    AtomicInteger success = new AtomicInteger(0);
+    AtomicInteger fails = new AtomicInteger(0);
+
+    IntStream.range(0, 16)
+        .forEach(index -> service.submit(() -> {
+          try {
+            bookingEngine.createReservation(CAMPSITE, "johndoe@email.com", "John Doe",
+                LocalDate.now().plusDays(2), LocalDate.now().plusDays(3));
+            success.getAndIncrement();
+          } catch (InvalidReservationDateException e) {
+            fails.getAndIncrement();
+          }
+          return null;
+        }));
+
+    service.shutdown();
+    service.awaitTermination(5, TimeUnit.SECONDS);
+
+    assertEquals(1, success.get());
+    assertEquals(15, fails.get());
+    assertEquals(1, reservationRepository.count());
+  }
+
+  @Test
+  public void updateAndCancelReservation() throws Exception {
+    LocalDate arrival = LocalDate.now().plusDays(10);
+    LocalDate departure = LocalDate.now().plusDays(11);
+
+    Reservation reservation = bookingEngine
+        .createReservation(CAMPSITE, "johndoe@email.com", "John Doe", arrival, departure);
+    Long bookingId = reservation.getBookingId();
+    assertNotNull(bookingId);
+
+    Reservation updated = bookingEngine
+        .updateReservationDates(bookingId, arrival.minusDays(1), departure);
+    assertEquals(arrival.minusDays(1), updated.getArrivalDate());
+
+    Reservation canceled = bookingEngine.cancelReservation(bookingId);
+    assertEquals(ReservationStatus.CANCELED, canceled.getStatus());
+  }
+
+  @Test
+  public void writerSurvivesErrorOfBatch() throws Exception {
+    ReservationService service = mock(ReservationService.class);
+    Reservation confirmed = mock(Reservation.class);
+    when(service.findCampsiteId(anyLong())).thenReturn(Optional.of(CAMPSITE));
+    when(service.applyConfirm(1L)).thenThrow(new OutOfMemoryError("no memory left"));
+    when(service.applyConfirm(2L)).thenReturn(confirmed);
+    SequencedBookingEngine engine = new SequencedBookingEngine(service,
+        mock(PersonService.class), transactionManager,
+        new ReservationMetrics(new SimpleMeterRegistry()), 64, 8, 1000, 30000, 1);
+    engine.start();
+    try {
+      try {
+        engine.confirmHold(1L);
+        fail("The error of the batch was not reported");
+      } catch (OutOfMemoryError ex) {
+        assertEquals("no memory left", ex.getMessage());
+      }
+      assertSame(confirmed, engine.confirmHold(2L));
+    } finally {
+      engine.stop();
+    }
+  }
+
+  @Test(expected = ServiceOverloadedException.class)
+  public void callerWaitsForCommitUpToTimeout() throws Exception {
+    ReservationService service = mock(ReservationService.class);
+    CountDownLatch release = new CountDownLatch(1);
+    when(service.findCampsiteId(anyLong())).thenReturn(Optional.of(CAMPSITE));
+    when(service.applyConfirm(1L)).thenAnswer(invocation -> {
+      release.await();
+      return mock(Reservation.class);
+    });
+    SequencedBookingEngine engine = new SequencedBookingEngine(service,
+        mock(PersonService.class), transactionManager,
+        new ReservationMetrics(new SimpleMeterRegistry()), 64, 8, 1000, 100, 1);
+    engine.start();
+    try {
+      engine.confirmHold(1L);
+    } finally {
+      release.countDown();
+      engine.stop();
+    }
+  }
+
+  @Test(expected = ServiceOverloadedException.class)
+  public void stoppedEngineRejectsCommands() throws Exception {
+    bookingEngine.stop();
+
+    bookingEngine.createReservation(CAMPSITE, "johndoe@email.com", "John Doe",
+        LocalDate.now().plusDays(2), LocalDate.now().plusDays(3));
+  }
+}